@@ -0,0 +1,75 @@
+package io.clarify.api.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.clarify.api.Bundle;
+import io.clarify.api.ClarifyClient;
+
+/**
+ * Measures the throughput of findBundle against the local HTTP stub as the number of calling threads rises.
+ * All threads share one client and therefore one connection pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrencyBenchmark {
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new MockClarifyServer(1, 10);
+        ClarifyClient.CLARIFY_BASE_URI = server.getBaseUri();
+        client = new ClarifyClient("benchmark-app-key");
+        // every thread asks for the same Bundle, which coalescing would turn into a wait on one shared request
+        client.setRequestCoalescing(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Bundle findBundle1Thread() throws IOException {
+        return client.findBundle(Recordings.BUNDLE_ID);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Bundle findBundle4Threads() throws IOException {
+        return client.findBundle(Recordings.BUNDLE_ID);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Bundle findBundle16Threads() throws IOException {
+        return client.findBundle(Recordings.BUNDLE_ID);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Bundle findBundle64Threads() throws IOException {
+        return client.findBundle(Recordings.BUNDLE_ID);
+    }
+
+    private MockClarifyServer server;
+    private ClarifyClient client;
+}
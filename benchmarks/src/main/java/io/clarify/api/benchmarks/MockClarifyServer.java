@@ -0,0 +1,139 @@
+package io.clarify.api.benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP stub of the Clarify API serving the recorded responses. Bundles, tracks, metadata and search
+ * requests are answered with the recordings; List Bundles is answered with synthetic pages linked by next hrefs.
+ * Point a client at it by setting ClarifyClient.CLARIFY_BASE_URI to getBaseUri().
+ */
+public class MockClarifyServer implements Closeable {
+
+    /**
+     * Starts a stub on an ephemeral port of the loopback interface
+     * @param pages the number of pages of the List Bundles response
+     * @param itemsPerPage the number of items on each list page
+     * @throws IOException if the server could not be started
+     */
+    public MockClarifyServer(final int pages, final int itemsPerPage) throws IOException {
+        // without it, small responses are delayed by the interplay of Nagle and delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.executor = Executors.newFixedThreadPool(Math.max(8, Runtime.getRuntime().availableProcessors() * 4));
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                drain(exchange.getRequestBody());
+                String method = exchange.getRequestMethod();
+                byte[] body = route(method, exchange.getRequestURI().toString(), pages, itemsPerPage);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                if("DELETE".equals(method) && body != null) {
+                    exchange.sendResponseHeaders(204, -1);
+                } else if(body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                exchange.close();
+            }
+        });
+        this.server.start();
+    }
+
+    /**
+     * Returns the base URI of the stub, to be used as ClarifyClient.CLARIFY_BASE_URI
+     */
+    public String getBaseUri() {
+        return "http://127.0.0.1:"+server.getAddress().getPort();
+    }
+
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the recorded response for a request
+     * @param method the HTTP method
+     * @param url the request URL or path, with query string
+     * @param pages the number of pages of the List Bundles response
+     * @param itemsPerPage the number of items on each list page
+     * @return the response body, or null if the request is not recognised
+     */
+    static byte[] route(String method, String url, int pages, int itemsPerPage) {
+        int start = url.indexOf("/v1/");
+        if(start < 0) {
+            return null;
+        }
+        String path = url.substring(start);
+        String query = "";
+        int q = path.indexOf('?');
+        if(q >= 0) {
+            query = path.substring(q + 1);
+            path = path.substring(0, q);
+        }
+        String[] parts = path.split("/");
+        // parts: "", "v1", resource, id, sub-resource, sub-id
+        if(parts.length < 3) {
+            return null;
+        }
+        if("search".equals(parts[2])) {
+            return SEARCH;
+        }
+        if(!"bundles".equals(parts[2])) {
+            return null;
+        }
+        if(parts.length == 3) {
+            return "POST".equals(method) ? BUNDLE : Recordings.bundlePage(page(query), pages, itemsPerPage);
+        }
+        if(parts.length == 4) {
+            return BUNDLE;
+        }
+        if("metadata".equals(parts[4])) {
+            return METADATA;
+        }
+        if("tracks".equals(parts[4])) {
+            return (parts.length == 5 && !"POST".equals(method)) ? TRACKS : TRACK;
+        }
+        return null;
+    }
+
+    private static int page(String query) {
+        for(String param : query.split("&")) {
+            if(param.startsWith("page=")) {
+                return Integer.parseInt(param.substring("page=".length()));
+            }
+        }
+        return 1;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        while(in.read(buffer) != -1) {
+            // discard the request body
+        }
+        in.close();
+    }
+
+    private static final byte[] BUNDLE = Recordings.load("bundle");
+    private static final byte[] TRACK = Recordings.load("track");
+    private static final byte[] TRACKS = Recordings.load("tracks");
+    private static final byte[] METADATA = Recordings.load("metadata");
+    private static final byte[] SEARCH = Recordings.load("search");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+}
@@ -0,0 +1,96 @@
+package io.clarify.api.benchmarks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.clarify.api.Bundle;
+import io.clarify.api.BundleMetadata;
+import io.clarify.api.BundleTrack;
+import io.clarify.api.ClarifyClient;
+import io.clarify.api.ClarifyResponse;
+
+/**
+ * Measures the typed accessors of the models, both on a freshly received response (including decoding) and
+ * on a model whose fields have already been decoded
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelAccessorBenchmark {
+
+    @Setup
+    public void setup() {
+        client = new ClarifyClient("benchmark-app-key", new RecordedTransport(1, 10));
+        bundleBody = Recordings.load("bundle");
+        trackBody = Recordings.load("track");
+        metadataBody = Recordings.load("metadata");
+        decodedBundle = new Bundle(client, new ClarifyResponse(200, HEADERS, bundleBody));
+        decodedBundle.getName();
+    }
+
+    @Benchmark
+    public void bundleFirstAccess(Blackhole blackhole) {
+        Bundle bundle = new Bundle(client, new ClarifyResponse(200, HEADERS, bundleBody));
+        readBundle(bundle, blackhole);
+    }
+
+    @Benchmark
+    public void bundleDecoded(Blackhole blackhole) {
+        readBundle(decodedBundle, blackhole);
+    }
+
+    @Benchmark
+    public void trackFirstAccess(Blackhole blackhole) {
+        BundleTrack track = new BundleTrack(client, new ClarifyResponse(200, HEADERS, trackBody));
+        blackhole.consume(track.getId());
+        blackhole.consume(track.getStatus());
+        blackhole.consume(track.getMediaUrl());
+        blackhole.consume(track.getDuration());
+        blackhole.consume(track.getUpdated());
+    }
+
+    @Benchmark
+    public void metadataFirstAccess(Blackhole blackhole) {
+        BundleMetadata metadata = new BundleMetadata(client, new ClarifyResponse(200, HEADERS, metadataBody));
+        blackhole.consume(metadata.getBundleId());
+        blackhole.consume(metadata.getData());
+        blackhole.consume(metadata.getVersion());
+    }
+
+    private static void readBundle(Bundle bundle, Blackhole blackhole) {
+        blackhole.consume(bundle.getId());
+        blackhole.consume(bundle.getName());
+        blackhole.consume(bundle.getExternalId());
+        blackhole.consume(bundle.getNotifyUrl());
+        blackhole.consume(bundle.getVersion());
+        blackhole.consume(bundle.getCreated());
+        blackhole.consume(bundle.getUpdated());
+    }
+
+    private static final Map<String,List<String>> HEADERS =
+            Collections.singletonMap("Content-Type", Arrays.asList("application/json"));
+
+    private ClarifyClient client;
+    private byte[] bundleBody;
+    private byte[] trackBody;
+    private byte[] metadataBody;
+    private Bundle decodedBundle;
+}
@@ -0,0 +1,96 @@
+package io.clarify.api.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.clarify.api.BundleList;
+import io.clarify.api.ClarifyClient;
+import io.clarify.api.PageItemHandler;
+import us.monoid.json.JSONException;
+import us.monoid.json.JSONObject;
+
+/**
+ * Measures a full crawl of a List Bundles result against the local HTTP stub: paging by hand, iterating the
+ * items with background prefetching, and streaming each page to a PageItemHandler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+    @Param({"20"})
+    public int pages;
+
+    @Param({"50"})
+    public int itemsPerPage;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new MockClarifyServer(pages, itemsPerPage);
+        ClarifyClient.CLARIFY_BASE_URI = server.getBaseUri();
+        client = new ClarifyClient("benchmark-app-key");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public int crawlNextPage() throws IOException, JSONException {
+        int items = 0;
+        BundleList page = client.listBundles();
+        while(page != null) {
+            items += page.getLinkItems().length();
+            page = page.nextPage();
+        }
+        return items;
+    }
+
+    @Benchmark
+    public int crawlItemsPrefetched(Blackhole blackhole) throws IOException {
+        int items = 0;
+        for(JSONObject item : client.listBundles().items()) {
+            blackhole.consume(item);
+            items++;
+        }
+        return items;
+    }
+
+    @Benchmark
+    public int crawlStreamed(final Blackhole blackhole) throws IOException, JSONException {
+        final int[] items = new int[1];
+        PageItemHandler handler = new PageItemHandler() {
+            public void onItem(String field, int index, JSONObject item) {
+                blackhole.consume(item);
+                items[0]++;
+            }
+        };
+        BundleList page = client.listBundles(handler);
+        while(page != null) {
+            page = page.nextPage(handler);
+        }
+        return items[0];
+    }
+
+    private MockClarifyServer server;
+    private ClarifyClient client;
+}
@@ -0,0 +1,48 @@
+package io.clarify.api.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.clarify.api.ClarifyHttpRequest;
+import io.clarify.api.ClarifyHttpResponse;
+import io.clarify.api.ClarifyTransport;
+
+/**
+ * A ClarifyTransport answering every request from memory with the recorded responses, so that benchmarks
+ * measure only the work done by the client itself.
+ */
+public class RecordedTransport implements ClarifyTransport {
+
+    /**
+     * Creates a transport serving list pages of the given shape
+     * @param pages the number of pages of the List Bundles response
+     * @param itemsPerPage the number of items on each list page
+     */
+    public RecordedTransport(int pages, int itemsPerPage) {
+        this.pages = pages;
+        this.itemsPerPage = itemsPerPage;
+    }
+
+    public ClarifyHttpResponse execute(ClarifyHttpRequest request) throws IOException {
+        byte[] body = MockClarifyServer.route(request.getMethod(), request.getUrl(), pages, itemsPerPage);
+        int status = (body == null) ? 404 : 200;
+        if(body == null) {
+            body = NOT_FOUND;
+        }
+        return new ClarifyHttpResponse(status, HEADERS, new ByteArrayInputStream(body), null);
+    }
+
+    public void close() {
+    }
+
+    private static final byte[] NOT_FOUND = "{\"status\":404,\"message\":\"Not Found\"}".getBytes();
+    private static final Map<String,List<String>> HEADERS =
+            Collections.singletonMap("Content-Type", Arrays.asList("application/json"));
+
+    private final int pages;
+    private final int itemsPerPage;
+}
@@ -0,0 +1,68 @@
+package io.clarify.api.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Loads the recorded Clarify API responses bundled with the benchmarks and builds the synthetic list pages
+ * used for pagination crawls.
+ */
+public final class Recordings {
+
+    public static final String BUNDLE_ID = "3c8f0a0b1e7f4c2d9a6b5e4f3d2c39f9";
+
+    private Recordings() {
+    }
+
+    /**
+     * Returns the body of a recorded response
+     * @param name the name of the recording: bundle, track, tracks, metadata or search
+     * @return the raw response body
+     */
+    public static byte[] load(String name) {
+        InputStream in = Recordings.class.getResourceAsStream("/responses/"+name+".json");
+        if(in == null) { throw new RuntimeException("no recording named "+name); }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            in.close();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Builds one page of a List Bundles response
+     * @param page the page number, starting at 1
+     * @param pages the total number of pages
+     * @param itemsPerPage the number of items on each page
+     * @return the raw response body
+     */
+    public static byte[] bundlePage(int page, int pages, int itemsPerPage) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"_class\":\"Collection\",\"total\":").append(pages * itemsPerPage)
+          .append(",\"limit\":").append(itemsPerPage)
+          .append(",\"_links\":{\"self\":{\"href\":\"/v1/bundles?page=").append(page).append("\"}");
+        if(page < pages) {
+            sb.append(",\"next\":{\"href\":\"/v1/bundles?page=").append(page + 1).append("\"}");
+        }
+        sb.append(",\"items\":[");
+        for(int i=0;i<itemsPerPage;i++) {
+            if(i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"href\":\"/v1/bundles/").append(String.format("%08d%024d", page, i)).append("\"}");
+        }
+        sb.append("]}}");
+        return sb.toString().getBytes(UTF8);
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+}
@@ -0,0 +1,81 @@
+package io.clarify.api.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.clarify.api.ClarifyClient;
+import us.monoid.web.Resty;
+
+/**
+ * Measures the cost of building request URLs and form bodies, which is paid on every API call. legacyFormBody
+ * reproduces the former form encoding (StringBuffer, per-field concatenation, Resty.enc and a platform-charset
+ * getBytes()) as a baseline; run with -prof gc to compare the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuildingBenchmark {
+
+    @Setup
+    public void setup() {
+        client = new ClarifyClient("benchmark-app-key", new RecordedTransport(1, 10));
+        bundleId = new String(Recordings.BUNDLE_ID);
+        fields = new LinkedHashMap<String,String>();
+        fields.put("name", "Harvard Sentences");
+        fields.put("media_url", "http://media.clarify.io/audio/samples/harvard-sentences-1.wav");
+        fields.put("notify_url", "http://example.com/notify?bundle=1&kind=processing");
+        fields.put("external_id", "ext-0001");
+        fields.put("metadata", "{\"title\":\"Harvard Sentences\",\"tags\":[\"sample\"]}");
+    }
+
+    @Benchmark
+    public String urlEncodeMap() {
+        return client.urlEncodeMap(fields);
+    }
+
+    @Benchmark
+    public byte[] encodeForm() {
+        return client.encodeForm(fields);
+    }
+
+    @Benchmark
+    public byte[] legacyFormBody() {
+        StringBuffer params = new StringBuffer();
+        for(String key : fields.keySet()) {
+            if(params.length() > 0) {
+                params.append("&");
+            }
+            params.append(key+"="+Resty.enc(fields.get(key)));
+        }
+        return params.toString().getBytes();
+    }
+
+    @Benchmark
+    public String buildPathFromResourcePath() {
+        return client.buildPathFromResourcePath("/bundles/"+bundleId+"/tracks");
+    }
+
+    @Benchmark
+    public String buildPathFromHref() {
+        return client.buildPathFromHref("/v1/bundles/"+bundleId+"/metadata");
+    }
+
+    private ClarifyClient client;
+    private Map<String,String> fields;
+    private String bundleId;
+}
@@ -0,0 +1,129 @@
+package io.clarify.api.benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.clarify.api.BundleSearchResults;
+import io.clarify.api.ClarifyClient;
+import io.clarify.api.ClarifyResponse;
+import io.clarify.api.PageItemHandler;
+import io.clarify.api.SearchColumns;
+import us.monoid.json.JSONArray;
+import us.monoid.json.JSONObject;
+
+/**
+ * Measures parsing of recorded responses by ClarifyResponse, the buffered, streaming and columnar paths of a
+ * search page served from memory by a RecordedTransport, and reading match offsets from JSON and from SearchColumns
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class ResponseParsingBenchmark {
+
+    @Setup
+    public void setup() {
+        bundle = Recordings.load("bundle");
+        search = Recordings.load("search");
+        client = new ClarifyClient("benchmark-app-key", new RecordedTransport(1, 10));
+        searchPage = new BundleSearchResults(client, new ClarifyResponse(200, HEADERS, search));
+        searchPage.getItemResults();
+        searchPage.getColumns();
+    }
+
+    @Benchmark
+    public JSONObject parseBundle() {
+        return new ClarifyResponse(200, HEADERS, bundle).getJSONObject();
+    }
+
+    @Benchmark
+    public Object jsonPathBundle() {
+        return new ClarifyResponse(200, HEADERS, bundle).getJSONValue("_links.self.href");
+    }
+
+    @Benchmark
+    public String responseContentBundle() {
+        return new ClarifyResponse(200, HEADERS, bundle).getResponseContent();
+    }
+
+    @Benchmark
+    public JSONObject parseSearchPage() {
+        return new ClarifyResponse(200, HEADERS, search).getJSONObject();
+    }
+
+    @Benchmark
+    public int searchBuffered() throws IOException {
+        BundleSearchResults results = client.searchBundles("water boat sentence");
+        return results.getItemResults().length() + results.getLinkItems().length();
+    }
+
+    @Benchmark
+    public BundleSearchResults searchStreamed(final Blackhole blackhole) throws IOException {
+        return client.searchBundles("water boat sentence", null, new PageItemHandler() {
+            public void onItem(String field, int index, JSONObject item) {
+                blackhole.consume(item);
+            }
+        });
+    }
+
+    @Benchmark
+    public SearchColumns searchColumns() throws IOException {
+        return client.searchBundleColumns("water boat sentence", null).getColumns();
+    }
+
+    @Benchmark
+    public double matchDurationsJson() {
+        double total = 0;
+        JSONArray items = searchPage.getItemResults();
+        for(int i=0;i<items.length();i++) {
+            JSONArray terms = items.optJSONObject(i).optJSONArray("term_results");
+            for(int t=0;t<terms.length();t++) {
+                JSONArray matches = terms.optJSONObject(t).optJSONArray("matches");
+                for(int m=0;m<matches.length();m++) {
+                    JSONArray hits = matches.optJSONObject(m).optJSONArray("hits");
+                    for(int h=0;h<hits.length();h++) {
+                        JSONObject hit = hits.optJSONObject(h);
+                        total += hit.optDouble("end") - hit.optDouble("start");
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double matchDurationsColumns() {
+        double total = 0;
+        SearchColumns columns = searchPage.getColumns();
+        for(int m=0;m<columns.getMatchCount();m++) {
+            total += columns.getMatchEnd(m) - columns.getMatchStart(m);
+        }
+        return total;
+    }
+
+    private static final Map<String,List<String>> HEADERS =
+            Collections.singletonMap("Content-Type", Arrays.asList("application/json"));
+
+    private byte[] bundle;
+    private byte[] search;
+    private ClarifyClient client;
+    private BundleSearchResults searchPage;
+}
@@ -0,0 +1,448 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous counterpart of the ClarifyClient high-level API. Every operation returns a CompletableFuture
+ * that completes with the same result the blocking ClarifyClient method would return, or completes exceptionally
+ * with the IOException (typically a ClarifyApiException) or RuntimeException it would throw.
+ *
+ * Calls are executed on the supplied Executor. When none is given, the shared executor from
+ * ClarifyExecutors.getDefaultExecutor() is used, which runs each call on its own virtual thread on Java 21 and
+ * later, so thousands of calls can be in flight without parking thousands of platform threads.
+ *
+ * Example:
+ *
+ * AsyncClarifyClient async = new ClarifyClient(appKey).async();
+ * async.findBundle(bundleId).thenAccept(bundle -> System.out.println(bundle.getId()));
+ */
+public class AsyncClarifyClient {
+
+    /**
+     * Creates an asynchronous client on top of the given client, using the shared default executor
+     * @param client the ClarifyClient used to perform the calls
+     */
+    public AsyncClarifyClient(ClarifyClient client) {
+        this(client, ClarifyExecutors.getDefaultExecutor());
+    }
+
+    /**
+     * Creates an asynchronous client on top of the given client and executor
+     * @param client the ClarifyClient used to perform the calls
+     * @param executor the Executor on which calls are run, for example Executors.newVirtualThreadPerTaskExecutor()
+     */
+    public AsyncClarifyClient(ClarifyClient client, Executor executor) {
+        if(client == null) { throw new RuntimeException("client cannot be null"); }
+        if(executor == null) { throw new RuntimeException("executor cannot be null"); }
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /**
+     * @see ClarifyClient#createBundle(String, URI)
+     */
+    public CompletableFuture<Bundle> createBundle(final String name, final URI mediaURI) {
+        return submit(new Callable<Bundle>() {
+            public Bundle call() throws IOException {
+                return client.createBundle(name, mediaURI);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#createBundle(String, URI, Map)
+     */
+    public CompletableFuture<Bundle> createBundle(final String name, final URI mediaURI, final Map<String,String> fields) {
+        return submit(new Callable<Bundle>() {
+            public Bundle call() throws IOException {
+                return client.createBundle(name, mediaURI, fields);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#createBundle(String, URI, Map, ResponseMode)
+     */
+    public CompletableFuture<Bundle> createBundle(final String name, final URI mediaURI, final Map<String,String> fields, final ResponseMode mode) {
+        return submit(new Callable<Bundle>() {
+            public Bundle call() throws IOException {
+                return client.createBundle(name, mediaURI, fields, mode);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#createBundle(String, MediaUpload)
+     */
+    public CompletableFuture<Bundle> createBundle(final String name, final MediaUpload media) {
+        return submit(new Callable<Bundle>() {
+            public Bundle call() throws IOException {
+                return client.createBundle(name, media);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#createBundle(String, MediaUpload, Map, ResponseMode)
+     */
+    public CompletableFuture<Bundle> createBundle(final String name, final MediaUpload media, final Map<String,String> fields, final ResponseMode mode) {
+        return submit(new Callable<Bundle>() {
+            public Bundle call() throws IOException {
+                return client.createBundle(name, media, fields, mode);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#listBundles()
+     */
+    public CompletableFuture<BundleList> listBundles() {
+        return submit(new Callable<BundleList>() {
+            public BundleList call() throws IOException {
+                return client.listBundles();
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#listBundles(PageItemHandler)
+     */
+    public CompletableFuture<BundleList> listBundles(final PageItemHandler handler) {
+        return submit(new Callable<BundleList>() {
+            public BundleList call() throws IOException {
+                return client.listBundles(handler);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#listBundlesExpanded(Expand...)
+     */
+    public CompletableFuture<BundleList> listBundlesExpanded(final Expand... expand) {
+        return submit(new Callable<BundleList>() {
+            public BundleList call() throws IOException {
+                return client.listBundlesExpanded(expand);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#searchBundles(String)
+     */
+    public CompletableFuture<BundleSearchResults> searchBundles(final String query) {
+        return submit(new Callable<BundleSearchResults>() {
+            public BundleSearchResults call() throws IOException {
+                return client.searchBundles(query);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#searchBundles(String, Map)
+     */
+    public CompletableFuture<BundleSearchResults> searchBundles(final String query, final Map<String,String> params) {
+        return submit(new Callable<BundleSearchResults>() {
+            public BundleSearchResults call() throws IOException {
+                return client.searchBundles(query, params);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#searchBundles(String, Map, PageItemHandler)
+     */
+    public CompletableFuture<BundleSearchResults> searchBundles(final String query, final Map<String,String> params, final PageItemHandler handler) {
+        return submit(new Callable<BundleSearchResults>() {
+            public BundleSearchResults call() throws IOException {
+                return client.searchBundles(query, params, handler);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#searchBundlesExpanded(String, Map, Expand...)
+     */
+    public CompletableFuture<BundleSearchResults> searchBundlesExpanded(final String query, final Map<String,String> params, final Expand... expand) {
+        return submit(new Callable<BundleSearchResults>() {
+            public BundleSearchResults call() throws IOException {
+                return client.searchBundlesExpanded(query, params, expand);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#searchBundleColumns(String, Map)
+     */
+    public CompletableFuture<BundleSearchResults> searchBundleColumns(final String query, final Map<String,String> params) {
+        return submit(new Callable<BundleSearchResults>() {
+            public BundleSearchResults call() throws IOException {
+                return client.searchBundleColumns(query, params);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#findBundleByHref(String)
+     */
+    public CompletableFuture<Bundle> findBundleByHref(final String href) {
+        return submit(new Callable<Bundle>() {
+            public Bundle call() throws IOException {
+                return client.findBundleByHref(href);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#findBundle(String)
+     */
+    public CompletableFuture<Bundle> findBundle(final String bundleId) {
+        return submit(new Callable<Bundle>() {
+            public Bundle call() throws IOException {
+                return client.findBundle(bundleId);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#findBundle(String, Expand...)
+     */
+    public CompletableFuture<Bundle> findBundle(final String bundleId, final Expand... expand) {
+        return submit(new Callable<Bundle>() {
+            public Bundle call() throws IOException {
+                return client.findBundle(bundleId, expand);
+            }
+        });
+    }
+
+    /**
+     * The requests of the batch run on the executor of the ClarifyClient, while the call waits for them on this
+     * client's executor, so the two should not be the same bounded pool.
+     * @see ClarifyClient#findBundles(Collection)
+     */
+    public CompletableFuture<BatchResult<Bundle>> findBundles(final Collection<String> idsOrHrefs) {
+        return submit(new Callable<BatchResult<Bundle>>() {
+            public BatchResult<Bundle> call() {
+                return client.findBundles(idsOrHrefs);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#findBundles(Collection, int)
+     */
+    public CompletableFuture<BatchResult<Bundle>> findBundles(final Collection<String> idsOrHrefs, final int concurrency) {
+        return submit(new Callable<BatchResult<Bundle>>() {
+            public BatchResult<Bundle> call() {
+                return client.findBundles(idsOrHrefs, concurrency);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#updateBundle(String, Map)
+     */
+    public CompletableFuture<Boolean> updateBundle(final String bundleId, final Map<String,String> fields) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() throws IOException {
+                return client.updateBundle(bundleId, fields);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#deleteBundle(String)
+     */
+    public CompletableFuture<Boolean> deleteBundle(final String bundleId) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() throws IOException {
+                return client.deleteBundle(bundleId);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#listTracksForBundle(String)
+     */
+    public CompletableFuture<BundleTrackList> listTracksForBundle(final String bundleId) {
+        return submit(new Callable<BundleTrackList>() {
+            public BundleTrackList call() throws IOException {
+                return client.listTracksForBundle(bundleId);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#addTrackToBundle(String, URI)
+     */
+    public CompletableFuture<BundleTrack> addTrackToBundle(final String bundleId, final URI trackUri) {
+        return submit(new Callable<BundleTrack>() {
+            public BundleTrack call() throws IOException {
+                return client.addTrackToBundle(bundleId, trackUri);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#addTrackToBundle(String, URI, ResponseMode)
+     */
+    public CompletableFuture<BundleTrack> addTrackToBundle(final String bundleId, final URI trackUri, final ResponseMode mode) {
+        return submit(new Callable<BundleTrack>() {
+            public BundleTrack call() throws IOException {
+                return client.addTrackToBundle(bundleId, trackUri, mode);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#addTrackToBundle(String, MediaUpload)
+     */
+    public CompletableFuture<BundleTrack> addTrackToBundle(final String bundleId, final MediaUpload media) {
+        return submit(new Callable<BundleTrack>() {
+            public BundleTrack call() throws IOException {
+                return client.addTrackToBundle(bundleId, media);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#addTrackToBundle(String, MediaUpload, ResponseMode)
+     */
+    public CompletableFuture<BundleTrack> addTrackToBundle(final String bundleId, final MediaUpload media, final ResponseMode mode) {
+        return submit(new Callable<BundleTrack>() {
+            public BundleTrack call() throws IOException {
+                return client.addTrackToBundle(bundleId, media, mode);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#findTrackForBundle(String, String)
+     */
+    public CompletableFuture<BundleTrack> findTrackForBundle(final String bundleId, final String trackId) {
+        return submit(new Callable<BundleTrack>() {
+            public BundleTrack call() throws IOException {
+                return client.findTrackForBundle(bundleId, trackId);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#findTrackByHref(String)
+     */
+    public CompletableFuture<BundleTrack> findTrackByHref(final String href) {
+        return submit(new Callable<BundleTrack>() {
+            public BundleTrack call() throws IOException {
+                return client.findTrackByHref(href);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#deleteTrack(String, String)
+     */
+    public CompletableFuture<Boolean> deleteTrack(final String bundleId, final String trackId) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() throws IOException {
+                return client.deleteTrack(bundleId, trackId);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#findMetadata(String)
+     */
+    public CompletableFuture<BundleMetadata> findMetadata(final String bundleId) {
+        return submit(new Callable<BundleMetadata>() {
+            public BundleMetadata call() throws IOException {
+                return client.findMetadata(bundleId);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#updateMetadata(String, String)
+     */
+    public CompletableFuture<BundleMetadata> updateMetadata(final String bundleId, final String json) {
+        return submit(new Callable<BundleMetadata>() {
+            public BundleMetadata call() throws IOException {
+                return client.updateMetadata(bundleId, json);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#updateMetadata(String, String, ResponseMode)
+     */
+    public CompletableFuture<BundleMetadata> updateMetadata(final String bundleId, final String json, final ResponseMode mode) {
+        return submit(new Callable<BundleMetadata>() {
+            public BundleMetadata call() throws IOException {
+                return client.updateMetadata(bundleId, json, mode);
+            }
+        });
+    }
+
+    /**
+     * @see ClarifyClient#resetMetadata(String)
+     */
+    public CompletableFuture<Boolean> resetMetadata(final String bundleId) {
+        return submit(new Callable<Boolean>() {
+            public Boolean call() throws IOException {
+                return client.resetMetadata(bundleId);
+            }
+        });
+    }
+
+    /**
+     * Returns the blocking client used to perform the calls
+     * @return the underlying ClarifyClient
+     */
+    public ClarifyClient getClarifyClient() {
+        return client;
+    }
+
+    /**
+     * Returns the executor on which calls are run
+     * @return the Executor for this client
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Runs the given call on the executor, completing the returned future with its result or with the
+     * exception it threw
+     * @param call the blocking call to run
+     * @return a CompletableFuture for the result of the call
+     */
+    protected <T> CompletableFuture<T> submit(final Callable<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    if(future.isDone()) {
+                        // cancelled before the call started
+                        return;
+                    }
+                    try {
+                        future.complete(call.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private final ClarifyClient client;
+    private final Executor executor;
+}
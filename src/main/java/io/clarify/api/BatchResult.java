@@ -0,0 +1,122 @@
+package io.clarify.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a batch operation such as ClarifyClient.findBundles(). Results are kept in the same order as
+ * the input keys. Each item either succeeded with a value or failed with the exception thrown for that item;
+ * a failed item does not abort the rest of the batch.
+ */
+public class BatchResult<T> {
+
+    BatchResult(List<String> keys) {
+        this.keys = Collections.unmodifiableList(new ArrayList<String>(keys));
+        this.values = new ArrayList<T>(Collections.<T>nCopies(keys.size(), null));
+        this.errors = new ArrayList<Exception>(Collections.<Exception>nCopies(keys.size(), null));
+    }
+
+    /**
+     * Returns the number of items in the batch
+     * @return the number of input keys
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the input key (bundle id or href) of the item at the given position
+     * @param index the position of the item in the input
+     * @return the key for the item
+     */
+    public String getKey(int index) {
+        return keys.get(index);
+    }
+
+    /**
+     * Returns the value of the item at the given position
+     * @param index the position of the item in the input
+     * @return the value, or null if the item failed
+     */
+    public synchronized T get(int index) {
+        return values.get(index);
+    }
+
+    /**
+     * Returns the exception thrown for the item at the given position
+     * @param index the position of the item in the input
+     * @return the exception, or null if the item succeeded
+     */
+    public synchronized Exception getError(int index) {
+        return errors.get(index);
+    }
+
+    /**
+     * Determine if the item at the given position succeeded
+     * @param index the position of the item in the input
+     * @return true if the item succeeded
+     */
+    public synchronized boolean isSuccess(int index) {
+        return errors.get(index) == null;
+    }
+
+    /**
+     * Determine if any item in the batch failed
+     * @return true if at least one item failed
+     */
+    public synchronized boolean hasFailures() {
+        for(Exception error : errors) {
+            if(error != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the values of all successful items, in input order
+     * @return a List of the successful values
+     */
+    public synchronized List<T> getSuccesses() {
+        List<T> successes = new ArrayList<T>();
+        for(int i=0;i<keys.size();i++) {
+            if(errors.get(i) == null) {
+                successes.add(values.get(i));
+            }
+        }
+        return successes;
+    }
+
+    /**
+     * Returns the exceptions of all failed items keyed by input key, in input order
+     * @return a Map of input key to exception for every failed item
+     */
+    public synchronized Map<String,Exception> getFailures() {
+        Map<String,Exception> failures = new LinkedHashMap<String,Exception>();
+        for(int i=0;i<keys.size();i++) {
+            if(errors.get(i) != null) {
+                failures.put(keys.get(i), errors.get(i));
+            }
+        }
+        return failures;
+    }
+
+    synchronized void succeeded(int index, T value) {
+        values.set(index, value);
+    }
+
+    synchronized void failed(int index, Exception error) {
+        errors.set(index, error);
+    }
+
+    public String toString() {
+        return "BatchResult[size="+size()+", failures="+getFailures().size()+"]";
+    }
+
+    private final List<String> keys;
+    private final List<T> values;
+    private final List<Exception> errors;
+}
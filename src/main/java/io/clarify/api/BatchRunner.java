@@ -0,0 +1,91 @@
+package io.clarify.api;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs one call per key on an executor with at most a fixed number of calls in flight, collecting the
+ * outcome of every call into a BatchResult in input order. Used by the batch operations of the ClarifyClient.
+ */
+final class BatchRunner {
+
+    /**
+     * A call made once for each key of a batch
+     */
+    interface Call<T> {
+        T call(String key) throws Exception;
+    }
+
+    private BatchRunner() {
+    }
+
+    /**
+     * Runs the call for every key and waits for all of them to finish
+     * @param keys the input keys, in order
+     * @param concurrency the maximum number of calls in flight at once
+     * @param executor the Executor on which the calls are run
+     * @param call the call to make for each key
+     * @return the BatchResult holding the value or exception of each call
+     */
+    static <T> BatchResult<T> run(List<String> keys, int concurrency, Executor executor, final Call<T> call) {
+        if(concurrency < 1) { throw new RuntimeException("concurrency must be at least 1"); }
+        final BatchResult<T> result = new BatchResult<T>(keys);
+        final Semaphore permits = new Semaphore(concurrency);
+        final CountDownLatch done = new CountDownLatch(keys.size());
+        boolean interrupted = false;
+
+        for(int i=0;i<keys.size();i++) {
+            final int index = i;
+            final String key = keys.get(i);
+            if(!interrupted) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if(interrupted) {
+                // stop submitting; the remaining items are reported as failed
+                result.failed(index, new InterruptedIOException("batch interrupted before "+key+" was submitted"));
+                done.countDown();
+                continue;
+            }
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            result.succeeded(index, call.call(key));
+                        } catch (Exception e) {
+                            result.failed(index, e);
+                        } finally {
+                            permits.release();
+                            done.countDown();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                result.failed(index, e);
+                permits.release();
+                done.countDown();
+            }
+        }
+
+        while(true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                // calls already in flight are allowed to finish so that every item has an outcome
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+package io.clarify.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import us.monoid.json.JSONArray;
+import us.monoid.json.JSONException;
+import us.monoid.json.JSONObject;
+import us.monoid.web.JSONResource;
+
+/**
+ * A Resty JSONResource backed by an in-memory response body rather than a live URLConnection. This allows
+ * responses received through any ClarifyTransport to be navigated with the Resty JSON path API.
+ *
+ * The body is parsed on first access. Unlike JSONResource, parsing is synchronized, so a response may be
+ * read from several threads, for example by a PageIterator prefetching the next page.
+ */
+class BufferedJSONResource extends JSONResource {
+
+    BufferedJSONResource(byte[] content) {
+        super();
+        this.inputStream = new ByteArrayInputStream(content);
+    }
+
+    public synchronized JSONObject object() throws IOException, JSONException {
+        return super.object();
+    }
+
+    public synchronized JSONArray array() throws IOException, JSONException {
+        return super.array();
+    }
+
+}
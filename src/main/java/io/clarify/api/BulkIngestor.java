@@ -0,0 +1,311 @@
+package io.clarify.api;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Ingests a large manifest of media into Clarify. Each IngestRecord goes through the same pipeline: create the
+ * Bundle, add its Tracks in order, then store its Metadata. Every write is a single round trip, as the models
+ * are built from the write responses (ResponseMode.RESPONSE) instead of being re-fetched. Records run in parallel
+ * on the client's executor with at most getConcurrency() in flight, while records are read from the manifest
+ * only as fast as they are processed, so the manifest is never held in memory.
+ *
+ * When given a checkpoint file, the ingestor logs every step of every record in it. Running the same manifest
+ * again skips the completed records and continues the others from their last completed step. A step whose
+ * request was sent but whose completion was not logged, because the run was killed or the response was lost, is
+ * sent again. The Idempotency-Key of each create and track add is logged before the request is sent and sent
+ * again with the repeated request, so a Bundle or Track is only created once if the API honors Idempotency-Key;
+ * otherwise such a step can leave a duplicate behind. The ingestor does not look for an existing Bundle before
+ * repeating a create, as the API has no lookup by a caller-supplied key.
+ *
+ * Example:
+ *
+ * BulkIngestor ingestor = new BulkIngestor(client, new File("ingest.checkpoint"));
+ * ingestor.setConcurrency(16);
+ * IngestResult result = ingestor.ingest(new File("manifest.jsonl"));
+ */
+public class BulkIngestor {
+
+    /**
+     * Creates an ingestor without a checkpoint; an interrupted run cannot be resumed
+     * @param client the ClarifyClient used for the API calls
+     */
+    public BulkIngestor(ClarifyClient client) {
+        this(client, null);
+    }
+
+    /**
+     * Creates an ingestor logging its progress to the given checkpoint file
+     * @param client the ClarifyClient used for the API calls
+     * @param checkpoint the checkpoint file, created if it does not exist, or null to run without a checkpoint
+     */
+    public BulkIngestor(ClarifyClient client, File checkpoint) {
+        if(client == null) { throw new RuntimeException("client cannot be null"); }
+        this.client = client;
+        this.checkpointFile = checkpoint;
+        this.concurrency = client.getBatchConcurrency();
+    }
+
+    /**
+     * Returns the maximum number of records processed at once
+     * @return the concurrency limit, by default the batch concurrency of the client
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the maximum number of records processed at once. Each record has at most one request in flight.
+     * @param concurrency the concurrency limit
+     */
+    public void setConcurrency(int concurrency) {
+        if(concurrency < 1) { throw new RuntimeException("concurrency must be at least 1"); }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Ingests the records of a JSON lines manifest, one record per line in the format read by
+     * IngestRecord.parse(). Blank lines and lines starting with # are ignored. A line that cannot be parsed
+     * is reported as a failure keyed by its line number.
+     * @param manifest the manifest file, encoded in UTF-8
+     * @return the IngestResult of the run
+     * @throws IOException if the manifest or the checkpoint cannot be read or written
+     */
+    public IngestResult ingest(File manifest) throws IOException {
+        if(manifest == null) { throw new RuntimeException("manifest cannot be null"); }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), UTF8));
+        try {
+            return run(new ManifestReader(reader));
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Ingests the records of an iterator, pulling records only as fast as they are processed
+     * @param records the records to ingest
+     * @return the IngestResult of the run
+     * @throws IOException if the checkpoint cannot be read or written
+     */
+    public IngestResult ingest(Iterator<IngestRecord> records) throws IOException {
+        if(records == null) { throw new RuntimeException("records cannot be null"); }
+        return run(new RecordSource(records));
+    }
+
+    /**
+     * Ingests the records of an Iterable, such as a List
+     * @param records the records to ingest
+     * @return the IngestResult of the run
+     * @throws IOException if the checkpoint cannot be read or written
+     */
+    public IngestResult ingest(Iterable<IngestRecord> records) throws IOException {
+        if(records == null) { throw new RuntimeException("records cannot be null"); }
+        return ingest(records.iterator());
+    }
+
+    private IngestResult run(Source source) throws IOException {
+        final IngestCheckpoint checkpoint = (checkpointFile == null) ? null : new IngestCheckpoint(checkpointFile);
+        final IngestResult result = new IngestResult();
+        final int limit = concurrency;
+        final Semaphore permits = new Semaphore(limit);
+        Executor executor = client.getExecutor();
+        Set<String> seen = new HashSet<String>();
+        boolean interrupted = false;
+
+        try {
+            while(!interrupted) {
+                final IngestRecord record;
+                try {
+                    record = source.next();
+                } catch (RuntimeException e) {
+                    result.failed(source.position(), e);
+                    continue;
+                }
+                if(record == null) {
+                    break;
+                }
+                final String key = record.getKey();
+                if(!seen.add(key)) {
+                    result.failed(source.position(), new RuntimeException("duplicate record key "+key));
+                    continue;
+                }
+                IngestCheckpoint.Progress progress = (checkpoint == null) ? null : checkpoint.get(key);
+                if(progress != null && progress.done) {
+                    result.skipped(key, progress.bundleId);
+                    continue;
+                }
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    break;
+                }
+                try {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                process(record, key, checkpoint, result);
+                            } catch (Exception e) {
+                                result.failed(key, e);
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    result.failed(key, e);
+                    permits.release();
+                }
+            }
+        } finally {
+            // let the records in flight finish so that each of them is recorded in the checkpoint
+            while(true) {
+                try {
+                    permits.acquire(limit);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if(checkpoint != null) {
+                checkpoint.close();
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("ingestion interrupted; run again with the same checkpoint to resume");
+        }
+        return result;
+    }
+
+    /*
+     * Runs the remaining steps of one record
+     */
+    private void process(IngestRecord record, String key, IngestCheckpoint checkpoint, IngestResult result) throws IOException {
+        IngestCheckpoint.Progress progress = (checkpoint == null) ? null : checkpoint.get(key);
+        String bundleId = (progress == null) ? null : progress.bundleId;
+        String idempotencyKey = (progress == null) ? null : progress.idempotencyKey;
+        boolean resumed = (bundleId != null);
+
+        if(bundleId == null) {
+            if(idempotencyKey == null) {
+                idempotencyKey = UUID.randomUUID().toString();
+                if(checkpoint != null) {
+                    checkpoint.createPending(key, idempotencyKey);
+                }
+            }
+            Bundle bundle = client.createBundle(record.getName(), record.getMediaURI(),
+                    new HashMap<String,String>(record.getFields()), ResponseMode.RESPONSE, idempotencyKey);
+            bundleId = bundle.getId();
+            if(checkpoint != null) {
+                checkpoint.created(key, bundleId);
+            }
+        }
+
+        int tracksAdded = (progress == null) ? 0 : progress.tracksAdded;
+        for(int i=tracksAdded;i<record.getTracks().size();i++) {
+            // derived from the create key, so that a repeated add carries the key of the lost one
+            String trackKey = (idempotencyKey == null) ? null : idempotencyKey+"-track-"+i;
+            client.addTrackToBundle(bundleId, record.getTracks().get(i), ResponseMode.RESPONSE, trackKey);
+            if(checkpoint != null) {
+                checkpoint.trackAdded(key, i);
+            }
+        }
+
+        boolean metadataStored = (progress != null) && progress.metadataStored;
+        if(record.getMetadata() != null && !metadataStored) {
+            client.updateMetadata(bundleId, record.getMetadata(), ResponseMode.RESPONSE);
+            if(checkpoint != null) {
+                checkpoint.metadataStored(key);
+            }
+        }
+
+        if(checkpoint != null) {
+            checkpoint.done(key);
+        }
+        result.completed(key, bundleId, resumed);
+    }
+
+    /*
+     * Supplies the records of a run, one at a time
+     */
+    private interface Source {
+        /**
+         * @return the next record, or null at the end
+         * @throws RuntimeException if the next record cannot be read; the source skips it
+         */
+        IngestRecord next() throws IOException;
+
+        /**
+         * @return a description of the position of the record last read, used to report a record that fails to parse
+         */
+        String position();
+    }
+
+    private static class RecordSource implements Source {
+        RecordSource(Iterator<IngestRecord> records) {
+            this.records = records;
+        }
+
+        public IngestRecord next() {
+            index++;
+            if(!records.hasNext()) {
+                return null;
+            }
+            IngestRecord record = records.next();
+            if(record == null) { throw new RuntimeException("record cannot be null"); }
+            return record;
+        }
+
+        public String position() {
+            return "record "+index;
+        }
+
+        private final Iterator<IngestRecord> records;
+        private int index;
+    }
+
+    private static class ManifestReader implements Source {
+        ManifestReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        public IngestRecord next() throws IOException {
+            String line;
+            while((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if(trimmed.length() > 0 && !trimmed.startsWith("#")) {
+                    return IngestRecord.parse(trimmed);
+                }
+            }
+            return null;
+        }
+
+        public String position() {
+            return "line "+lineNumber;
+        }
+
+        private final BufferedReader reader;
+        private int lineNumber;
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ClarifyClient client;
+    private final File checkpointFile;
+    private volatile int concurrency;
+}
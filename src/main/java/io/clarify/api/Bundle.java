@@ -2,9 +2,12 @@ package io.clarify.api;
 
 import java.io.IOException;
 import java.net.URI;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
+import us.monoid.json.JSONObject;
+
 public class Bundle extends ClarifyModel {
     public Bundle(ClarifyClient client, ClarifyResponse response) {
         super(client,response);
@@ -16,11 +19,60 @@ public class Bundle extends ClarifyModel {
      * @throws RuntimeException containing the nested exception if the lookup failed
      */
     public String getId() {
-        try {
-            return (String)response.getJSONResource().get("id");
-        } catch (Exception e) {
-           throw new RuntimeException(e);
+        String id = this.id;
+        if(id == null) {
+            id = (String)getField("id");
+            this.id = id;
         }
+        return id;
+    }
+
+    /**
+     * Returns the name of the Bundle
+     * @return the name, or null if not set
+     */
+    public String getName() {
+        return fields().name;
+    }
+
+    /**
+     * Returns the external id of the Bundle, as supplied when the Bundle was created
+     * @return the external id, or null if not set
+     */
+    public String getExternalId() {
+        return fields().externalId;
+    }
+
+    /**
+     * Returns the URL notified when processing of the Bundle completes
+     * @return the notify URL, or null if not set
+     */
+    public URI getNotifyUrl() {
+        return fields().notifyUrl;
+    }
+
+    /**
+     * Returns the version of the Bundle, incremented on every update
+     * @return the version, or null if not present in the response
+     */
+    public Integer getVersion() {
+        return fields().version;
+    }
+
+    /**
+     * Returns the time the Bundle was created
+     * @return the creation time, or null if not present in the response
+     */
+    public Instant getCreated() {
+        return fields().created;
+    }
+
+    /**
+     * Returns the time the Bundle was last updated
+     * @return the update time, or null if not present in the response
+     */
+    public Instant getUpdated() {
+        return fields().updated;
     }
     
     /**
@@ -47,12 +99,17 @@ public class Bundle extends ClarifyModel {
     }
 
     /**
-     * Returns the list of Tracks associated to this media Bundle
+     * Returns the list of Tracks associated to this media Bundle. If the Bundle was retrieved with Expand.TRACKS,
+     * the list retrieved with it is returned without another API call.
      * @return a BundleTrackList with the list of tracks and related details
      * @throws IOException if a failure occurred during the API,  
      * typically a 4xx HTTP error code + JSON payload with the error message and details
      */
     public BundleTrackList listTracks() throws IOException {
+        BundleTrackList tracks = expandedTracks;
+        if(tracks != null) {
+            return tracks;
+        }
         return client.listTracksForBundle(getId());
     }
 
@@ -84,13 +141,73 @@ public class Bundle extends ClarifyModel {
     
     /**
      * Returns this media Bundle's Metadata class, with details on the bundle and any 
-     * attached user data (if available)
+     * attached user data (if available). If the Bundle was retrieved with Expand.METADATA, the Metadata retrieved
+     * with it is returned without another API call.
      * @return a Metadata instance for the media bundle
      * @throws IOException if a failure occurred during the API,  
      * typically a 4xx HTTP error code + JSON payload with the error message and details
      */
     public BundleMetadata getMetadata() throws IOException {
+        BundleMetadata metadata = expandedMetadata;
+        if(metadata != null) {
+            return metadata;
+        }
         return client.findMetadata(getId());
     }
-    
+
+    /**
+     * Determine if a resource of this Bundle was retrieved together with it
+     * @param expand the resource
+     * @return true if the resource is returned without another API call
+     */
+    public boolean isExpanded(Expand expand) {
+        if(expand == null) { throw new RuntimeException("expand cannot be null"); }
+        return (expand == Expand.METADATA) ? expandedMetadata != null : expandedTracks != null;
+    }
+
+    void expandMetadata(BundleMetadata metadata) {
+        this.expandedMetadata = metadata;
+    }
+
+    void expandTracks(BundleTrackList tracks) {
+        this.expandedTracks = tracks;
+    }
+
+    /*
+     * Decodes the typed fields from the full representation on first use
+     */
+    private Fields fields() {
+        Fields fields = this.fields;
+        if(fields == null) {
+            fields = new Fields(getJSON());
+            this.fields = fields;
+        }
+        return fields;
+    }
+
+    /*
+     * The typed fields of a Bundle, decoded once from the JSON payload
+     */
+    private static final class Fields {
+        Fields(JSONObject json) {
+            this.name = stringField(json, "name");
+            this.externalId = stringField(json, "external_id");
+            this.notifyUrl = uriField(json, "notify_url");
+            this.version = intField(json, "version");
+            this.created = instantField(json, "created");
+            this.updated = instantField(json, "updated");
+        }
+
+        final String name;
+        final String externalId;
+        final URI notifyUrl;
+        final Integer version;
+        final Instant created;
+        final Instant updated;
+    }
+
+    private volatile String id;
+    private volatile Fields fields;
+    private volatile BundleMetadata expandedMetadata;
+    private volatile BundleTrackList expandedTracks;
 }
@@ -0,0 +1,269 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import us.monoid.json.JSONArray;
+import us.monoid.json.JSONObject;
+
+/**
+ * Retrieves Bundles together with their expanded resources for a ClarifyClient. A request asks the API to embed
+ * the resources with the embed parameter; the resources missing from the response are then fetched concurrently
+ * in a single batch, so that a Bundle, or a page of Bundles, is populated in one logical round trip whether or
+ * not the API embedded them.
+ *
+ * Once a response embeds none of the requested resources, which suggests that the API ignores the embed
+ * parameter, later calls to find() fetch the Bundle and its resources concurrently from the start instead of
+ * waiting for the Bundle first. The embed parameter is tried again after REPROBE_NANOS, so that a single
+ * response without _embedded does not disable embedding for the life of the client.
+ */
+final class BundleExpander {
+
+    BundleExpander(ClarifyClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Returns the set of resources to expand
+     * @param expand the resources named by the caller; null elements are ignored
+     * @return a new EnumSet of the named resources
+     */
+    static Set<Expand> toSet(Expand[] expand) {
+        Set<Expand> set = EnumSet.noneOf(Expand.class);
+        if(expand != null) {
+            for(Expand e : expand) {
+                if(e != null) {
+                    set.add(e);
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Returns the value of the embed parameter asking for the given resources
+     * @param expand the resources of each Bundle to embed
+     * @param items true to embed the Bundles of a page as well
+     * @return the comma separated embed value, which is empty if nothing is embedded
+     */
+    static String embed(Set<Expand> expand, boolean items) {
+        StringBuilder embed = new StringBuilder(items ? "items" : "");
+        for(Expand e : expand) {
+            if(embed.length() > 0) {
+                embed.append(',');
+            }
+            embed.append(e.getEmbed());
+        }
+        return embed.toString();
+    }
+
+    /**
+     * Retrieves a Bundle with the given resources expanded
+     * @param bundleId the GUID of the Bundle
+     * @param expand the resources to expand
+     * @return the Bundle with its resources
+     * @throws IOException the first failure of the Bundle or of one of its resources
+     */
+    Bundle find(String bundleId, Set<Expand> expand) throws IOException {
+        if(System.nanoTime() - reprobeAt < 0) {
+            Expansion expansion = new Expansion(expand);
+            expansion.add(bundleId, null);
+            return expansion.run().get(0);
+        }
+        String url = client.buildPathFromResourcePath("/bundles/"+bundleId+"?embed="+embed(expand, false));
+        ClarifyResponse response = client.send("findBundle", "GET", url);
+        if(!embedsAny(response.getJSONObject(), expand)) {
+            reprobeAt = System.nanoTime() + REPROBE_NANOS;
+        }
+        Expansion expansion = new Expansion(expand);
+        expansion.add(bundleId, new Bundle(client, response));
+        return expansion.run().get(0);
+    }
+
+    /**
+     * Returns the Bundles of a page requested with embed=items, with the given resources expanded. Bundles
+     * missing from _embedded.items are fetched from the hrefs of _links.items.
+     * @param page the List Bundles or Search Bundles page
+     * @param expand the resources to expand
+     * @return the Bundles of the page, in the order of the page
+     * @throws IOException the first failure of a Bundle or of one of its resources
+     */
+    List<Bundle> expandPage(ClarifyResponse page, Set<Expand> expand) throws IOException {
+        JSONObject json = page.getJSONObject();
+        JSONObject embedded = json.optJSONObject("_embedded");
+        JSONArray items = (embedded == null) ? null : embedded.optJSONArray("items");
+        Expansion expansion = new Expansion(expand);
+        if(items != null) {
+            for(int i=0;i<items.length();i++) {
+                JSONObject item = items.optJSONObject(i);
+                if(item != null) {
+                    expansion.add(ClarifyModel.stringField(item, "id"), new Bundle(client, response(item)));
+                }
+            }
+            return expansion.run();
+        }
+
+        JSONObject links = json.optJSONObject("_links");
+        JSONArray linkItems = (links == null) ? null : links.optJSONArray("items");
+        for(int i=0;linkItems != null && i<linkItems.length();i++) {
+            JSONObject link = linkItems.optJSONObject(i);
+            String id = (link == null) ? null : idFromHref(ClarifyModel.stringField(link, "href"));
+            if(id != null) {
+                expansion.add(id, null);
+            }
+        }
+        return expansion.run();
+    }
+
+    /*
+     * Returns true if the Bundle has at least one of the requested resources in its _embedded
+     */
+    private static boolean embedsAny(JSONObject bundle, Set<Expand> expand) {
+        JSONObject embedded = bundle.optJSONObject("_embedded");
+        if(embedded == null) {
+            return false;
+        }
+        for(Expand e : expand) {
+            if(embedded.optJSONObject(e.getEmbed()) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Wraps an embedded resource in a response of its own, as if it had been fetched
+     */
+    private static ClarifyResponse response(JSONObject resource) {
+        return new ClarifyResponse(200, new HashMap<String,List<String>>(), resource.toString().getBytes(UTF8));
+    }
+
+    /*
+     * Returns the last path segment of an href such as /v1/bundles/{id}
+     */
+    private static String idFromHref(String href) {
+        if(href == null) {
+            return null;
+        }
+        int end = href.indexOf('?');
+        String path = (end < 0) ? href : href.substring(0, end);
+        int start = path.lastIndexOf('/');
+        return (start < 0 || start == path.length() - 1) ? null : path.substring(start + 1);
+    }
+
+    /*
+     * The Bundles of one call and the resources still to fetch for them. Each fetch is a key of a single batch:
+     * the index of the Bundle, a colon and the kind of resource.
+     */
+    private final class Expansion {
+        Expansion(Set<Expand> expand) {
+            this.expand = expand;
+        }
+
+        /*
+         * Adds a Bundle, attaching the resources embedded in it, or a Bundle still to fetch if bundle is null
+         */
+        void add(String bundleId, Bundle bundle) {
+            int index = ids.size();
+            ids.add(bundleId);
+            bundles.add(bundle);
+            if(bundle == null) {
+                fetches.add(index+":"+BUNDLE);
+            }
+            JSONObject embedded = (bundle == null) ? null : bundle.getJSON().optJSONObject("_embedded");
+            for(Expand e : expand) {
+                JSONObject resource = (embedded == null) ? null : embedded.optJSONObject(e.getEmbed());
+                if(resource != null) {
+                    attach(bundle, e, response(resource));
+                } else {
+                    fetches.add(index+":"+e.getEmbed());
+                }
+            }
+        }
+
+        /*
+         * Fetches the missing Bundles and resources concurrently and attaches them
+         */
+        List<Bundle> run() throws IOException {
+            if(!fetches.isEmpty()) {
+                BatchResult<ClarifyModel> fetched = BatchRunner.run(fetches, client.getBatchConcurrency(),
+                        client.getExecutor(), new BatchRunner.Call<ClarifyModel>() {
+                            public ClarifyModel call(String key) throws Exception {
+                                return fetch(key);
+                            }
+                        });
+                for(int i=0;i<fetched.size();i++) {
+                    Exception error = fetched.getError(i);
+                    if(error instanceof IOException) {
+                        throw (IOException)error;
+                    } else if(error instanceof RuntimeException) {
+                        throw (RuntimeException)error;
+                    } else if(error != null) {
+                        throw new IOException(error);
+                    }
+                }
+                // the fetched Bundles first, so that the resources fetched with them have a Bundle to attach to
+                for(int i=0;i<fetched.size();i++) {
+                    if(fetched.get(i) instanceof Bundle) {
+                        bundles.set(index(fetched.getKey(i)), (Bundle)fetched.get(i));
+                    }
+                }
+                for(int i=0;i<fetched.size();i++) {
+                    Bundle bundle = bundles.get(index(fetched.getKey(i)));
+                    if(fetched.get(i) instanceof BundleMetadata) {
+                        bundle.expandMetadata((BundleMetadata)fetched.get(i));
+                    } else if(fetched.get(i) instanceof BundleTrackList) {
+                        bundle.expandTracks((BundleTrackList)fetched.get(i));
+                    }
+                }
+            }
+            return Collections.unmodifiableList(bundles);
+        }
+
+        private ClarifyModel fetch(String key) throws IOException {
+            String bundleId = ids.get(index(key));
+            String kind = key.substring(key.indexOf(':') + 1);
+            if(BUNDLE.equals(kind)) {
+                return client.findBundle(bundleId);
+            } else if(Expand.METADATA.getEmbed().equals(kind)) {
+                return client.findMetadata(bundleId);
+            } else {
+                return client.listTracksForBundle(bundleId);
+            }
+        }
+
+        private int index(String key) {
+            return Integer.parseInt(key.substring(0, key.indexOf(':')));
+        }
+
+        private void attach(Bundle bundle, Expand e, ClarifyResponse response) {
+            if(e == Expand.METADATA) {
+                bundle.expandMetadata(new BundleMetadata(client, response));
+            } else {
+                bundle.expandTracks(new BundleTrackList(client, response));
+            }
+        }
+
+
+        private final Set<Expand> expand;
+        private final List<String> ids = new ArrayList<String>();
+        private final List<Bundle> bundles = new ArrayList<Bundle>();
+        private final List<String> fetches = new ArrayList<String>();
+    }
+
+    private static final String BUNDLE = "bundle";
+    private static final long REPROBE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ClarifyClient client;
+    // the System.nanoTime() until which find() does not ask the API to embed, set when a Bundle came back without
+    // any of the resources it was asked to embed
+    private volatile long reprobeAt = System.nanoTime();
+}
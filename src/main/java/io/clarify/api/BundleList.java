@@ -1,10 +1,15 @@
 package io.clarify.api;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
+import us.monoid.json.JSONArray;
 import us.monoid.json.JSONException;
 import us.monoid.json.JSONObject;
-import us.monoid.web.JSONResource;
 
 /**
  * Represents a List Bundles Clarify API response type, allowing the caller to obtain the raw list of links
@@ -16,6 +21,24 @@ public class BundleList extends ClarifyPaginatedModel {
         super(client,response);
     }
     
+    /**
+     * Returns the Bundles of this page with their expanded resources, for a page requested with
+     * ClarifyClient.listBundlesExpanded(Expand...) or reached from such a page with nextPage()
+     * @return the Bundles in the order of _links.items, or an empty List if the page was requested without expansion
+     */
+    public List<Bundle> getBundles() {
+        List<Bundle> bundles = this.bundles;
+        return (bundles == null) ? Collections.<Bundle>emptyList() : bundles;
+    }
+
+    /*
+     * Sets the Bundles of a page requested with expansion, so that its next page is expanded the same way
+     */
+    void expanded(List<Bundle> bundles, Set<Expand> expand) {
+        this.bundles = bundles;
+        this.expand = expand;
+    }
+
     /**
      * Attempt to request the next page using the next link from the current page
      * @return a BundleList representing the next page, or null if there are no other pages
@@ -23,19 +46,67 @@ public class BundleList extends ClarifyPaginatedModel {
      * @throws IOException if a network failure occurred while fetching the next page
      */
     public BundleList nextPage() throws JSONException, IOException {
-        if(!hasNextPage()) {
+        ClarifyResponse resp = fetchNextPage();
+        if(resp == null) {
             return null;
         }
-        
-        JSONObject nextLink = nextLink();
-        if(nextLink != null) {
-            String href = (String)nextLink.get("href");
-            JSONResource jsonResource = 
-                    client.json(client.buildPathFromHref(href));
-            ClarifyResponse resp = new ClarifyResponse(jsonResource);
-            BundleList list = new BundleList(client, resp);
-            return list;
+        BundleList list = new BundleList(client, resp);
+        Set<Expand> expand = this.expand;
+        if(expand != null) {
+            list.expanded(client.getExpander().expandPage(resp, expand), expand);
         }
-        return null;
+        return list;
     }
+
+    /**
+     * Attempt to request the next page using the next link from the current page, passing its items to the
+     * handler while the response is read instead of keeping them in the returned page
+     * @param handler the PageItemHandler receiving the items of the next page
+     * @return a BundleList representing the next page, or null if there are no other pages
+     * @throws JSONException if the href for the next link could not be obtained for some reason
+     * @throws IOException if a network failure occurred while fetching the next page, or if the handler threw an IOException
+     */
+    public BundleList nextPage(PageItemHandler handler) throws JSONException, IOException {
+        ClarifyResponse resp = fetchNextPage(handler);
+        return (resp == null) ? null : new BundleList(client, resp);
+    }
+
+    /**
+     * Retrieves the full Bundle for every item on this page concurrently, using the client's batch concurrency limit
+     * @return a BatchResult holding the Bundles in the same order as the _links.items of this page
+     * @throws JSONException if the href of an item could not be obtained
+     */
+    public BatchResult<Bundle> hydrate() throws JSONException {
+        return hydrate(client.getBatchConcurrency());
+    }
+
+    /**
+     * Retrieves the full Bundle for every item on this page concurrently, with at most the given number of 
+     * requests in flight at once
+     * @param concurrency the maximum number of requests in flight at once
+     * @return a BatchResult holding the Bundles in the same order as the _links.items of this page
+     * @throws JSONException if the href of an item could not be obtained
+     */
+    public BatchResult<Bundle> hydrate(int concurrency) throws JSONException {
+        JSONArray items = getLinkItems();
+        List<String> hrefs = new ArrayList<String>(items.length());
+        for(int i=0;i<items.length();i++) {
+            hrefs.add((String)((JSONObject)items.get(i)).get("href"));
+        }
+        return client.findBundles(hrefs, concurrency);
+    }
+
+    /**
+     * Returns an iterator over this page and all following pages, fetching up to prefetch pages ahead
+     * of the caller on the given executor
+     * @param prefetch the number of pages to fetch ahead of the page being processed
+     * @param executor the Executor on which pages are fetched
+     * @return a PageIterator starting with this page
+     */
+    public PageIterator<BundleList> pageIterator(int prefetch, Executor executor) {
+        return new PageIterator<BundleList>(this, prefetch, executor);
+    }
+
+    private volatile List<Bundle> bundles;
+    private volatile Set<Expand> expand;
 }
@@ -1,6 +1,9 @@
 package io.clarify.api;
 
 import java.io.IOException;
+import java.time.Instant;
+
+import us.monoid.json.JSONObject;
 
 /**
  * Provides details on the stored Metadata for a specific media Bundle. Metadata may also contain user data within
@@ -41,8 +44,76 @@ public class BundleMetadata extends ClarifyModel {
      * Helper to return the bundle_id from the JSON payload
      */
     public String getBundleId() {
-        return (String)response.getJSONValue("bundle_id");
+        String bundleId = this.bundleId;
+        if(bundleId == null) {
+            bundleId = (String)getField("bundle_id");
+            this.bundleId = bundleId;
+        }
+        return bundleId;
+    }
+
+    /**
+     * Returns the user-defined data stored with the Bundle
+     * @return a us.monoid.json.JSONObject with the data, or null if not present in the response
+     */
+    public JSONObject getData() {
+        return fields().data;
+    }
+
+    /**
+     * Returns the version of the Metadata, incremented on every update
+     * @return the version, or null if not present in the response
+     */
+    public Integer getVersion() {
+        return fields().version;
+    }
+
+    /**
+     * Returns the time the Metadata was created
+     * @return the creation time, or null if not present in the response
+     */
+    public Instant getCreated() {
+        return fields().created;
+    }
+
+    /**
+     * Returns the time the Metadata was last updated
+     * @return the update time, or null if not present in the response
+     */
+    public Instant getUpdated() {
+        return fields().updated;
+    }
+
+    /*
+     * Decodes the typed fields from the full representation on first use
+     */
+    private Fields fields() {
+        Fields fields = this.fields;
+        if(fields == null) {
+            fields = new Fields(getJSON());
+            this.fields = fields;
+        }
+        return fields;
+    }
+
+    /*
+     * The typed fields of a Metadata resource, decoded once from the JSON payload
+     */
+    private static final class Fields {
+        Fields(JSONObject json) {
+            this.data = json.optJSONObject("data");
+            this.version = intField(json, "version");
+            this.created = instantField(json, "created");
+            this.updated = instantField(json, "updated");
+        }
+
+        final JSONObject data;
+        final Integer version;
+        final Instant created;
+        final Instant updated;
     }
 
     protected ClarifyClient client;
+    private volatile String bundleId;
+    private volatile Fields fields;
 }
@@ -0,0 +1,341 @@
+package io.clarify.api;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import us.monoid.json.JSONArray;
+import us.monoid.json.JSONObject;
+
+/**
+ * A local copy of the Bundles of an account, with their Tracks and Metadata, kept in a single file. Reads are
+ * served from the file without any API call, and sync() brings the copy up to date by fetching only the Bundles
+ * that changed since the previous sync.
+ *
+ * A sync walks the List Bundles pages with the Bundles embedded, and compares the version and updated fields of
+ * each Bundle with those of its copy. Only new or changed Bundles are fetched, with their Tracks and Metadata
+ * embedded, using the batch concurrency of the client; Bundles missing from the listing are removed. Copies are
+ * written in an order that makes an interrupted sync safe: a Bundle is only marked up to date once its Tracks and
+ * Metadata are stored, so the next sync fetches it again.
+ *
+ * A change to the Tracks or Metadata of a Bundle is seen when it changes the Bundle's version or updated field;
+ * use refresh() to fetch one Bundle unconditionally.
+ *
+ * Example:
+ *
+ * BundleMirror mirror = new BundleMirror(client, new File("bundles.mirror"));
+ * mirror.sync();
+ * for(String bundleId : mirror.getBundleIds()) {
+ *     BundleMetadata metadata = mirror.getMetadata(bundleId);
+ *     ...
+ * }
+ */
+public class BundleMirror implements Closeable {
+
+    /**
+     * The number of Bundles requested per List Bundles page when none is given
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Opens the mirror stored in the given file, creating the file if it does not exist
+     * @param client the ClarifyClient used to sync the mirror and attached to the models it returns
+     * @param file the mirror file
+     * @throws IOException if the file cannot be read or opened for writing
+     */
+    public BundleMirror(ClarifyClient client, File file) throws IOException {
+        if(client == null) { throw new RuntimeException("client cannot be null"); }
+        if(file == null) { throw new RuntimeException("file cannot be null"); }
+        this.client = client;
+        this.log = new MirrorLog(file);
+    }
+
+    /**
+     * Sets the number of Bundles requested per List Bundles page
+     * @param pageSize the page size
+     */
+    public void setPageSize(int pageSize) {
+        if(pageSize < 1) { throw new RuntimeException("pageSize must be at least 1"); }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Brings the mirror up to date with the API, fetching only the Bundles that were added or changed since the
+     * previous sync and removing the Bundles that were deleted
+     * @return the MirrorSyncResult of the sync
+     * @throws IOException if a List Bundles page could not be read, or if the mirror file could not be written.
+     * The Bundles synced before the failure are kept, and none are removed.
+     */
+    public synchronized MirrorSyncResult sync() throws IOException {
+        MirrorSyncResult result = new MirrorSyncResult();
+        Set<String> seen = new HashSet<String>();
+        String url = client.buildPathFromResourcePath("/bundles?embed=items&limit="+pageSize);
+        while(url != null) {
+            JSONObject page = client.poll("syncBundles", url).getJSONObject();
+            result.page();
+
+            // the Bundles of the page whose copy is missing or out of date, with the signature seen in the listing
+            Map<String,String> changed = new HashMap<String,String>();
+            JSONObject embedded = page.optJSONObject("_embedded");
+            JSONArray bundles = (embedded == null) ? null : embedded.optJSONArray("items");
+            if(bundles != null) {
+                for(int i=0;i<bundles.length();i++) {
+                    JSONObject bundle = bundles.optJSONObject(i);
+                    String id = (bundle == null) ? null : ClarifyModel.stringField(bundle, "id");
+                    if(id == null) {
+                        continue;
+                    }
+                    seen.add(id);
+                    String signature = signature(bundle);
+                    if(signature != null && signature.equals(storedSignature(id))) {
+                        result.unchanged();
+                    } else {
+                        changed.put(id, signature);
+                    }
+                }
+            } else {
+                // the listing only links to the Bundles; each is compared once fetched
+                JSONObject links = page.optJSONObject("_links");
+                JSONArray items = (links == null) ? null : links.optJSONArray("items");
+                for(int i=0;items != null && i<items.length();i++) {
+                    JSONObject item = items.optJSONObject(i);
+                    String id = (item == null) ? null : idFromHref(ClarifyModel.stringField(item, "href"));
+                    if(id != null) {
+                        seen.add(id);
+                        changed.put(id, null);
+                    }
+                }
+            }
+            fetch(changed, result);
+
+            JSONObject links = page.optJSONObject("_links");
+            JSONObject next = (links == null) ? null : links.optJSONObject("next");
+            String href = (next == null) ? null : ClarifyModel.stringField(next, "href");
+            url = (href == null) ? null : client.buildPathFromHref(href);
+        }
+
+        for(String key : log.keys(BUNDLE)) {
+            String id = key.substring(BUNDLE.length());
+            if(!seen.contains(id)) {
+                remove(id);
+                result.removed();
+            }
+        }
+        log.force();
+        if(log.needsCompaction()) {
+            log.compact();
+        }
+        return result;
+    }
+
+    /**
+     * Fetches one Bundle with its Tracks and Metadata and stores them, whether or not the Bundle changed
+     * @param bundleId the GUID of the Bundle
+     * @return the fetched Bundle
+     * @throws IOException if the Bundle could not be fetched, for example a ClarifyApiException for a deleted Bundle
+     */
+    public Bundle refresh(String bundleId) throws IOException {
+        if(bundleId == null) { throw new RuntimeException("bundleId cannot be null"); }
+        store(bundleId, null, true);
+        return getBundle(bundleId);
+    }
+
+    /**
+     * Returns the mirrored copy of a Bundle
+     * @param bundleId the GUID of the Bundle
+     * @return the Bundle, or null if the Bundle is not in the mirror
+     * @throws IOException if the mirror file cannot be read
+     */
+    public Bundle getBundle(String bundleId) throws IOException {
+        ClarifyResponse response = read(BUNDLE, bundleId);
+        return (response == null) ? null : new Bundle(client, response);
+    }
+
+    /**
+     * Returns the mirrored Tracks of a Bundle
+     * @param bundleId the GUID of the Bundle
+     * @return the BundleTrackList, or null if the Bundle is not in the mirror
+     * @throws IOException if the mirror file cannot be read
+     */
+    public BundleTrackList getTracks(String bundleId) throws IOException {
+        ClarifyResponse response = read(TRACKS, bundleId);
+        return (response == null) ? null : new BundleTrackList(client, response);
+    }
+
+    /**
+     * Returns the mirrored Metadata of a Bundle
+     * @param bundleId the GUID of the Bundle
+     * @return the BundleMetadata, or null if the Bundle is not in the mirror
+     * @throws IOException if the mirror file cannot be read
+     */
+    public BundleMetadata getMetadata(String bundleId) throws IOException {
+        ClarifyResponse response = read(METADATA, bundleId);
+        return (response == null) ? null : new BundleMetadata(client, response);
+    }
+
+    /**
+     * Returns the GUIDs of the mirrored Bundles
+     * @return a sorted, unmodifiable Set of Bundle GUIDs
+     */
+    public Set<String> getBundleIds() {
+        Set<String> ids = new TreeSet<String>();
+        for(String key : log.keys(BUNDLE)) {
+            ids.add(key.substring(BUNDLE.length()));
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Returns the number of mirrored Bundles
+     */
+    public int size() {
+        return log.keys(BUNDLE).size();
+    }
+
+    /**
+     * Closes the mirror file
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /*
+     * Fetches and stores the changed Bundles of a page concurrently
+     */
+    private void fetch(final Map<String,String> changed, final MirrorSyncResult result) {
+        if(changed.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<String>(changed.keySet());
+        BatchResult<Boolean> fetched = BatchRunner.run(ids, client.getBatchConcurrency(), client.getExecutor(),
+                new BatchRunner.Call<Boolean>() {
+                    public Boolean call(String id) throws Exception {
+                        boolean existed = log.contains(BUNDLE+id);
+                        // a Bundle listed without its fields is only stored if the fetch shows it changed
+                        boolean stored = store(id, changed.get(id), changed.get(id) != null);
+                        if(!stored) {
+                            result.unchanged();
+                        } else if(existed) {
+                            result.updated();
+                        } else {
+                            result.added();
+                        }
+                        return Boolean.valueOf(stored);
+                    }
+                });
+        for(Map.Entry<String,Exception> failure : fetched.getFailures().entrySet()) {
+            result.failed(failure.getKey(), failure.getValue());
+        }
+    }
+
+    /*
+     * Fetches a Bundle with its Tracks and Metadata and stores them, unless force is false and the fetched Bundle
+     * matches its copy. Returns true if the copy was written.
+     */
+    private boolean store(String bundleId, String listedSignature, boolean force) throws IOException {
+        ClarifyResponse response = client.poll("syncBundle", client.buildPathFromResourcePath("/bundles/"+bundleId+"?embed=tracks,metadata"));
+        JSONObject bundle = response.getJSONObject();
+        String signature = signature(bundle);
+        if(!force && signature != null && signature.equals(storedSignature(bundleId))) {
+            return false;
+        }
+
+        JSONObject embedded = bundle.optJSONObject("_embedded");
+        JSONObject tracks = (embedded == null) ? null : embedded.optJSONObject("tracks");
+        JSONObject metadata = (embedded == null) ? null : embedded.optJSONObject("metadata");
+        byte[] tracksContent = (tracks != null) ? tracks.toString().getBytes(UTF8)
+                : client.poll("syncTracks", client.buildPathFromResourcePath("/bundles/"+bundleId+"/tracks")).getResponseContent().getBytes(UTF8);
+        byte[] metadataContent = (metadata != null) ? metadata.toString().getBytes(UTF8)
+                : client.poll("syncMetadata", client.buildPathFromResourcePath("/bundles/"+bundleId+"/metadata")).getResponseContent().getBytes(UTF8);
+
+        log.put(TRACKS+bundleId, tracksContent);
+        log.put(METADATA+bundleId, metadataContent);
+        log.put(BUNDLE+bundleId, withoutEmbedded(bundle).toString().getBytes(UTF8));
+        // written last: a copy interrupted before this point is fetched again by the next sync
+        String stored = (signature != null) ? signature : listedSignature;
+        if(stored != null) {
+            log.put(SIGNATURE+bundleId, stored.getBytes(UTF8));
+        } else {
+            log.remove(SIGNATURE+bundleId);
+        }
+        return true;
+    }
+
+    private void remove(String bundleId) throws IOException {
+        log.remove(SIGNATURE+bundleId);
+        log.remove(BUNDLE+bundleId);
+        log.remove(TRACKS+bundleId);
+        log.remove(METADATA+bundleId);
+    }
+
+    private String storedSignature(String bundleId) throws IOException {
+        byte[] signature = log.get(SIGNATURE+bundleId);
+        return (signature == null) ? null : new String(signature, UTF8);
+    }
+
+    private ClarifyResponse read(String prefix, String bundleId) throws IOException {
+        if(bundleId == null) { throw new RuntimeException("bundleId cannot be null"); }
+        byte[] content = log.get(prefix+bundleId);
+        return (content == null) ? null : new ClarifyResponse(200, new HashMap<String,List<String>>(), content);
+    }
+
+    /*
+     * Identifies the state of a Bundle by its version and updated fields, or returns null if it has neither,
+     * in which case the Bundle is always fetched
+     */
+    private static String signature(JSONObject bundle) {
+        String version = ClarifyModel.stringField(bundle, "version");
+        String updated = ClarifyModel.stringField(bundle, "updated");
+        if(version == null && updated == null) {
+            return null;
+        }
+        return version+"|"+updated;
+    }
+
+    /*
+     * Copies the Bundle without its embedded resources. The response may be shared with other callers through
+     * the response cache or request coalescing, so it is never modified.
+     */
+    private static JSONObject withoutEmbedded(JSONObject bundle) {
+        List<String> names = new ArrayList<String>();
+        Iterator<String> keys = bundle.keys();
+        while(keys.hasNext()) {
+            String name = keys.next();
+            if(!"_embedded".equals(name)) {
+                names.add(name);
+            }
+        }
+        return new JSONObject(bundle, names.toArray(new String[names.size()]));
+    }
+
+    private static String idFromHref(String href) {
+        if(href == null) {
+            return null;
+        }
+        int end = href.indexOf('?');
+        String path = (end < 0) ? href : href.substring(0, end);
+        int start = path.lastIndexOf('/');
+        return (start < 0 || start == path.length() - 1) ? null : path.substring(start + 1);
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String BUNDLE = "bundle/";
+    private static final String TRACKS = "tracks/";
+    private static final String METADATA = "metadata/";
+    private static final String SIGNATURE = "signature/";
+
+    private final ClarifyClient client;
+    private final MirrorLog log;
+    private volatile int pageSize = DEFAULT_PAGE_SIZE;
+}
@@ -1,11 +1,14 @@
 package io.clarify.api;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import us.monoid.json.JSONArray;
 import us.monoid.json.JSONException;
 import us.monoid.json.JSONObject;
-import us.monoid.web.JSONResource;
 
 /**
  * Represents a Search Bundles Clarify API response type, allowing the caller to obtain the matches, terms, and scores
@@ -17,18 +20,69 @@ public class BundleSearchResults extends ClarifyPaginatedModel {
         super(client,response);
     }
 
+    /*
+     * Creates a page streamed through a decoder, whose columns replace the item_results missing from the response
+     */
+    BundleSearchResults(ClarifyClient client, ClarifyResponse response, SearchColumns.Decoder decoder) {
+        super(client,response);
+        this.columns = decoder.finish(response.getJSONObject());
+    }
+
     /**
      * Returns the item_results array from the search results that provides term results, scores, and matches
      * @return a us.monoid.json.JSONArray containing all items under the item_results field in the response
+     * @throws RuntimeException if the page has no item_results, such as a page streamed with a PageItemHandler
      */
     public JSONArray getItemResults() {
-        try {
-            return (JSONArray)response.getJSONValue("item_results");
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        JSONArray itemResults = this.itemResults;
+        if(itemResults == null) {
+            try {
+                itemResults = response.getJSONObject().getJSONArray("item_results");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            this.itemResults = itemResults;
         }
+        return itemResults;
     }
     
+    /**
+     * Returns the item_results of this page decoded into primitive columns, with the Bundle GUIDs of _links.items
+     * and the terms of search_terms. The columns are decoded once and kept with the page.
+     * @return the SearchColumns of this page
+     * @throws RuntimeException if the page has no item_results, such as a page streamed with a PageItemHandler
+     */
+    public SearchColumns getColumns() {
+        SearchColumns columns = this.columns;
+        if(columns == null) {
+            JSONObject page = getJSON();
+            if(!page.has("item_results")) {
+                throw new RuntimeException("the page has no item_results");
+            }
+            columns = SearchColumns.decode(page);
+            this.columns = columns;
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the Bundles of this page with their expanded resources, for a page requested with
+     * ClarifyClient.searchBundlesExpanded(String, Map, Expand...) or reached from such a page with nextPage()
+     * @return the Bundles in the order of _links.items, or an empty List if the page was requested without expansion
+     */
+    public List<Bundle> getBundles() {
+        List<Bundle> bundles = this.bundles;
+        return (bundles == null) ? Collections.<Bundle>emptyList() : bundles;
+    }
+
+    /*
+     * Sets the Bundles of a page requested with expansion, so that its next page is expanded the same way
+     */
+    void expanded(List<Bundle> bundles, Set<Expand> expand) {
+        this.bundles = bundles;
+        this.expand = expand;
+    }
+
     /**
      * Attempt to request the next page using the next link from the current page
      * @return a BundleSearchResults representing the next page, or null if there are no other pages
@@ -36,20 +90,57 @@ public class BundleSearchResults extends ClarifyPaginatedModel {
      * @throws IOException if a network failure occurred while fetching the next page
      */
     public BundleSearchResults nextPage() throws JSONException, IOException {
-        if(!hasNextPage()) {
+        ClarifyResponse resp = fetchNextPage();
+        if(resp == null) {
             return null;
         }
-        
-        JSONObject nextLink = nextLink();
-        if(nextLink != null) {
-            String href = (String)nextLink.get("href");
-            JSONResource jsonResource = 
-                    client.json(client.buildPathFromHref(href));
-            ClarifyResponse resp = new ClarifyResponse(jsonResource);
-            BundleSearchResults results = new BundleSearchResults(client, resp);
-            return results;
+        BundleSearchResults results = new BundleSearchResults(client, resp);
+        Set<Expand> expand = this.expand;
+        if(expand != null) {
+            results.expanded(client.getExpander().expandPage(resp, expand), expand);
         }
-        return null;
+        return results;
+    }
+
+    /**
+     * Attempt to request the next page using the next link from the current page, passing its items to the
+     * handler while the response is read instead of keeping them in the returned page
+     * @param handler the PageItemHandler receiving the items of the next page
+     * @return a BundleSearchResults representing the next page, or null if there are no other pages
+     * @throws JSONException if the href for the next link could not be obtained for some reason
+     * @throws IOException if a network failure occurred while fetching the next page, or if the handler threw an IOException
+     */
+    public BundleSearchResults nextPage(PageItemHandler handler) throws JSONException, IOException {
+        ClarifyResponse resp = fetchNextPage(handler);
+        return (resp == null) ? null : new BundleSearchResults(client, resp);
+    }
+
+    /**
+     * Attempt to request the next page using the next link from the current page, decoding its item_results into
+     * SearchColumns while the response is read. The items are not kept as JSON in the returned page.
+     * @return a BundleSearchResults whose getColumns() holds the decoded items, or null if there are no other pages
+     * @throws JSONException if the href for the next link could not be obtained for some reason
+     * @throws IOException if a network failure occurred while fetching the next page
+     */
+    public BundleSearchResults nextColumnarPage() throws JSONException, IOException {
+        SearchColumns.Decoder decoder = new SearchColumns.Decoder();
+        ClarifyResponse resp = fetchNextPage(decoder);
+        return (resp == null) ? null : new BundleSearchResults(client, resp, decoder);
+    }
+
+    /**
+     * Returns an iterator over this page and all following pages, fetching up to prefetch pages ahead
+     * of the caller on the given executor
+     * @param prefetch the number of pages to fetch ahead of the page being processed
+     * @param executor the Executor on which pages are fetched
+     * @return a PageIterator starting with this page
+     */
+    public PageIterator<BundleSearchResults> pageIterator(int prefetch, Executor executor) {
+        return new PageIterator<BundleSearchResults>(this, prefetch, executor);
     }
 
+    private volatile JSONArray itemResults;
+    private volatile SearchColumns columns;
+    private volatile List<Bundle> bundles;
+    private volatile Set<Expand> expand;
 }
@@ -1,5 +1,10 @@
 package io.clarify.api;
 
+import java.net.URI;
+import java.time.Instant;
+
+import us.monoid.json.JSONObject;
+
 /**
  * Represents a specific Track within a media Bundle
  *
@@ -15,11 +20,115 @@ public class BundleTrack extends ClarifyModel {
      * @throws RuntimeException containing the nested exception if the lookup failed
      */
     public String getId() {
-        try {
-            return (String)response.getJSONResource().get("id");
-        } catch (Exception e) {
-           throw new RuntimeException(e);
+        String id = this.id;
+        if(id == null) {
+            id = (String)getField("id");
+            this.id = id;
         }
+        return id;
+    }
+
+    /**
+     * Returns the position of this Track within its Bundle
+     * @return the track number, or null if not present in the response
+     */
+    public Integer getTrack() {
+        return fields().track;
+    }
+
+    /**
+     * Returns the label of the Track
+     * @return the label, or null if not set
+     */
+    public String getLabel() {
+        return fields().label;
+    }
+
+    /**
+     * Returns the processing status of the Track's media, for example "queued", "processing", "ready" or "error"
+     * @return the status, or null if not present in the response
+     */
+    public String getStatus() {
+        return fields().status;
+    }
+
+    /**
+     * Returns the URL of the remote media file for this Track
+     * @return the media URL, or null if not present in the response
+     */
+    public URI getMediaUrl() {
+        return fields().mediaUrl;
+    }
+
+    /**
+     * Returns the duration of the Track's media in seconds
+     * @return the duration, or null if not yet known
+     */
+    public Double getDuration() {
+        return fields().duration;
+    }
+
+    /**
+     * Returns the version of the Track, incremented on every update
+     * @return the version, or null if not present in the response
+     */
+    public Integer getVersion() {
+        return fields().version;
+    }
+
+    /**
+     * Returns the time the Track was created
+     * @return the creation time, or null if not present in the response
+     */
+    public Instant getCreated() {
+        return fields().created;
+    }
+
+    /**
+     * Returns the time the Track was last updated
+     * @return the update time, or null if not present in the response
+     */
+    public Instant getUpdated() {
+        return fields().updated;
+    }
+
+    /*
+     * Decodes the typed fields from the full representation on first use
+     */
+    private Fields fields() {
+        Fields fields = this.fields;
+        if(fields == null) {
+            fields = new Fields(getJSON());
+            this.fields = fields;
+        }
+        return fields;
+    }
+
+    /*
+     * The typed fields of a Track, decoded once from the JSON payload
+     */
+    private static final class Fields {
+        Fields(JSONObject json) {
+            this.track = intField(json, "track");
+            this.label = stringField(json, "label");
+            this.status = stringField(json, "status");
+            this.mediaUrl = uriField(json, "media_url");
+            this.duration = doubleField(json, "duration");
+            this.version = intField(json, "version");
+            this.created = instantField(json, "created");
+            this.updated = instantField(json, "updated");
+        }
+
+        final Integer track;
+        final String label;
+        final String status;
+        final URI mediaUrl;
+        final Double duration;
+        final Integer version;
+        final Instant created;
+        final Instant updated;
     }
 
+    private volatile String id;
+    private volatile Fields fields;
 }
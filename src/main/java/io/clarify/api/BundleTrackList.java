@@ -1,10 +1,16 @@
 package io.clarify.api;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
 
+import us.monoid.json.JSONArray;
 import us.monoid.json.JSONException;
 import us.monoid.json.JSONObject;
-import us.monoid.web.JSONResource;
 
 /**
  * Represents a Track List associated to a specific media Bundle. 
@@ -14,4 +20,69 @@ public class BundleTrackList extends ClarifyPaginatedModel {
         super(client,response);
     }
 
+    /**
+     * Returns the Tracks listed on this page. Each Track holds the full representation returned by the list, so
+     * no further API call is made to read its fields.
+     * @return the Tracks of the tracks array, in order, or an empty List if the page has none
+     */
+    public List<BundleTrack> getTracks() {
+        List<BundleTrack> tracks = this.tracks;
+        if(tracks == null) {
+            JSONArray array = getJSON().optJSONArray("tracks");
+            List<BundleTrack> decoded = new ArrayList<BundleTrack>();
+            for(int i=0;array != null && i<array.length();i++) {
+                JSONObject track = array.optJSONObject(i);
+                if(track != null) {
+                    decoded.add(new BundleTrack(client, new ClarifyResponse(200, new HashMap<String,List<String>>(),
+                            track.toString().getBytes(UTF8))));
+                }
+            }
+            tracks = Collections.unmodifiableList(decoded);
+            this.tracks = tracks;
+        }
+        return tracks;
+    }
+
+    /**
+     * Attempt to request the next page using the next link from the current page
+     * @return a BundleTrackList representing the next page, or null if there are no other pages
+     * @throws JSONException if the href for the next link could not be obtained for some reason
+     * @throws IOException if a network failure occurred while fetching the next page
+     */
+    public BundleTrackList nextPage() throws JSONException, IOException {
+        ClarifyResponse resp = fetchNextPage();
+        if(resp == null) {
+            return null;
+        }
+        BundleTrackList trackList = new BundleTrackList(client, resp);
+        return trackList;
+    }
+
+    /**
+     * Attempt to request the next page using the next link from the current page, passing its items to the
+     * handler while the response is read instead of keeping them in the returned page
+     * @param handler the PageItemHandler receiving the items of the next page
+     * @return a BundleTrackList representing the next page, or null if there are no other pages
+     * @throws JSONException if the href for the next link could not be obtained for some reason
+     * @throws IOException if a network failure occurred while fetching the next page, or if the handler threw an IOException
+     */
+    public BundleTrackList nextPage(PageItemHandler handler) throws JSONException, IOException {
+        ClarifyResponse resp = fetchNextPage(handler);
+        return (resp == null) ? null : new BundleTrackList(client, resp);
+    }
+
+    /**
+     * Returns an iterator over this page and all following pages, fetching up to prefetch pages ahead
+     * of the caller on the given executor
+     * @param prefetch the number of pages to fetch ahead of the page being processed
+     * @param executor the Executor on which pages are fetched
+     * @return a PageIterator starting with this page
+     */
+    public PageIterator<BundleTrackList> pageIterator(int prefetch, Executor executor) {
+        return new PageIterator<BundleTrackList>(this, prefetch, executor);
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private volatile List<BundleTrack> tracks;
 }
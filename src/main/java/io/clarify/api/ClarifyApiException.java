@@ -0,0 +1,49 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thrown when the Clarify API returns a non-success HTTP response. The exception carries the HTTP status code,
+ * the response headers and the JSON payload with the message and error details returned by the API.
+ */
+public class ClarifyApiException extends IOException {
+
+    public ClarifyApiException(String method, String url, int statusCode, Map<String,List<String>> headers, String responseContent) {
+        super("Error while reading from "+method+" "+url+": ["+statusCode+"]\n"+responseContent);
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.responseContent = responseContent;
+    }
+
+    /**
+     * Returns the HTTP status code returned by the API
+     * @return the HTTP status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns the first value of the given response header, matching the name case-insensitively
+     * @param name the header name
+     * @return the header value, or null if not present
+     */
+    public String getHeader(String name) {
+        return ClarifyHttpResponse.findHeader(headers, name);
+    }
+
+    /**
+     * Returns the raw error payload returned by the API
+     * @return the response body as a String
+     */
+    public String getResponseContent() {
+        return responseContent;
+    }
+
+    private final int statusCode;
+    private final transient Map<String,List<String>> headers;
+    private final String responseContent;
+    private static final long serialVersionUID = 1L;
+}
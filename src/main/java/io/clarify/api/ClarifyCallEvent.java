@@ -0,0 +1,160 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes one completed attempt of a request sent by a ClarifyClient: which operation it belonged to, how
+ * long it took, how many bytes were sent and received, and how it ended. Passed to ClarifyListener.requestEnd().
+ *
+ * Retried and hedged requests produce one event per attempt; getAttempt() is 1 for the first attempt.
+ *
+ * Byte counts are of the bodies as they crossed the network. When a body was compressed, its size before
+ * compression is reported by getUncompressedBytesSent() and getUncompressedBytesReceived().
+ */
+public class ClarifyCallEvent {
+
+    ClarifyCallEvent(ClarifyHttpRequest request, int attempt) {
+        this.request = request;
+        this.attempt = attempt;
+        byte[] body = request.getBody();
+        ClarifyRequestBody streamingBody = request.getStreamingBody();
+        if(streamingBody != null) {
+            this.bytesSent = Math.max(0, streamingBody.getContentLength());
+        } else {
+            this.bytesSent = (body == null) ? 0 : body.length;
+        }
+        this.requestEncoding = request.getContentEncoding();
+        this.uncompressedBytesSent = (request.getDecodedLength() < 0) ? bytesSent : request.getDecodedLength();
+        this.startedAt = System.nanoTime();
+    }
+
+    /**
+     * Returns the request that was sent
+     */
+    public ClarifyHttpRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns the logical operation, such as findBundle or nextPage
+     */
+    public String getOperation() {
+        return request.getOperation();
+    }
+
+    /**
+     * Returns the number of this attempt; 1 for the first attempt, higher for retries and hedged duplicates
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * Returns the HTTP status code of the response
+     * @return the status code, or -1 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns the number of request body bytes sent
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Returns the number of request body bytes before compression
+     * @return the size of the request body, equal to getBytesSent() if it was not compressed
+     */
+    public long getUncompressedBytesSent() {
+        return uncompressedBytesSent;
+    }
+
+    /**
+     * Returns the Content-Encoding of the request body
+     * @return the encoding, such as gzip, or null if the body was not compressed
+     */
+    public String getRequestEncoding() {
+        return requestEncoding;
+    }
+
+    /**
+     * Returns the number of response body bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Returns the number of response body bytes after decompression
+     * @return the size of the response body, equal to getBytesReceived() if it was not compressed
+     */
+    public long getUncompressedBytesReceived() {
+        return uncompressedBytesReceived;
+    }
+
+    /**
+     * Returns the Content-Encoding of the response body
+     * @return the encoding, such as gzip, or null if the body was not compressed
+     */
+    public String getResponseEncoding() {
+        return responseEncoding;
+    }
+
+    /**
+     * Returns the time from sending the request until the response was read completely
+     * @param unit the unit of the returned duration
+     * @return the duration of the attempt
+     */
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the exception the attempt failed with
+     * @return the exception, typically a ClarifyApiException for a non-success status, or null if it succeeded
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Determine if the attempt succeeded
+     * @return true if a non-error response was received and read
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public String toString() {
+        return getOperation()+" "+request+" -> "+statusCode+" in "+getDuration(TimeUnit.MILLISECONDS)+"ms";
+    }
+
+    void responded(int statusCode, long bytesReceived, long uncompressedBytesReceived, String responseEncoding) {
+        this.statusCode = statusCode;
+        this.bytesReceived = bytesReceived;
+        this.uncompressedBytesReceived = uncompressedBytesReceived;
+        this.responseEncoding = responseEncoding;
+    }
+
+    void ended(IOException error) {
+        this.error = error;
+        this.durationNanos = System.nanoTime() - startedAt;
+    }
+
+    private final ClarifyHttpRequest request;
+    private final int attempt;
+    private final long bytesSent;
+    private final long uncompressedBytesSent;
+    private final String requestEncoding;
+    private final long startedAt;
+    private int statusCode = -1;
+    private long bytesReceived;
+    private long uncompressedBytesReceived;
+    private String responseEncoding;
+    private long durationNanos;
+    private IOException error;
+}
@@ -1,12 +1,27 @@
 package io.clarify.api;
 
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
+import java.nio.charset.Charset;
 
 import us.monoid.json.JSONArray;
 import us.monoid.json.JSONException;
@@ -17,6 +32,8 @@ import us.monoid.web.JSONResource;
 import us.monoid.web.Resty;
 import us.monoid.web.mime.MultipartContent;
 
+import org.reactivestreams.Publisher;
+
 
 
 /**
@@ -30,20 +47,103 @@ import us.monoid.web.mime.MultipartContent;
  * processing the response payload using CSS-style JSON selectors. More details are available at 
  * <a href="http://beders.github.io/Resty/Resty/Overview.html">the Resty Overview page</a>
  *
+ * The high-level API sends its requests through a pluggable ClarifyTransport. By default all clients share a
+ * single pooled OkHttpTransport, so connections and TLS sessions are reused across calls and across client instances.
+ * A RestyTransport is available as a fallback, and any other transport may be supplied at construction time.
+ *
+ * The high-level API of a client is thread-safe, and one client per application key is meant to be shared by all
+ * threads. Build it from an immutable ClarifyClientConfig to fix its endpoint and settings at construction time;
+ * to serve many application keys from one JVM, use a ClarifyClientPool, whose clients share one transport. The
+ * low-level Resty API inherited by the client keeps per-instance header state (withHeader) and must not be used
+ * to switch credentials on a shared client.
+ *
  */ 
 public class ClarifyClient extends Resty {
+    /**
+     * The root of the API used by the clients created without a ClarifyClientConfig. It is read on every call, so
+     * changing it affects all of those clients at once; prefer ClarifyClientConfig.Builder.baseUri().
+     */
     public static String CLARIFY_BASE_URI = "https://api.clarify.io";
+    /**
+     * The API version used by the clients created without a ClarifyClientConfig. It is read on every call, so
+     * changing it affects all of those clients at once; prefer ClarifyClientConfig.Builder.version().
+     */
     public static String DEFAULT_VERSION = "v1";
     public static String SDK_VERSION = "1.0.0";
+    public static final int DEFAULT_BATCH_CONCURRENCY = 16;
 
     public ClarifyClient(String appKey) {
+        this(appKey, getDefaultTransport());
+    }
+
+    /**
+     * Creates a new client that sends all high-level API calls through the given transport
+     * @param appKey the Clarify application key
+     * @param transport the ClarifyTransport used to execute requests, typically shared by many clients
+     */
+    public ClarifyClient(String appKey, ClarifyTransport transport) {
         super();
+        if(transport == null) { throw new RuntimeException("transport cannot be null"); }
         this.appKey = appKey;
+        this.transport = transport;
+        this.baseUri = null;
+        this.version = null;
         withHeader("Authorization","Bearer "+appKey);
         //withHeader("User-Agent","clarify-java/"+SDK_VERSION+"/"+System.getProperty("java.version"));
         userAgent = "clarify-java/"+SDK_VERSION+"/"+System.getProperty("java.version");
     }
 
+    /**
+     * Creates a new client with the given settings. The endpoint, version and transport of the client are fixed
+     * by the config; its other settings start with the values of the config.
+     * @param config the ClarifyClientConfig, which must hold an application key
+     */
+    public ClarifyClient(ClarifyClientConfig config) {
+        super();
+        if(config == null) { throw new RuntimeException("config cannot be null"); }
+        if(config.getAppKey() == null) { throw new RuntimeException("appKey cannot be null"); }
+        this.appKey = config.getAppKey();
+        this.transport = (config.getTransport() == null) ? getDefaultTransport() : config.getTransport();
+        this.baseUri = config.getBaseUri();
+        this.version = config.getVersion();
+        withHeader("Authorization","Bearer "+appKey);
+        userAgent = (config.getUserAgent() != null) ? config.getUserAgent()
+                : "clarify-java/"+SDK_VERSION+"/"+System.getProperty("java.version");
+        this.executor = config.getExecutor();
+        this.responseMode = config.getResponseMode();
+        this.batchConcurrency = config.getBatchConcurrency();
+        this.responseCache = config.getResponseCache();
+        this.rateLimiter = config.getRateLimiter();
+        this.retryPolicy = config.getRetryPolicy();
+        this.requestCoalescing = config.isRequestCoalescing();
+        this.responseCompression = config.isResponseCompression();
+        this.requestCompressionThreshold = config.getRequestCompressionThreshold();
+    }
+
+    /**
+     * Returns the current settings of this client as an immutable config, for example to create a client with
+     * the same settings for another application key
+     * @return a ClarifyClientConfig holding the settings in effect when called
+     */
+    public ClarifyClientConfig getConfig() {
+        return ClarifyClientConfig.builder()
+                .appKey(appKey)
+                .baseUri(baseUri())
+                .version(version())
+                .userAgent(userAgent)
+                .transport(transport)
+                .executor(executor)
+                .responseMode(responseMode)
+                .batchConcurrency(batchConcurrency)
+                .responseCache(responseCache)
+                .rateLimiter(rateLimiter)
+                .retryPolicy(retryPolicy)
+                .requestCoalescing(requestCoalescing)
+                .responseCompression(responseCompression)
+                .requestCompressionThreshold(requestCompressionThreshold)
+                .build();
+    }
+
     /**
      * Creates a new Clarify Bundle using the Create Bundle REST API. This is a simple wrapper around
      * the API for common bundle create needs and therefore only offers a limited number of the possible API parameters
@@ -69,6 +169,29 @@ public class ClarifyClient extends Resty {
      * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
      */
     public Bundle createBundle(String name, URI mediaURI, Map<String,String> fields) throws IOException {
+        return createBundle(name, mediaURI, fields, responseMode);
+    }
+
+    /**
+     * Creates a new Clarify Bundle as createBundle(name, mediaURI, fields) does, using the given ResponseMode to decide 
+     * whether the full Bundle is re-fetched after the create call
+     *  
+     * @param name a string containing the name of the API bundle
+     * @param mediaURI a URI containing a valid URL where the media for this Bundle resides
+     * @param fields a Map of key-value String pairs with any additional parameter values. May be null or empty
+     * @param mode the ResponseMode for this call
+     * @return the newly created Bundle instance
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
+     */
+    public Bundle createBundle(String name, URI mediaURI, Map<String,String> fields, ResponseMode mode) throws IOException {
+        return createBundle(name, mediaURI, fields, mode, UUID.randomUUID().toString());
+    }
+
+    /*
+     * Creates a Bundle sending the given idempotency key, so that a caller resuming after a crash can repeat
+     * a create whose outcome it never saw without creating a second Bundle
+     */
+    Bundle createBundle(String name, URI mediaURI, Map<String,String> fields, ResponseMode mode, String idempotencyKey) throws IOException {
         if(name == null) { throw new RuntimeException("name cannot be null"); }
         if(fields == null) {
             // create a new, empty map
@@ -78,18 +201,73 @@ public class ClarifyClient extends Resty {
         fields.put("name",name);
         if(mediaURI != null) { fields.put("media_url", mediaURI.toString()); }
         
-        String params = urlEncodeMap(fields);
-        Content content = new Content("application/x-www-form-urlencoded", params.getBytes());
-        JSONResource jsonResource =  
-                json(buildPathFromResourcePath("/bundles"), content);
-        
+        // the key lets the API recognise a retried create, so that a RetryPolicy may safely repeat it
+        ClarifyHttpRequest request = new ClarifyHttpRequest("POST", buildPathFromResourcePath("/bundles"), FORM_CONTENT_TYPE, encodeForm(fields))
+                .operation("createBundle")
+                .header(RetryPolicy.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        return createdBundle(execute(request), mode);
+    }
+
+    /**
+     * Creates a new Clarify Bundle whose media is uploaded with the request instead of being fetched by the API
+     * from a URL. The media is streamed from its file or stream while the request is sent, without being read
+     * into memory.
+     * 
+     * @param name a string containing the name of the API bundle
+     * @param media the MediaUpload holding the media of the Bundle
+     * @return the newly created Bundle instance
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details,
+     * or if the media could not be read
+     */
+    public Bundle createBundle(String name, MediaUpload media) throws IOException {
+        return createBundle(name, media, null, responseMode);
+    }
+
+    /**
+     * Creates a new Clarify Bundle as createBundle(name, media) does, with additional fields and the given ResponseMode
+     * 
+     * @param name a string containing the name of the API bundle
+     * @param media the MediaUpload holding the media of the Bundle
+     * @param fields a Map of key-value String pairs with any additional parameter values. May be null or empty
+     * @param mode the ResponseMode for this call
+     * @return the newly created Bundle instance
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details,
+     * or if the media could not be read
+     */
+    public Bundle createBundle(String name, MediaUpload media, Map<String,String> fields, ResponseMode mode) throws IOException {
+        if(name == null) { throw new RuntimeException("name cannot be null"); }
+        if(media == null) { throw new RuntimeException("media cannot be null"); }
+        Map<String,String> form = new LinkedHashMap<String,String>();
+        if(fields != null) {
+            form.putAll(fields);
+        }
+        form.put("name", name);
+        form.remove("media_url");
+        ClarifyHttpRequest request = new ClarifyHttpRequest("POST", buildPathFromResourcePath("/bundles"), 
+                new MultipartBody(form, MEDIA_FIELD, media))
+                .operation("createBundle")
+                .header(RetryPolicy.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString());
+        return createdBundle(execute(request), mode);
+    }
+
+    /*
+     * Helper to build the Bundle returned by a create call according to the ResponseMode
+     */
+    private Bundle createdBundle(ClarifyResponse created, ResponseMode mode) throws IOException {
         String bundleId;
         try {
-            bundleId = (String)jsonResource.get("id");
-            return findBundle(bundleId);
+            bundleId = (String)created.getJSONResource().get("id");
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        if(mode == ResponseMode.REFETCH) {
+            return findBundle(bundleId);
+        }
+        Bundle bundle = new Bundle(this, created);
+        if(mode == ResponseMode.LAZY) {
+            bundle.deferResolution(selfUrl(created, "/bundles/"+bundleId));
+        }
+        return bundle;
     }
 
     /**
@@ -101,13 +279,64 @@ public class ClarifyClient extends Resty {
      * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
      */
     public BundleList listBundles() throws IOException {
-        JSONResource jsonResource = 
-                json(buildPathFromResourcePath("/bundles"));
-        ClarifyResponse resp = new ClarifyResponse(jsonResource);
+        ClarifyResponse resp = send("listBundles", "GET", buildPathFromResourcePath("/bundles"));
         BundleList list = new BundleList(this, resp);
         return list;
     }
 
+    /**
+     * Retrieves the first page from the List Bundles REST API, passing each element of _links.items to the handler
+     * while the response is read from the network instead of keeping the items in the returned page. Use
+     * nextPage(PageItemHandler) on the result to stream the following pages.
+     * 
+     * @param handler the PageItemHandler receiving the items of the page
+     * @return a BundleList for paginating, without the _links.items of the page
+     * @throws IOException on a non-success HTTP response, or if the handler threw an IOException
+     */
+    public BundleList listBundles(PageItemHandler handler) throws IOException {
+        ClarifyResponse resp = stream("listBundles", buildPathFromResourcePath("/bundles"), handler);
+        return new BundleList(this, resp);
+    }
+
+    /**
+     * Retrieves the first page from the List Bundles REST API with the Bundles of the page and the given resources 
+     * of each Bundle, available from getBundles() on the result. The API is asked to embed them in the page; 
+     * whatever it does not embed is fetched concurrently before this method returns. The following pages 
+     * returned by nextPage() are expanded the same way.
+     * 
+     * @param expand the resources to retrieve with each Bundle, or none for the Bundles only
+     * @return a BundleList whose getBundles() holds the Bundles of the first page
+     * @throws IOException on a non-success HTTP response for the page, a Bundle or one of its resources
+     */
+    public BundleList listBundlesExpanded(Expand... expand) throws IOException {
+        Set<Expand> resources = BundleExpander.toSet(expand);
+        ClarifyResponse resp = send("listBundles", "GET", 
+                buildPathFromResourcePath("/bundles?embed="+BundleExpander.embed(resources, true)));
+        BundleList list = new BundleList(this, resp);
+        list.expanded(expander.expandPage(resp, resources), resources);
+        return list;
+    }
+
+    /**
+     * Returns a Reactive Streams Publisher of all Bundles, with the given resources of each Bundle, for reactive 
+     * pipelines. Pages are retrieved as listBundlesExpanded(Expand...) and nextPage() do, on the client's executor and 
+     * only as the Subscriber requests Bundles, so at most one page is held beyond its demand. Cancelling the 
+     * Subscription stops the retrieval. Each Subscriber walks the list from the first page.
+     * 
+     * @param expand the resources to retrieve with each Bundle, or none for the Bundles only
+     * @return a Publisher of the Bundles, in the order of the list
+     */
+    public Publisher<Bundle> publishBundles(final Expand... expand) {
+        return new PagePublisher<BundleList,Bundle>(getExecutor()) {
+            BundleList firstPage() throws IOException {
+                return listBundlesExpanded(expand);
+            }
+            List<Bundle> items(BundleList page) {
+                return page.getBundles();
+            }
+        };
+    }
+
     /**
      * Performs a wildcard search for the specific query string provided. The result can be used to examine
      * the matched terms, locations within the media file where the terms reside, and paginate through the 
@@ -142,12 +371,107 @@ public class ClarifyClient extends Resty {
         // load the name and mediaURI into the map (overwriting these two keys that may already be assigned) 
         params.put("query",enc(query));
         String urlParams = urlEncodeMap(params);
-        JSONResource jsonResource = 
-                json(buildPathFromResourcePath("/search?"+urlParams));
-        ClarifyResponse resp = new ClarifyResponse(jsonResource);
+        ClarifyResponse resp = send("searchBundles", "GET", buildPathFromResourcePath("/search?"+urlParams));
         BundleSearchResults results = new BundleSearchResults(this, resp);
         return results;
     }
+
+    /**
+     * Performs a search as searchBundles(query, params) does, passing each element of item_results and _links.items 
+     * to the handler while the response is read from the network. The term matches of large result pages are then 
+     * processed one item at a time rather than parsed into memory as a whole. Use nextPage(PageItemHandler) on the 
+     * result to stream the following pages.
+     * 
+     * @param query a raw string (automatically URL encoded) containing the query string to search for within the bundles
+     * @param params a Map of key-value String pairs to pass to the search API. May be null or empty
+     * @param handler the PageItemHandler receiving the items of the page
+     * @return a BundleSearchResults for paginating, without the item_results and _links.items of the page
+     * @throws IOException on a non-success HTTP response, or if the handler threw an IOException
+     */
+    public BundleSearchResults searchBundles(String query, Map<String,String> params, PageItemHandler handler) throws IOException {
+        if(query == null) { throw new RuntimeException("query cannot be null"); }
+        if(params == null) {
+            params = new HashMap<String,String>();
+        }
+        params.put("query",enc(query));
+        String urlParams = urlEncodeMap(params);
+        ClarifyResponse resp = stream("searchBundles", buildPathFromResourcePath("/search?"+urlParams), handler);
+        return new BundleSearchResults(this, resp);
+    }
+
+    /**
+     * Performs a search as searchBundles(query, params) does, retrieving the Bundles of the first page of results 
+     * and the given resources of each Bundle, available from getBundles() on the result. The API is asked to embed 
+     * them in the page; whatever it does not embed is fetched concurrently before this method returns. The 
+     * following pages returned by nextPage() are expanded the same way.
+     * 
+     * @param query a raw string (automatically URL encoded) containing the query string to search for within the bundles
+     * @param params a Map of key-value String pairs to pass to the search API. May be null or empty
+     * @param expand the resources to retrieve with each Bundle, or none for the Bundles only
+     * @return a BundleSearchResults whose getBundles() holds the Bundles of the first page
+     * @throws IOException on a non-success HTTP response for the page, a Bundle or one of its resources
+     */
+    public BundleSearchResults searchBundlesExpanded(String query, Map<String,String> params, Expand... expand) throws IOException {
+        if(query == null) { throw new RuntimeException("query cannot be null"); }
+        if(params == null) {
+            params = new HashMap<String,String>();
+        }
+        Set<Expand> resources = BundleExpander.toSet(expand);
+        params.put("query",enc(query));
+        params.put("embed", BundleExpander.embed(resources, true));
+        String urlParams = urlEncodeMap(params);
+        ClarifyResponse resp = send("searchBundles", "GET", buildPathFromResourcePath("/search?"+urlParams));
+        BundleSearchResults results = new BundleSearchResults(this, resp);
+        results.expanded(expander.expandPage(resp, resources), resources);
+        return results;
+    }
+
+    /**
+     * Returns a Reactive Streams Publisher of the Bundles matching a search, with the given resources of each 
+     * Bundle, for reactive pipelines. Pages are retrieved as searchBundlesExpanded(String, Map, Expand...) and nextPage() 
+     * do, on the client's executor and only as the Subscriber requests Bundles, so at most one page is held 
+     * beyond its demand. Cancelling the Subscription stops the retrieval. Each Subscriber runs the search anew.
+     * 
+     * @param query a raw string (automatically URL encoded) containing the query string to search for within the bundles
+     * @param params a Map of key-value String pairs to pass to the search API. May be null or empty
+     * @param expand the resources to retrieve with each Bundle, or none for the Bundles only
+     * @return a Publisher of the matching Bundles, in the order of the search results
+     */
+    public Publisher<Bundle> publishSearchResults(final String query, Map<String,String> params, final Expand... expand) {
+        if(query == null) { throw new RuntimeException("query cannot be null"); }
+        final Map<String,String> searchParams = (params == null) ? new HashMap<String,String>() : new HashMap<String,String>(params);
+        return new PagePublisher<BundleSearchResults,Bundle>(getExecutor()) {
+            BundleSearchResults firstPage() throws IOException {
+                // searchBundles adds to the map it is given
+                return searchBundlesExpanded(query, new HashMap<String,String>(searchParams), expand);
+            }
+            List<Bundle> items(BundleSearchResults page) {
+                return page.getBundles();
+            }
+        };
+    }
+
+    /**
+     * Performs a search as searchBundles(query, params) does, decoding item_results into SearchColumns while the
+     * response is read from the network. No JSONObject is kept per match, which suits rendering the matches of
+     * large result pages. Use nextColumnarPage() on the result to decode the following pages the same way.
+     * 
+     * @param query a raw string (automatically URL encoded) containing the query string to search for within the bundles
+     * @param params a Map of key-value String pairs to pass to the search API. May be null or empty
+     * @return a BundleSearchResults whose getColumns() holds the decoded items, for paginating
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
+     */
+    public BundleSearchResults searchBundleColumns(String query, Map<String,String> params) throws IOException {
+        SearchColumns.Decoder decoder = new SearchColumns.Decoder();
+        if(query == null) { throw new RuntimeException("query cannot be null"); }
+        if(params == null) {
+            params = new HashMap<String,String>();
+        }
+        params.put("query",enc(query));
+        String urlParams = urlEncodeMap(params);
+        ClarifyResponse resp = stream("searchBundles", buildPathFromResourcePath("/search?"+urlParams), decoder);
+        return new BundleSearchResults(this, resp, decoder);
+    }
     
 
     /**
@@ -163,9 +487,7 @@ public class ClarifyClient extends Resty {
             throw new RuntimeException("href cannot be null");
         }
         
-        JSONResource jsonResource = 
-                json(buildPathFromHref(href));
-        ClarifyResponse resp = new ClarifyResponse(jsonResource);
+        ClarifyResponse resp = send("findBundleByHref", "GET", buildPathFromHref(href));
         Bundle bundle = new Bundle(this, resp);
         return bundle;
     }
@@ -183,12 +505,71 @@ public class ClarifyClient extends Resty {
             throw new RuntimeException("bundleId cannot be null");
         }
         
-        JSONResource jsonResource = 
-                json(buildPathFromResourcePath("/bundles/"+bundleId));
-        ClarifyResponse resp = new ClarifyResponse(jsonResource);
+        ClarifyResponse resp = send("findBundle", "GET", buildPathFromResourcePath("/bundles/"+bundleId));
         Bundle bundle = new Bundle(this, resp);
         return bundle;
     }
+
+    /**
+     * Retrieves a Bundle together with the given resources, which are then returned by getMetadata() and 
+     * listTracks() on the Bundle without further API calls. The API is asked to embed the resources in the Bundle; 
+     * the resources it does not embed are fetched concurrently before this method returns. Once the API has 
+     * returned a Bundle without embedded resources, the Bundle and its resources are fetched concurrently from
+     * the start.
+     * 
+     * Example:
+     * 
+     * Bundle bundle = client.findBundle(bundleId, Expand.METADATA, Expand.TRACKS);
+     * for(BundleTrack track : bundle.listTracks().getTracks()) {
+     *     ...
+     * }
+     * 
+     * @param bundleId a String containing the GUID of the Bundle to attempt to retrieve
+     * @param expand the resources to retrieve with the Bundle
+     * @return the Bundle retrieved by bundleId, with its resources
+     * @throws IOException on a non-success HTTP response for the Bundle or one of its resources
+     */
+    public Bundle findBundle(String bundleId, Expand... expand) throws IOException {
+        if(bundleId == null) {
+            throw new RuntimeException("bundleId cannot be null");
+        }
+        Set<Expand> resources = BundleExpander.toSet(expand);
+        if(resources.isEmpty()) {
+            return findBundle(bundleId);
+        }
+        return expander.find(bundleId, resources);
+    }
+    
+    /**
+     * Retrieves many Bundles concurrently, using the client's batch concurrency limit. Each key may be either a 
+     * Bundle GUID or a relative href (starting with "/") as returned in the _links.items of a BundleList. 
+     * 
+     * A failure to retrieve one Bundle does not abort the batch; it is reported for that item in the result.
+     * 
+     * @param idsOrHrefs the Bundle GUIDs and/or hrefs to retrieve
+     * @return a BatchResult holding the Bundles in the same order as the input
+     */
+    public BatchResult<Bundle> findBundles(Collection<String> idsOrHrefs) {
+        return findBundles(idsOrHrefs, batchConcurrency);
+    }
+
+    /**
+     * Retrieves many Bundles concurrently, with at most the given number of requests in flight at once. 
+     * Each key may be either a Bundle GUID or a relative href (starting with "/").
+     * 
+     * @param idsOrHrefs the Bundle GUIDs and/or hrefs to retrieve
+     * @param concurrency the maximum number of requests in flight at once
+     * @return a BatchResult holding the Bundles in the same order as the input
+     */
+    public BatchResult<Bundle> findBundles(Collection<String> idsOrHrefs, int concurrency) {
+        if(idsOrHrefs == null) { throw new RuntimeException("idsOrHrefs cannot be null"); }
+        return BatchRunner.run(new ArrayList<String>(idsOrHrefs), concurrency, getExecutor(), 
+                new BatchRunner.Call<Bundle>() {
+                    public Bundle call(String key) throws Exception {
+                        return key.startsWith("/") ? findBundleByHref(key) : findBundle(key);
+                    }
+                });
+    }
     
     /**
      * Updates an existing Bundle's properties, incrementing the Bundle version number on success. 
@@ -204,10 +585,8 @@ public class ClarifyClient extends Resty {
         if(fields == null) { throw new RuntimeException("fields cannot be null"); }
         if(fields.size() == 0) { throw new RuntimeException("fields cannot be empty"); }
         
-        String params = urlEncodeMap(fields);
-        Content content = new Content("application/x-www-form-urlencoded", params.getBytes());
         String url = buildPathFromResourcePath("/bundles/"+bundleId);
-        json(url, put(content));
+        send("updateBundle", "PUT", url, FORM_CONTENT_TYPE, encodeForm(fields));
         return true;
     }
     
@@ -225,7 +604,7 @@ public class ClarifyClient extends Resty {
             throw new RuntimeException("bundleId cannot be null");
         }
         
-        json(buildPathFromResourcePath("/bundles/"+enc(bundleId)), delete());
+        send("deleteBundle", "DELETE", buildPathFromResourcePath("/bundles/"+enc(bundleId)));
         
         return true; // will throw an IOException if it failed
     }
@@ -242,15 +621,35 @@ public class ClarifyClient extends Resty {
             throw new RuntimeException("bundleId cannot be null");
         }
         
-        JSONResource jsonResource = 
-                json(buildPathFromResourcePath("/bundles/"+bundleId+"/tracks"));
-        ClarifyResponse resp = new ClarifyResponse(jsonResource);
+        ClarifyResponse resp = send("listTracksForBundle", "GET", buildPathFromResourcePath("/bundles/"+bundleId+"/tracks"));
         BundleTrackList trackList = new BundleTrackList(this, resp);
         return trackList;
     }
 
     /**
-     * Adds a new Track to the Bundle with the given media URI, then fetches the resulting resource (resulting in 2 API calls)
+     * Returns a Reactive Streams Publisher of the Tracks of a Bundle, for reactive pipelines. Pages are retrieved 
+     * as listTracksForBundle() and nextPage() do, on the client's executor and only as the Subscriber requests 
+     * Tracks. Cancelling the Subscription stops the retrieval.
+     * @param bundleId the GUID of the Bundle to retrieve the Tracks for
+     * @return a Publisher of the Tracks, in the order of the list
+     */
+    public Publisher<BundleTrack> publishTracks(final String bundleId) {
+        if(bundleId == null) {
+            throw new RuntimeException("bundleId cannot be null");
+        }
+        return new PagePublisher<BundleTrackList,BundleTrack>(getExecutor()) {
+            BundleTrackList firstPage() throws IOException {
+                return listTracksForBundle(bundleId);
+            }
+            List<BundleTrack> items(BundleTrackList page) {
+                return page.getTracks();
+            }
+        };
+    }
+
+    /**
+     * Adds a new Track to the Bundle with the given media URI, then fetches the resulting resource (resulting in 2 API calls
+     * unless the client's ResponseMode has been changed from the default REFETCH)
      * @param bundleId the GUID of the Bundle to add the Track to
      * @param trackUri the URI of the remote media file to add to the Bundle
      * @return a new Track instance containing the details about the new Track
@@ -259,16 +658,95 @@ public class ClarifyClient extends Resty {
      * @throws RuntimeException if there is a failure calling the Find Track API
      */
     public BundleTrack addTrackToBundle(String bundleId, URI trackUri) throws IOException {
-        JSONResource jsonResource = 
-                json(buildPathFromResourcePath("/bundles/"+bundleId+"/tracks"), form(data("media_url", trackUri.toString())));
+        return addTrackToBundle(bundleId, trackUri, responseMode);
+    }
+
+    /**
+     * Adds a new Track to the Bundle with the given media URI, using the given ResponseMode to decide whether the 
+     * full Track is re-fetched after the add call
+     * @param bundleId the GUID of the Bundle to add the Track to
+     * @param trackUri the URI of the remote media file to add to the Bundle
+     * @param mode the ResponseMode for this call
+     * @return a new Track instance containing the details about the new Track
+     * @throws IOException if a failure occurred during the API,  
+     * typically a 4xx HTTP error code + JSON payload with the error message and details
+     * @throws RuntimeException if there is a failure calling the Find Track API
+     */
+    public BundleTrack addTrackToBundle(String bundleId, URI trackUri, ResponseMode mode) throws IOException {
+        return addTrackToBundle(bundleId, trackUri, mode, null);
+    }
+
+    /*
+     * Adds a Track, sending the given idempotency key if not null
+     */
+    BundleTrack addTrackToBundle(String bundleId, URI trackUri, ResponseMode mode, String idempotencyKey) throws IOException {
+        Map<String,String> fields = new HashMap<String,String>();
+        fields.put("media_url", trackUri.toString());
+        ClarifyHttpRequest request = new ClarifyHttpRequest("POST", buildPathFromResourcePath("/bundles/"+bundleId+"/tracks"), 
+                FORM_CONTENT_TYPE, encodeForm(fields)).operation("addTrackToBundle");
+        if(idempotencyKey != null) {
+            request.header(RetryPolicy.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        return createdTrack(execute(request), bundleId, mode);
+    }
+
+    /**
+     * Adds a Track to the Bundle whose media is uploaded with the request instead of being fetched by the API
+     * from a URL. The media is streamed from its file or stream while the request is sent, without being read
+     * into memory.
+     * 
+     * @param bundleId the GUID of the Bundle to add the Track to
+     * @param media the MediaUpload holding the media of the Track
+     * @return a new Track instance containing the details about the new Track
+     * @throws IOException if a failure occurred during the API, typically a 4xx HTTP error code + JSON payload 
+     * with the error message and details, or if the media could not be read
+     */
+    public BundleTrack addTrackToBundle(String bundleId, MediaUpload media) throws IOException {
+        return addTrackToBundle(bundleId, media, responseMode);
+    }
+
+    /**
+     * Adds a Track to the Bundle as addTrackToBundle(bundleId, media) does, using the given ResponseMode
+     * 
+     * @param bundleId the GUID of the Bundle to add the Track to
+     * @param media the MediaUpload holding the media of the Track
+     * @param mode the ResponseMode for this call
+     * @return a new Track instance containing the details about the new Track
+     * @throws IOException if a failure occurred during the API, typically a 4xx HTTP error code + JSON payload 
+     * with the error message and details, or if the media could not be read
+     */
+    public BundleTrack addTrackToBundle(String bundleId, MediaUpload media, ResponseMode mode) throws IOException {
+        if(bundleId == null) { throw new RuntimeException("bundleId cannot be null"); }
+        if(media == null) { throw new RuntimeException("media cannot be null"); }
+        // the key lets a RetryPolicy send a repeatable upload again without adding the Track twice
+        ClarifyHttpRequest request = new ClarifyHttpRequest("POST", buildPathFromResourcePath("/bundles/"+bundleId+"/tracks"), 
+                new MultipartBody(new LinkedHashMap<String,String>(), MEDIA_FIELD, media))
+                .operation("addTrackToBundle")
+                .header(RetryPolicy.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString());
+        return createdTrack(execute(request), bundleId, mode);
+    }
+
+    /*
+     * Helper to build the Track returned by an add call according to the ResponseMode
+     */
+    private BundleTrack createdTrack(ClarifyResponse created, String bundleId, ResponseMode mode) throws IOException {
+        if(mode != ResponseMode.REFETCH) {
+            BundleTrack track = new BundleTrack(this, created);
+            if(mode == ResponseMode.LAZY) {
+                // the fallback must name the Track itself, never the track list
+                String trackId = idOf(created);
+                track.deferResolution(selfUrl(created, (trackId == null) ? null : "/bundles/"+bundleId+"/tracks/"+trackId));
+            }
+            return track;
+        }
         String trackHref;
         try {
-            trackHref = (String)jsonResource.get("_links.self.href");
-            return findTrackByHref(trackHref);
+            trackHref = (String)created.getJSONResource().get("_links.self.href");
         } catch (Exception e) {
             // thrown if not found
             throw new RuntimeException(e);
         } 
+        return findTrackByHref(trackHref);
     }
     
     /**
@@ -287,9 +765,7 @@ public class ClarifyClient extends Resty {
             throw new RuntimeException("trackId cannot be null");
         }
         
-        JSONResource jsonResource = 
-                json(buildPathFromResourcePath("/bundles/"+bundleId+"/tracks/"+trackId));
-        ClarifyResponse resp = new ClarifyResponse(jsonResource);
+        ClarifyResponse resp = send("findTrackForBundle", "GET", buildPathFromResourcePath("/bundles/"+bundleId+"/tracks/"+trackId));
         BundleTrack track = new BundleTrack(this, resp);
         return track;
     }
@@ -306,9 +782,7 @@ public class ClarifyClient extends Resty {
             throw new RuntimeException("href cannot be null");
         }
         
-        JSONResource jsonResource = 
-                json(buildPathFromHref(href));
-        ClarifyResponse resp = new ClarifyResponse(jsonResource);
+        ClarifyResponse resp = send("findTrackByHref", "GET", buildPathFromHref(href));
         BundleTrack track = new BundleTrack(this, resp);
         return track;
     }
@@ -330,7 +804,7 @@ public class ClarifyClient extends Resty {
             throw new RuntimeException("bundleId cannot be null");
         }
         
-        json(buildPathFromResourcePath("/bundles/"+bundleId+"/tracks/"+trackId), delete());
+        send("deleteTrack", "DELETE", buildPathFromResourcePath("/bundles/"+bundleId+"/tracks/"+trackId));
         
         return true; // will throw an IOException if it failed
     }
@@ -348,16 +822,15 @@ public class ClarifyClient extends Resty {
             throw new RuntimeException("bundleId cannot be null");
         }
         
-        JSONResource jsonResource = 
-                json(buildPathFromResourcePath("/bundles/"+bundleId+"/metadata"));
-        ClarifyResponse resp = new ClarifyResponse(jsonResource);
+        ClarifyResponse resp = send("findMetadata", "GET", buildPathFromResourcePath("/bundles/"+bundleId+"/metadata"));
         BundleMetadata metadata = new BundleMetadata(this, resp);
         return metadata;
     }
     
     /**
      * Updates the user-defined data property of the Bundle's Metadata with the supplied JSON string, 
-     * then return a refreshed copy (resulting in 2 API calls)
+     * then return a refreshed copy (resulting in 2 API calls unless the client's ResponseMode has been changed 
+     * from the default REFETCH)
      * @param bundleId the GUID of the Bundle for updating the Metadata
      * @param json a String containing valid JSON, or null. If null is passed, then the data is reset to a JSON equiv of {}
      * @return a refreshed Metadata instance for the media bundle
@@ -365,6 +838,20 @@ public class ClarifyClient extends Resty {
      * typically a 4xx HTTP error code + JSON payload with the error message and details
      */
     public BundleMetadata updateMetadata(String bundleId, String json) throws IOException {
+        return updateMetadata(bundleId, json, responseMode);
+    }
+
+    /**
+     * Updates the user-defined data property of the Bundle's Metadata with the supplied JSON string, using the 
+     * given ResponseMode to decide whether the Metadata is re-fetched after the update call
+     * @param bundleId the GUID of the Bundle for updating the Metadata
+     * @param json a String containing valid JSON, or null. If null is passed, then the data is reset to a JSON equiv of {}
+     * @param mode the ResponseMode for this call
+     * @return a Metadata instance for the media bundle
+     * @throws IOException if a failure occurred during the API,  
+     * typically a 4xx HTTP error code + JSON payload with the error message and details
+     */
+    public BundleMetadata updateMetadata(String bundleId, String json, ResponseMode mode) throws IOException {
         if(bundleId == null) {
             throw new RuntimeException("bundleId cannot be null");
         }
@@ -379,11 +866,18 @@ public class ClarifyClient extends Resty {
         } catch (JSONException e) {
             throw new RuntimeException(e);
         }
-        JSONResource jsonResource = 
-                json(buildPathFromResourcePath("/bundles/"+bundleId+"/metadata"), put(content(payload)));
+        String url = buildPathFromResourcePath("/bundles/"+bundleId+"/metadata");
+        ClarifyResponse updated = send("updateMetadata", "PUT", url, JSON_CONTENT_TYPE, payload.toString().getBytes(UTF8));
 
-        // re-retrieve
-        return findMetadata(bundleId);
+        if(mode == ResponseMode.REFETCH) {
+            // re-retrieve
+            return findMetadata(bundleId);
+        }
+        BundleMetadata metadata = new BundleMetadata(this, updated);
+        if(mode == ResponseMode.LAZY) {
+            metadata.deferResolution(url);
+        }
+        return metadata;
     }
     
     
@@ -399,10 +893,701 @@ public class ClarifyClient extends Resty {
             throw new RuntimeException("bundleId cannot be null");
         }
         
-        json(buildPathFromResourcePath("/bundles/"+bundleId+"/metadata"), delete());
+        send("resetMetadata", "DELETE", buildPathFromResourcePath("/bundles/"+bundleId+"/metadata"));
         return true;
     }
     
+    /**
+     * Returns the ResponseMode used by write operations that are not given an explicit mode
+     * @return the default ResponseMode for this client
+     */
+    public ResponseMode getResponseMode() {
+        return responseMode;
+    }
+
+    /**
+     * Sets the ResponseMode used by createBundle, addTrackToBundle and updateMetadata when no explicit mode is given.
+     * The default is ResponseMode.REFETCH.
+     * @param responseMode the default ResponseMode for this client
+     */
+    public void setResponseMode(ResponseMode responseMode) {
+        if(responseMode == null) { throw new RuntimeException("responseMode cannot be null"); }
+        this.responseMode = responseMode;
+    }
+
+    /**
+     * Returns the response cache used for GET requests
+     * @return the ResponseCache for this client, or null if caching is disabled
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Enables caching of GET responses (findBundle, findMetadata, listTracksForBundle, ...) with the given cache, 
+     * or disables caching if null is passed. Caching is disabled by default. A cache hit returns the cached 
+     * ClarifyResponse itself to every caller reading the same URL, so the JSON of the models it backs must be 
+     * treated as read-only.
+     * @param responseCache the ResponseCache to use, or null
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Determine if identical concurrent GET requests share one request
+     * @return true if request coalescing is enabled
+     */
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    /**
+     * Enables or disables request coalescing, which is disabled by default. When enabled, a GET request (findBundle, 
+     * findMetadata, listTracksForBundle, ...) for a URL that another thread is already requesting is not sent: 
+     * the caller waits for the request in flight and receives the same ClarifyResponse, or the same exception.
+     * Polls made to observe a change, such as those of a ProcessingWatcher, are never coalesced.
+     * 
+     * The callers then share one ClarifyResponse and the JSONObject parsed from it, so a change made by one caller 
+     * to the JSON of a model is seen by all the others. Enable coalescing only if callers treat responses as 
+     * read-only, as they must with a ResponseCache.
+     * @param requestCoalescing true to coalesce identical concurrent GET requests
+     */
+    public void setRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+    }
+
+    /**
+     * Returns the number of GET calls that were served by an identical request already in flight instead of 
+     * sending their own
+     * @return the number of coalesced calls since this client was created
+     */
+    public long getCoalescedRequestCount() {
+        return coalescer.getCoalescedCount();
+    }
+
+    /**
+     * Returns the number of GET requests currently in flight and open to coalescing
+     * @return the number of distinct URLs being requested
+     */
+    public int getInFlightRequestCount() {
+        return coalescer.getInFlightCount();
+    }
+
+    /**
+     * Determine if the API is asked to compress its responses
+     * @return true if gzip responses are accepted
+     */
+    public boolean isResponseCompression() {
+        return responseCompression;
+    }
+
+    /**
+     * Enables or disables compressed responses. When enabled, which is the default, requests are sent with
+     * Accept-Encoding: gzip and a compressed response is decompressed while it is read, including pages streamed
+     * to a PageItemHandler. Compression mostly pays off for large JSON pages such as those of searchBundles and
+     * listBundles. When disabled, requests are sent with Accept-Encoding: identity.
+     * @param responseCompression true to accept gzip responses
+     */
+    public void setResponseCompression(boolean responseCompression) {
+        this.responseCompression = responseCompression;
+    }
+
+    /**
+     * Returns the minimum size of a request body that is compressed
+     * @return the threshold in bytes, or -1 if request bodies are never compressed
+     */
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * Compresses request bodies, such as large updateMetadata payloads, of at least the given size with gzip and
+     * sends them with Content-Encoding: gzip. A body is sent as is when compressing it does not make it smaller.
+     * Request compression is disabled by default, since it requires the server to accept compressed bodies; media
+     * uploads are never compressed.
+     * @param minBytes the minimum body size to compress, or -1 to disable request compression
+     */
+    public void setRequestCompressionThreshold(int minBytes) {
+        if(minBytes < -1) { throw new RuntimeException("minBytes cannot be less than -1"); }
+        this.requestCompressionThreshold = minBytes;
+    }
+
+    /*
+     * Returns the helper retrieving Bundles with their expanded resources
+     */
+    BundleExpander getExpander() {
+        return expander;
+    }
+
+    /**
+     * Registers a listener called around every request this client sends through its transport
+     * @param listener the ClarifyListener to add, for example a ClarifyMetrics instance
+     */
+    public void addListener(ClarifyListener listener) {
+        if(listener == null) { throw new RuntimeException("listener cannot be null"); }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener registered with addListener()
+     * @param listener the ClarifyListener to remove
+     */
+    public void removeListener(ClarifyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the RetryPolicy applied to the requests of this client
+     * @return the RetryPolicy, or null if failed requests are not retried
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Retries failed idempotent requests of this client, and optionally hedges slow reads, according to the 
+     * given policy. Hedged requests are run on the client's executor.
+     * @param retryPolicy the RetryPolicy to apply, or null to fail on the first error
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the RateLimiter applied to the requests of this client
+     * @return the RateLimiter, or null if requests are not limited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Limits the rate and concurrency of the requests sent by this client. Responses served from the 
+     * ResponseCache do not count against the limit.
+     * @param rateLimiter the RateLimiter to apply, or null to send requests without limits
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Returns the maximum number of requests a batch operation such as findBundles() keeps in flight at once
+     * @return the batch concurrency limit
+     */
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of requests a batch operation such as findBundles() keeps in flight at once. 
+     * The default is DEFAULT_BATCH_CONCURRENCY.
+     * @param batchConcurrency the batch concurrency limit
+     */
+    public void setBatchConcurrency(int batchConcurrency) {
+        if(batchConcurrency < 1) { throw new RuntimeException("batchConcurrency must be at least 1"); }
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    /**
+     * Returns the executor used for background work such as batch operations, page prefetching and the 
+     * asynchronous API. Unless set, this is the shared ClarifyExecutors.getDefaultExecutor().
+     * @return the Executor for this client
+     */
+    public Executor getExecutor() {
+        Executor current = executor;
+        return (current == null) ? ClarifyExecutors.getDefaultExecutor() : current;
+    }
+
+    /**
+     * Sets the executor used for background work such as batch operations, page prefetching and the 
+     * asynchronous API
+     * @param executor the Executor for this client, or null to use the shared default executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns an asynchronous view of this client, whose operations return CompletableFutures and run on the
+     * client's executor (by default the shared executor, which uses virtual threads on Java 21 and later)
+     * @return an AsyncClarifyClient backed by this client
+     */
+    public AsyncClarifyClient async() {
+        return new AsyncClarifyClient(this, getExecutor());
+    }
+
+    /**
+     * Returns an asynchronous view of this client whose operations run on the given executor
+     * @param executor the Executor on which calls are run
+     * @return an AsyncClarifyClient backed by this client
+     */
+    public AsyncClarifyClient async(Executor executor) {
+        return new AsyncClarifyClient(this, executor);
+    }
+
+    /**
+     * Returns the ProcessingWatcher of this client, which waits for many Bundles to finish processing with a 
+     * single scheduler thread. The watcher is created on first use with the default poll intervals.
+     * @return the shared ProcessingWatcher for this client
+     */
+    public synchronized ProcessingWatcher getProcessingWatcher() {
+        if(processingWatcher == null) {
+            processingWatcher = new ProcessingWatcher(this);
+        }
+        return processingWatcher;
+    }
+
+    /*
+     * Stops the ProcessingWatcher of this client if it was created, so that a client removed from a
+     * ClarifyClientPool does not keep its scheduler thread
+     */
+    synchronized void closeProcessingWatcher() {
+        if(processingWatcher != null) {
+            processingWatcher.close();
+            processingWatcher = null;
+        }
+    }
+
+    /**
+     * Returns the transport used by this client to execute high-level API calls
+     * @return the ClarifyTransport for this client
+     */
+    public ClarifyTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the pooled transport shared by all clients constructed without an explicit transport. 
+     * The transport is created on first use.
+     * @return the shared default ClarifyTransport
+     */
+    public static synchronized ClarifyTransport getDefaultTransport() {
+        if(defaultTransport == null) {
+            defaultTransport = new OkHttpTransport();
+        }
+        return defaultTransport;
+    }
+
+    /**
+     * Sends a request without a body and returns the buffered response
+     * @param method the HTTP method
+     * @param url the full request URL
+     * @return the ClarifyResponse for the request
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
+     */
+    protected ClarifyResponse send(String method, String url) throws IOException {
+        return execute(new ClarifyHttpRequest(method, url));
+    }
+
+    /**
+     * Sends a request without a body, labelled with the given operation name, and returns the buffered response
+     * @param operation the logical operation reported to the listeners, such as findBundle
+     * @param method the HTTP method
+     * @param url the full request URL
+     * @return the ClarifyResponse for the request
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
+     */
+    protected ClarifyResponse send(String operation, String method, String url) throws IOException {
+        return execute(new ClarifyHttpRequest(method, url).operation(operation));
+    }
+
+    /**
+     * Sends a request with the given body and returns the buffered response
+     * @param method the HTTP method
+     * @param url the full request URL
+     * @param contentType the MIME type of the body
+     * @param body the request body
+     * @return the ClarifyResponse for the request
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
+     */
+    protected ClarifyResponse send(String method, String url, String contentType, byte[] body) throws IOException {
+        return execute(new ClarifyHttpRequest(method, url, contentType, body));
+    }
+
+    /**
+     * Sends a request with the given body, labelled with the given operation name, and returns the buffered response
+     * @param operation the logical operation reported to the listeners, such as updateBundle
+     * @param method the HTTP method
+     * @param url the full request URL
+     * @param contentType the MIME type of the body
+     * @param body the request body
+     * @return the ClarifyResponse for the request
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
+     */
+    protected ClarifyResponse send(String operation, String method, String url, String contentType, byte[] body) throws IOException {
+        return execute(new ClarifyHttpRequest(method, url, contentType, body).operation(operation));
+    }
+
+    /**
+     * Sends a GET request for a list or search page and streams its item arrays to the given handler while the
+     * response is read. The response cache is bypassed.
+     * @param operation the logical operation reported to the listeners, such as searchBundles
+     * @param url the full request URL
+     * @param handler the handler receiving the item_results and _links.items elements
+     * @return the ClarifyResponse for the page, without its item_results and _links.items arrays
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
+     */
+    protected ClarifyResponse stream(String operation, String url, PageItemHandler handler) throws IOException {
+        if(handler == null) { throw new RuntimeException("handler cannot be null"); }
+        ClarifyHttpRequest request = new ClarifyHttpRequest("GET", url).operation(operation);
+        prepare(request);
+        return attempt(request, handler);
+    }
+
+    /**
+     * Adds the credentials and standard headers to the request, executes it through the transport and buffers the response
+     * @param request the request to execute
+     * @return the ClarifyResponse for the request
+     * @throws ClarifyApiException if the API returned a non-success HTTP status code
+     * @throws IOException if the request could not be sent or the response could not be read
+     */
+    protected ClarifyResponse execute(ClarifyHttpRequest request) throws IOException {
+        return execute(request, false);
+    }
+
+    /**
+     * Sends a GET request for the current state of a resource: a cached response is never reused without
+     * revalidating it, so that an unchanged resource costs a 304 but a change is always seen
+     * @param operation the logical operation reported to the listeners
+     * @param url the full request URL
+     * @return the ClarifyResponse for the request
+     * @throws IOException on a non-success HTTP response containing the JSON payload with the message and any error details  
+     */
+    ClarifyResponse poll(String operation, String url) throws IOException {
+        return execute(new ClarifyHttpRequest("GET", url).operation(operation), true);
+    }
+
+    /*
+     * Executes the request, joining an identical GET request already in flight unless coalescing is disabled or
+     * the request must observe a change. When revalidate is true, a fresh cached response is revalidated instead
+     * of being returned as is.
+     */
+    private ClarifyResponse execute(final ClarifyHttpRequest request, boolean revalidate) throws IOException {
+        prepare(request);
+        if(!requestCoalescing || revalidate || !"GET".equals(request.getMethod())) {
+            return fetch(request, revalidate);
+        }
+        return coalescer.execute(request.getUrl(), new RequestCoalescer.Call() {
+            public ClarifyResponse call() throws IOException {
+                return fetch(request, false);
+            }
+        });
+    }
+
+    /*
+     * Executes a prepared request, serving GET requests from the response cache when it is enabled
+     */
+    private ClarifyResponse fetch(ClarifyHttpRequest request, boolean revalidate) throws IOException {
+        ResponseCache cache = responseCache;
+        if(cache == null) {
+            return attempt(request, null);
+        }
+        if(!"GET".equals(request.getMethod())) {
+            try {
+                return attempt(request, null);
+            } finally {
+                invalidateAfterWrite(cache, request.getUrl());
+            }
+        }
+
+        String url = request.getUrl();
+        // stamped before the request is sent, so that a response overtaken by a write is not stored
+        long generation = cache.generation();
+        ResponseCache.CachedResponse cached = cache.lookup(url);
+        if(cached != null) {
+            if(cached.isFresh() && !revalidate) {
+                return cached.response;
+            }
+            if(cached.etag != null) {
+                request.header("If-None-Match", cached.etag);
+            }
+            if(cached.lastModified != null) {
+                request.header("If-Modified-Since", cached.lastModified);
+            }
+        }
+        ClarifyResponse resp = attempt(request, null);
+        if(resp.getResponseCode() == 304 && cached != null) {
+            cache.revalidated(cached);
+            return cached.response;
+        }
+        if(resp.getResponseCode() == 200) {
+            cache.store(url, resp, generation);
+        }
+        return resp;
+    }
+
+    /**
+     * Executes the request through the transport and buffers the response, converting non-success 
+     * status codes into a ClarifyApiException
+     * @param request the request to execute
+     * @return the ClarifyResponse for the request
+     * @throws ClarifyApiException if the API returned a non-success HTTP status code
+     * @throws IOException if the request could not be sent or the response could not be read
+     */
+    protected ClarifyResponse exchange(ClarifyHttpRequest request) throws IOException {
+        return exchange(request, null);
+    }
+
+    /**
+     * Executes the request through the transport, converting non-success status codes into a ClarifyApiException.
+     * When a handler is given, the response is parsed while it is read from the network and the elements of
+     * item_results and _links.items are passed to the handler instead of being kept in the response. Otherwise
+     * the response is buffered.
+     * @param request the request to execute
+     * @param handler the handler receiving the page items, or null to buffer the whole response
+     * @return the ClarifyResponse for the request
+     * @throws ClarifyApiException if the API returned a non-success HTTP status code
+     * @throws IOException if the request could not be sent or the response could not be read
+     */
+    protected ClarifyResponse exchange(ClarifyHttpRequest request, PageItemHandler handler) throws IOException {
+        RateLimiter limiter = rateLimiter;
+        RateLimiter.Permit permit = (limiter == null) ? null : limiter.acquire();
+        ClarifyCallEvent event = requestStart(request);
+        ClarifyHttpResponse httpResponse = null;
+        try {
+            httpResponse = transport.execute(request);
+            ClarifyResponse response = read(request, httpResponse, handler, event);
+            requestEnd(event, null);
+            return response;
+        } catch (IOException e) {
+            requestEnd(event, e);
+            throw e;
+        } catch (RuntimeException e) {
+            requestEnd(event, new IOException(e));
+            throw e;
+        } finally {
+            if(permit != null) {
+                limiter.release(permit, httpResponse);
+            }
+        }
+    }
+
+    /*
+     * Helper to read and close a response, converting non-success status codes into a ClarifyApiException
+     */
+    private ClarifyResponse read(ClarifyHttpRequest request, ClarifyHttpResponse httpResponse, PageItemHandler handler, 
+            ClarifyCallEvent event) throws IOException {
+        try {
+            int status = httpResponse.getStatusCode();
+            String encoding = contentEncoding(httpResponse);
+            Map<String,List<String>> headers = (encoding == null) ? httpResponse.getHeaders() 
+                    : decodedHeaders(httpResponse.getHeaders());
+            CountingInputStream wire = (httpResponse.getBody() == null) ? null : new CountingInputStream(httpResponse.getBody());
+            CountingInputStream body = (wire == null || encoding == null) ? wire : new CountingInputStream(decode(wire, encoding));
+            try {
+                if(status >= 400 || handler == null) {
+                    byte[] content = ClarifyHttpResponse.readFully(body);
+                    if(status >= 400) {
+                        throw new ClarifyApiException(request.getMethod(), request.getUrl(), status, 
+                                headers, new String(content, UTF8));
+                    }
+                    return new ClarifyResponse(status, headers, content);
+                }
+                // a transport may return no body at all, which is read as an empty one, as readFully() does
+                InputStream content = (body == null) ? new ByteArrayInputStream(new byte[0]) : body;
+                JSONObject page = StreamingPageParser.parse(new InputStreamReader(content, UTF8), handler);
+                return new ClarifyResponse(status, headers, page.toString().getBytes(UTF8));
+            } finally {
+                if(event != null) {
+                    event.responded(status, (wire == null) ? 0 : wire.count, (body == null) ? 0 : body.count, encoding);
+                }
+                if(body != wire) {
+                    // releases the Inflater of a decompressed body
+                    body.close();
+                }
+            }
+        } finally {
+            httpResponse.close();
+        }
+    }
+
+    /*
+     * Helper to notify the listeners that a request is about to be sent
+     */
+    private ClarifyCallEvent requestStart(ClarifyHttpRequest request) {
+        int attempt = request.nextAttempt();
+        if(listeners.isEmpty()) {
+            return null;
+        }
+        for(ClarifyListener listener : listeners) {
+            try {
+                listener.requestStart(request);
+            } catch (RuntimeException e) {
+                // a failing listener must not fail the call
+            }
+        }
+        return new ClarifyCallEvent(request, attempt);
+    }
+
+    /*
+     * Helper to notify the listeners that a request attempt has ended
+     */
+    private void requestEnd(ClarifyCallEvent event, IOException error) {
+        if(event == null) {
+            return;
+        }
+        event.ended(error);
+        for(ClarifyListener listener : listeners) {
+            try {
+                listener.requestEnd(event);
+            } catch (RuntimeException e) {
+                // a failing listener must not fail the call
+            }
+        }
+    }
+
+    /*
+     * Helper to exchange a request under the RetryPolicy, if one is installed. A streamed page is retried only
+     * as long as none of its items have reached the handler.
+     */
+    private ClarifyResponse attempt(final ClarifyHttpRequest request, final PageItemHandler handler) throws IOException {
+        RetryPolicy policy = retryPolicy;
+        if(policy == null) {
+            return exchange(request, handler);
+        }
+        if(handler == null) {
+            return policy.execute(request, new RetryPolicy.Attempt() {
+                public ClarifyResponse run() throws IOException {
+                    return exchange(request, null);
+                }
+
+                public boolean canRepeat() {
+                    // a body streamed from an InputStream cannot be sent twice
+                    return request.isRepeatable();
+                }
+            }, true, getExecutor());
+        }
+
+        final AtomicBoolean delivered = new AtomicBoolean();
+        final PageItemHandler tracking = new PageItemHandler() {
+            public void onItem(String field, int index, JSONObject item) throws IOException {
+                delivered.set(true);
+                handler.onItem(field, index, item);
+            }
+        };
+        return policy.execute(request, new RetryPolicy.Attempt() {
+            public ClarifyResponse run() throws IOException {
+                return exchange(request, tracking);
+            }
+
+            public boolean canRepeat() {
+                return !delivered.get();
+            }
+        }, false, getExecutor());
+    }
+
+    /*
+     * Helper to add the credentials and the standard headers to a request
+     */
+    private void prepare(ClarifyHttpRequest request) throws IOException {
+        request.header("Authorization", "Bearer "+appKey)
+               .header("User-Agent", userAgent)
+               .header("Accept", JSON_CONTENT_TYPE)
+               .header("Accept-Encoding", responseCompression ? GZIP : IDENTITY);
+        int threshold = requestCompressionThreshold;
+        byte[] body = request.getBody();
+        if(threshold >= 0 && body != null && body.length >= threshold && request.getContentEncoding() == null) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2 + 64);
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192);
+            gzip.write(body);
+            gzip.close();
+            if(compressed.size() < body.length) {
+                request.encodeBody(GZIP, compressed.toByteArray());
+            }
+        }
+    }
+
+    /*
+     * Helper to wrap a response body in a decompressing stream according to its Content-Encoding. An empty body
+     * is returned as is, since some servers label the empty body of a 204 or 304 as compressed.
+     */
+    private static InputStream decode(InputStream body, String encoding) throws IOException {
+        if(body == null || encoding == null) {
+            return body;
+        }
+        if(!GZIP.equalsIgnoreCase(encoding) && !"x-gzip".equalsIgnoreCase(encoding)) {
+            throw new IOException("unsupported Content-Encoding: "+encoding);
+        }
+        BufferedInputStream buffered = new BufferedInputStream(body, 8192);
+        buffered.mark(1);
+        if(buffered.read() < 0) {
+            return buffered;
+        }
+        buffered.reset();
+        return new GZIPInputStream(buffered, 8192);
+    }
+
+    /*
+     * Helper to find the Content-Encoding of a response, or null if the body is not encoded
+     */
+    private static String contentEncoding(ClarifyHttpResponse httpResponse) {
+        String encoding = httpResponse.getHeader("Content-Encoding");
+        if(encoding == null) {
+            return null;
+        }
+        encoding = encoding.trim();
+        return (encoding.length() == 0 || IDENTITY.equalsIgnoreCase(encoding)) ? null : encoding;
+    }
+
+    /*
+     * Helper to drop the headers describing the encoded body from the headers of a decoded response
+     */
+    private static Map<String,List<String>> decodedHeaders(Map<String,List<String>> headers) {
+        Map<String,List<String>> decoded = new LinkedHashMap<String,List<String>>();
+        for(Map.Entry<String,List<String>> header : headers.entrySet()) {
+            String name = header.getKey();
+            if(!"Content-Encoding".equalsIgnoreCase(name) && !"Content-Length".equalsIgnoreCase(name)) {
+                decoded.put(name, header.getValue());
+            }
+        }
+        return decoded;
+    }
+
+    /*
+     * Helper to drop the cached responses affected by a write: the Bundle the write was made to, including its 
+     * tracks and metadata, and the pages of the Bundle listing
+     */
+    private void invalidateAfterWrite(ResponseCache cache, String url) {
+        int query = url.indexOf('?');
+        String path = (query < 0) ? url : url.substring(0, query);
+        int bundles = path.indexOf("/bundles/");
+        if(bundles >= 0) {
+            int end = path.indexOf('/', bundles+"/bundles/".length());
+            cache.invalidateTree((end < 0) ? path : path.substring(0, end));
+        }
+        cache.invalidateQueries(buildPathFromResourcePath("/bundles"));
+    }
+
+    /*
+     * Helper to find the full URL of a resource from the _links.self.href of a write response, falling back
+     * to the given resource path if the response has no self link, or failing as REFETCH does if there is no
+     * resource path either
+     */
+    private String selfUrl(ClarifyResponse response, String resourcePath) {
+        try {
+            return buildPathFromHref((String)response.getJSONResource().get("_links.self.href"));
+        } catch (Exception e) {
+            if(resourcePath == null) {
+                throw new RuntimeException(e);
+            }
+            return buildPathFromResourcePath(resourcePath);
+        }
+    }
+
+    /*
+     * Helper to find the id of the resource in a write response
+     * @return the id, or null if the response has none
+     */
+    private static String idOf(ClarifyResponse response) {
+        try {
+            Object id = response.getJSONResource().get("id");
+            return (id instanceof String) ? (String)id : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     /**
      * Helper to concatenate the base URI of the Clarify API with a given HREF
      * @param href the full path to the resource 
@@ -438,17 +1623,18 @@ public class ClarifyClient extends Resty {
      * 
      */
     public String urlEncodeMap(Map<String,String> fields) {
-        StringBuffer params = new StringBuffer();
-        Iterator<String> keys = fields.keySet().iterator();
-        while(keys.hasNext()) {
-            String key = keys.next();
-            String value = fields.get(key);
-            if(params.length() > 0) {
-                params.append("&");
-            }
-            params.append(key+"="+Resty.enc(value));
-        }
-        return params.toString();
+        return new String(FormEncoder.encode(fields), UTF8);
+    }
+
+    /**
+     * Encodes a flat Map of name/value String pairs as an application/x-www-form-urlencoded request body. 
+     * The result is the UTF-8 encoding of urlEncodeMap(fields), written directly into a single array of the
+     * exact size without intermediate Strings.
+     * @param fields the form fields; values cannot be null
+     * @return the encoded request body
+     */
+    public byte[] encodeForm(Map<String,String> fields) {
+        return FormEncoder.encode(fields);
     }
     
     /**
@@ -456,7 +1642,7 @@ public class ClarifyClient extends Resty {
      * @return the root of the API
      */
     protected String baseUri() {
-        return CLARIFY_BASE_URI;
+        return (baseUri == null) ? CLARIFY_BASE_URI : baseUri;
     }
 
     /**
@@ -464,10 +1650,62 @@ public class ClarifyClient extends Resty {
      * @return version of the API
      */
     protected String version() {
-        return DEFAULT_VERSION;
+        return (version == null) ? DEFAULT_VERSION : version;
     }
 
-    private String appKey;
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+    private static final String MEDIA_FIELD = "media";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final String GZIP = "gzip";
+    private static final String IDENTITY = "identity";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static ClarifyTransport defaultTransport;
+
+    private final String appKey;
     private Resty resty;
+    private final ClarifyTransport transport;
+    // fixed by a ClarifyClientConfig, or null to read CLARIFY_BASE_URI and DEFAULT_VERSION on every call
+    private final String baseUri;
+    private final String version;
+    private volatile ResponseMode responseMode = ResponseMode.REFETCH;
+    private volatile int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+    private volatile Executor executor;
+    private volatile ResponseCache responseCache;
+    private volatile RateLimiter rateLimiter;
+    private volatile RetryPolicy retryPolicy;
+    private volatile boolean requestCoalescing;
+    private volatile boolean responseCompression = true;
+    private volatile int requestCompressionThreshold = -1;
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final BundleExpander expander = new BundleExpander(this);
+    private ProcessingWatcher processingWatcher;
+    private final List<ClarifyListener> listeners = new CopyOnWriteArrayList<ClarifyListener>();
+
+    /*
+     * Counts the bytes read from a streamed response body
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if(n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        private long count;
+    }
     
 }
@@ -0,0 +1,322 @@
+package io.clarify.api;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The immutable settings of a ClarifyClient: the application key, the API endpoint and version, the transport and
+ * the behavior of the high-level API. A config is built once with a Builder and may be shared by any number of
+ * threads and clients; toBuilder() derives a new config, for example for another application key.
+ *
+ * Unlike ClarifyClient.CLARIFY_BASE_URI and DEFAULT_VERSION, which are read on every call by the clients created
+ * with an application key only, the base URI and version of a config are fixed when it is built.
+ *
+ * Example:
+ *
+ * ClarifyClientConfig config = ClarifyClientConfig.builder()
+ *     .appKey(appKey)
+ *     .retryPolicy(new RetryPolicy())
+ *     .responseMode(ResponseMode.LAZY)
+ *     .build();
+ * ClarifyClient client = new ClarifyClient(config);
+ */
+public final class ClarifyClientConfig {
+
+    private ClarifyClientConfig(Builder builder) {
+        this.appKey = builder.appKey;
+        this.baseUri = (builder.baseUri == null) ? ClarifyClient.CLARIFY_BASE_URI : builder.baseUri;
+        this.version = (builder.version == null) ? ClarifyClient.DEFAULT_VERSION : builder.version;
+        this.userAgent = builder.userAgent;
+        this.transport = builder.transport;
+        this.executor = builder.executor;
+        this.responseMode = builder.responseMode;
+        this.batchConcurrency = builder.batchConcurrency;
+        this.responseCache = builder.responseCache;
+        this.rateLimiter = builder.rateLimiter;
+        this.retryPolicy = builder.retryPolicy;
+        this.requestCoalescing = builder.requestCoalescing;
+        this.responseCompression = builder.responseCompression;
+        this.requestCompressionThreshold = builder.requestCompressionThreshold;
+    }
+
+    /**
+     * Returns a new Builder for configuring a ClarifyClient
+     * @return a Builder initialized with the default settings
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a new Builder initialized with the settings of this config
+     * @return a Builder holding a copy of these settings
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Returns the Clarify application key
+     * @return the application key, or null if none was set, as in the template of a ClarifyClientPool
+     */
+    public String getAppKey() {
+        return appKey;
+    }
+
+    public String getBaseUri() {
+        return baseUri;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the User-Agent sent with every request
+     * @return the user agent, or null to send the SDK's default user agent
+     */
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    /**
+     * Returns the transport used to execute requests
+     * @return the ClarifyTransport, or null to use ClarifyClient.getDefaultTransport()
+     */
+    public ClarifyTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the executor used for background work
+     * @return the Executor, or null to use ClarifyExecutors.getDefaultExecutor()
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public ResponseMode getResponseMode() {
+        return responseMode;
+    }
+
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    /**
+     * Returns the cache of GET responses
+     * @return the ResponseCache, or null if caching is disabled
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Returns the rate limiter applied to all requests
+     * @return the RateLimiter, or null if requests are not limited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Returns the policy used to retry failed requests
+     * @return the RetryPolicy, or null if failed requests are not retried
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    public boolean isResponseCompression() {
+        return responseCompression;
+    }
+
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    public String toString() {
+        return "ClarifyClientConfig[baseUri="+baseUri+", version="+version+", appKey="+((appKey == null) ? "none" : "***")+"]";
+    }
+
+    /**
+     * Fluent builder for ClarifyClientConfig. A Builder is not thread-safe; the config it builds is.
+     */
+    public static class Builder {
+        Builder() {
+        }
+
+        Builder(ClarifyClientConfig config) {
+            this.appKey = config.appKey;
+            this.baseUri = config.baseUri;
+            this.version = config.version;
+            this.userAgent = config.userAgent;
+            this.transport = config.transport;
+            this.executor = config.executor;
+            this.responseMode = config.responseMode;
+            this.batchConcurrency = config.batchConcurrency;
+            this.responseCache = config.responseCache;
+            this.rateLimiter = config.rateLimiter;
+            this.retryPolicy = config.retryPolicy;
+            this.requestCoalescing = config.requestCoalescing;
+            this.responseCompression = config.responseCompression;
+            this.requestCompressionThreshold = config.requestCompressionThreshold;
+        }
+
+        /**
+         * Sets the Clarify application key sent with every request
+         */
+        public Builder appKey(String appKey) {
+            this.appKey = appKey;
+            return this;
+        }
+
+        /**
+         * Sets the root of the API, by default the value of ClarifyClient.CLARIFY_BASE_URI when the config is built
+         */
+        public Builder baseUri(String baseUri) {
+            if(baseUri == null) { throw new RuntimeException("baseUri cannot be null"); }
+            this.baseUri = baseUri;
+            return this;
+        }
+
+        /**
+         * Sets the API version, by default the value of ClarifyClient.DEFAULT_VERSION when the config is built
+         */
+        public Builder version(String version) {
+            if(version == null) { throw new RuntimeException("version cannot be null"); }
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Sets the User-Agent sent with every request, or null for the SDK's default user agent
+         */
+        public Builder userAgent(String userAgent) {
+            this.userAgent = userAgent;
+            return this;
+        }
+
+        /**
+         * Sets the transport used to execute requests, or null to use the shared ClarifyClient.getDefaultTransport()
+         */
+        public Builder transport(ClarifyTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Sets the executor used for background work, or null to use the shared default executor
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the ResponseMode of write operations called without an explicit mode. Defaults to REFETCH.
+         */
+        public Builder responseMode(ResponseMode responseMode) {
+            if(responseMode == null) { throw new RuntimeException("responseMode cannot be null"); }
+            this.responseMode = responseMode;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests a batch operation keeps in flight at once
+         */
+        public Builder batchConcurrency(int batchConcurrency) {
+            if(batchConcurrency < 1) { throw new RuntimeException("batchConcurrency must be at least 1"); }
+            this.batchConcurrency = batchConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets the cache of GET responses, or null to disable caching
+         */
+        public Builder responseCache(ResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * Sets the rate limiter applied to all requests, or null to send requests without limit
+         */
+        public Builder rateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Sets the policy used to retry failed requests, or null to disable retries
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Enables or disables the coalescing of identical concurrent GET requests, whose callers then share one
+         * response and must not modify it. Disabled by default.
+         */
+        public Builder requestCoalescing(boolean requestCoalescing) {
+            this.requestCoalescing = requestCoalescing;
+            return this;
+        }
+
+        /**
+         * Enables or disables gzip responses. Enabled by default.
+         */
+        public Builder responseCompression(boolean responseCompression) {
+            this.responseCompression = responseCompression;
+            return this;
+        }
+
+        /**
+         * Sets the minimum size of a request body that is compressed, or -1 to disable request compression, which
+         * is the default
+         */
+        public Builder requestCompressionThreshold(int minBytes) {
+            if(minBytes < -1) { throw new RuntimeException("minBytes cannot be less than -1"); }
+            this.requestCompressionThreshold = minBytes;
+            return this;
+        }
+
+        public ClarifyClientConfig build() {
+            return new ClarifyClientConfig(this);
+        }
+
+        private String appKey;
+        private String baseUri;
+        private String version;
+        private String userAgent;
+        private ClarifyTransport transport;
+        private Executor executor;
+        private ResponseMode responseMode = ResponseMode.REFETCH;
+        private int batchConcurrency = ClarifyClient.DEFAULT_BATCH_CONCURRENCY;
+        private ResponseCache responseCache;
+        private RateLimiter rateLimiter;
+        private RetryPolicy retryPolicy;
+        private boolean requestCoalescing;
+        private boolean responseCompression = true;
+        private int requestCompressionThreshold = -1;
+    }
+
+    private final String appKey;
+    private final String baseUri;
+    private final String version;
+    private final String userAgent;
+    private final ClarifyTransport transport;
+    private final Executor executor;
+    private final ResponseMode responseMode;
+    private final int batchConcurrency;
+    private final ResponseCache responseCache;
+    private final RateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final boolean requestCoalescing;
+    private final boolean responseCompression;
+    private final int requestCompressionThreshold;
+}
@@ -0,0 +1,135 @@
+package io.clarify.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serves many application keys, such as one per customer, from one JVM. The pool keeps one thread-safe
+ * ClarifyClient per application key, created on first use from a template ClarifyClientConfig. All clients share
+ * the template's transport, so connections and TLS sessions to the API are reused across tenants, and its
+ * executor.
+ *
+ * Each client has its own request coalescing and, when a Customizer gives it one, its own ResponseCache and
+ * RateLimiter. A ResponseCache in the template is refused: its entries are keyed by URL, and URLs such as the
+ * first page of the List Bundles API are the same for every application key, so a shared cache would serve one
+ * tenant's data to another. A RateLimiter in the template is shared, limiting the requests of all tenants together.
+ *
+ * Example:
+ *
+ * ClarifyClientPool pool = new ClarifyClientPool(ClarifyClientConfig.builder().retryPolicy(new RetryPolicy()).build(),
+ *     new ClarifyClientPool.Customizer() {
+ *         public void customize(String appKey, ClarifyClientConfig.Builder builder) {
+ *             builder.rateLimiter(new RateLimiter(10, 4));
+ *         }
+ *     });
+ * BundleList bundles = pool.getClient(customer.getClarifyKey()).listBundles();
+ */
+public class ClarifyClientPool {
+
+    /**
+     * Adjusts the config of the client of one application key before it is created
+     */
+    public interface Customizer {
+        /**
+         * Called once for each application key, with a Builder holding the template and the key
+         * @param appKey the application key of the client
+         * @param builder the Builder of the client's config
+         */
+        void customize(String appKey, ClarifyClientConfig.Builder builder);
+    }
+
+    /**
+     * Creates a pool whose clients all use the settings of the template
+     * @param template the settings of every client; its application key, if any, is ignored
+     */
+    public ClarifyClientPool(ClarifyClientConfig template) {
+        this(template, null);
+    }
+
+    /**
+     * Creates a pool whose clients use the settings of the template as adjusted by the customizer
+     * @param template the settings of every client; its application key, if any, is ignored
+     * @param customizer called before the client of each application key is created, or null
+     */
+    public ClarifyClientPool(ClarifyClientConfig template, Customizer customizer) {
+        if(template == null) { throw new RuntimeException("template cannot be null"); }
+        if(template.getResponseCache() != null) {
+            throw new RuntimeException("a ResponseCache cannot be shared by the clients of a pool; give each client its own with a Customizer");
+        }
+        ClarifyTransport transport = (template.getTransport() == null) ? ClarifyClient.getDefaultTransport() : template.getTransport();
+        this.template = template.toBuilder().appKey(null).transport(transport).build();
+        this.customizer = customizer;
+    }
+
+    /**
+     * Returns the client of an application key, creating it on first use. Concurrent callers asking for the same
+     * key receive the same client.
+     * @param appKey the Clarify application key
+     * @return the shared ClarifyClient of the key
+     */
+    public ClarifyClient getClient(String appKey) {
+        if(appKey == null) { throw new RuntimeException("appKey cannot be null"); }
+        ClarifyClient client = clients.get(appKey);
+        if(client == null) {
+            ClarifyClient created = create(appKey);
+            client = clients.putIfAbsent(appKey, created);
+            if(client == null) {
+                client = created;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Removes the client of an application key, for example when a customer leaves, and stops its
+     * ProcessingWatcher. Callers still holding the client may keep using it.
+     * @param appKey the Clarify application key
+     * @return true if the pool held a client for the key
+     */
+    public boolean remove(String appKey) {
+        if(appKey == null) { throw new RuntimeException("appKey cannot be null"); }
+        ClarifyClient client = clients.remove(appKey);
+        if(client == null) {
+            return false;
+        }
+        client.closeProcessingWatcher();
+        return true;
+    }
+
+    /**
+     * Returns the number of application keys with a client in the pool
+     */
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * Returns the template of the clients, with the transport they share
+     * @return the template ClarifyClientConfig, without an application key
+     */
+    public ClarifyClientConfig getTemplate() {
+        return template;
+    }
+
+    /**
+     * Returns the transport shared by all clients of the pool
+     * @return the shared ClarifyTransport
+     */
+    public ClarifyTransport getTransport() {
+        return template.getTransport();
+    }
+
+    private ClarifyClient create(String appKey) {
+        ClarifyClientConfig.Builder builder = template.toBuilder().appKey(appKey);
+        if(customizer != null) {
+            customizer.customize(appKey, builder);
+            // the key and the shared transport are not the customizer's to change
+            builder.appKey(appKey).transport(template.getTransport());
+        }
+        return new ClarifyClient(builder.build());
+    }
+
+    private final ClarifyClientConfig template;
+    private final Customizer customizer;
+    private final ConcurrentMap<String,ClarifyClient> clients = new ConcurrentHashMap<String,ClarifyClient>();
+}
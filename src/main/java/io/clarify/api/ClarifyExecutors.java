@@ -0,0 +1,65 @@
+package io.clarify.api;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory methods for the executors used by the SDK to run API calls in the background.
+ *
+ * On Java 21 and later the default executor starts a new virtual thread per task, so thousands of blocking API
+ * calls can be in flight without thousands of platform threads. On earlier JVMs it falls back to a cached pool
+ * of daemon platform threads.
+ */
+public final class ClarifyExecutors {
+
+    private ClarifyExecutors() {
+    }
+
+    /**
+     * Returns the executor shared by all SDK components that are not given an explicit executor. The executor
+     * is created on first use.
+     * @return the shared default ExecutorService
+     */
+    public static synchronized ExecutorService getDefaultExecutor() {
+        if(defaultExecutor == null) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            defaultExecutor = (virtual != null) ? virtual : Executors.newCachedThreadPool(daemonThreadFactory("clarify-worker"));
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task
+     * @return a new virtual-thread-per-task ExecutorService, or null if the running JVM does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)factory.invoke(null);
+        } catch (Exception e) {
+            // virtual threads are not available before Java 21
+            return null;
+        }
+    }
+
+    /**
+     * Creates a ThreadFactory for named daemon threads, so that SDK background threads never prevent the JVM from exiting
+     * @param prefix the thread name prefix; threads are named prefix-1, prefix-2, ...
+     * @return a new ThreadFactory
+     */
+    public static ThreadFactory daemonThreadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, prefix+"-"+count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static ExecutorService defaultExecutor;
+}
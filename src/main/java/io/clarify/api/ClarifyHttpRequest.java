@@ -0,0 +1,188 @@
+package io.clarify.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Describes a single HTTP request issued by the ClarifyClient to the Clarify REST API. Instances are handed to a
+ * ClarifyTransport for execution and carry everything the transport needs: the method, the full request URL,
+ * the request headers and an optional request body, either held in memory or streamed.
+ *
+ * A request may also be labelled with the logical operation it belongs to, such as findBundle or nextPage, which
+ * is reported to the ClarifyListeners of the client.
+ */
+public class ClarifyHttpRequest {
+
+    /**
+     * Creates a new request without a body
+     * @param method the HTTP method (GET, POST, PUT or DELETE)
+     * @param url the full request URL, as built by ClarifyClient.buildPathFromResourcePath or buildPathFromHref
+     */
+    public ClarifyHttpRequest(String method, String url) {
+        this(method, url, null, null);
+    }
+
+    /**
+     * Creates a new request with the given body
+     * @param method the HTTP method (GET, POST, PUT or DELETE)
+     * @param url the full request URL, as built by ClarifyClient.buildPathFromResourcePath or buildPathFromHref
+     * @param contentType the MIME type of the body, or null if there is no body
+     * @param body the request body, or null if there is no body
+     */
+    public ClarifyHttpRequest(String method, String url, String contentType, byte[] body) {
+        if(method == null) { throw new RuntimeException("method cannot be null"); }
+        if(url == null) { throw new RuntimeException("url cannot be null"); }
+        this.method = method;
+        this.url = url;
+        this.contentType = contentType;
+        this.body = body;
+        this.streamingBody = null;
+        this.headers = new LinkedHashMap<String,String>();
+    }
+
+    /**
+     * Creates a new request whose body is written to the network while the request is sent
+     * @param method the HTTP method (POST or PUT)
+     * @param url the full request URL, as built by ClarifyClient.buildPathFromResourcePath or buildPathFromHref
+     * @param body the streaming request body
+     */
+    public ClarifyHttpRequest(String method, String url, ClarifyRequestBody body) {
+        if(method == null) { throw new RuntimeException("method cannot be null"); }
+        if(url == null) { throw new RuntimeException("url cannot be null"); }
+        if(body == null) { throw new RuntimeException("body cannot be null"); }
+        this.method = method;
+        this.url = url;
+        this.contentType = body.getContentType();
+        this.body = null;
+        this.streamingBody = body;
+        this.headers = new LinkedHashMap<String,String>();
+    }
+
+    /**
+     * Sets a request header, replacing any existing value for the same name
+     * @param name the header name
+     * @param value the header value
+     * @return this request, for chaining
+     */
+    public ClarifyHttpRequest header(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Labels the request with the logical operation it belongs to
+     * @param operation the operation name, such as createBundle or searchBundles
+     * @return this request, for chaining
+     */
+    public ClarifyHttpRequest operation(String operation) {
+        this.operation = operation;
+        return this;
+    }
+
+    /**
+     * Returns the logical operation this request belongs to
+     * @return the operation name, or the HTTP method if the request was not labelled
+     */
+    public String getOperation() {
+        return (operation == null) ? method : operation;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the request body held in memory
+     * @return the body, or null if the request has no body or a streaming body
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Returns the body written to the network while the request is sent. Transports must send this body when
+     * it is present, with a fixed Content-Length if its length is known and chunked otherwise.
+     * @return the streaming body, or null if the request has no body or a body held in memory
+     */
+    public ClarifyRequestBody getStreamingBody() {
+        return streamingBody;
+    }
+
+    /**
+     * Determine if the request can be sent again after a failed attempt, which is the case unless its streaming
+     * body can only be written once
+     * @return true if the request body may be sent again
+     */
+    public boolean isRepeatable() {
+        return streamingBody == null || streamingBody.isRepeatable();
+    }
+
+    /**
+     * Returns the headers to send with this request
+     * @return an unmodifiable Map of header names to values
+     */
+    public Map<String,String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    public String toString() {
+        return method+" "+url;
+    }
+
+    /**
+     * Returns the Content-Encoding of the request body
+     * @return the encoding, such as gzip, or null if the body is sent as is
+     */
+    public String getContentEncoding() {
+        for(Map.Entry<String,String> header : headers.entrySet()) {
+            if("Content-Encoding".equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Replaces the body held in memory with its encoded form and sets the Content-Encoding header
+     */
+    void encodeBody(String encoding, byte[] encoded) {
+        if(body == null) { throw new RuntimeException("request has no body to encode"); }
+        this.decodedLength = body.length;
+        this.body = encoded;
+        headers.put("Content-Encoding", encoding);
+    }
+
+    /*
+     * Returns the length of the body before it was encoded, or -1 if the body is not encoded
+     */
+    long getDecodedLength() {
+        return decodedLength;
+    }
+
+    /*
+     * Returns the number of the attempt about to be made, counting retries and hedged duplicates
+     */
+    int nextAttempt() {
+        return attempts.incrementAndGet();
+    }
+
+    private final String method;
+    private final String url;
+    private final String contentType;
+    private byte[] body;
+    private final ClarifyRequestBody streamingBody;
+    private final Map<String,String> headers;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private volatile String operation;
+    private long decodedLength = -1;
+}
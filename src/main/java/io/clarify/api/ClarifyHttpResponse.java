@@ -0,0 +1,116 @@
+package io.clarify.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The raw HTTP response returned by a ClarifyTransport. The body is exposed as a stream so that callers can
+ * decide whether to buffer it or consume it incrementally. The response must be closed once the body has been
+ * consumed, which returns the underlying connection to the transport's pool.
+ */
+public class ClarifyHttpResponse implements Closeable {
+
+    /**
+     * Creates a new response
+     * @param statusCode the HTTP status code
+     * @param headers the response headers, keyed by header name
+     * @param body a stream over the response body, or null if there is no body
+     * @param onClose an optional Closeable invoked when this response is closed (for releasing pooled resources), may be null
+     */
+    public ClarifyHttpResponse(int statusCode, Map<String,List<String>> headers, InputStream body, Closeable onClose) {
+        this.statusCode = statusCode;
+        this.headers = (headers == null) ? Collections.<String,List<String>>emptyMap() : headers;
+        this.body = body;
+        this.onClose = onClose;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Map<String,List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Returns the first value of the given header, matching the header name case-insensitively
+     * @param name the header name
+     * @return the header value, or null if the header is not present
+     */
+    public String getHeader(String name) {
+        return findHeader(headers, name);
+    }
+
+    /**
+     * Returns the response body as a stream. The stream may only be consumed once.
+     * @return the response body stream, or null if there is no body
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * Reads the remaining response body fully into memory
+     * @return the response body bytes, or an empty array if there is no body
+     * @throws IOException if the body could not be read
+     */
+    public byte[] readBody() throws IOException {
+        return readFully(body);
+    }
+
+    /**
+     * Closes the body stream and releases any resources held by the transport for this response
+     */
+    public void close() throws IOException {
+        try {
+            if(body != null) {
+                body.close();
+            }
+        } finally {
+            if(onClose != null) {
+                onClose.close();
+            }
+        }
+    }
+
+    /*
+     * Helper to read a stream fully into memory, returning an empty array for a null stream
+     */
+    static byte[] readFully(InputStream in) throws IOException {
+        if(in == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /*
+     * Helper to find the first value of a header in a header map, ignoring the case of the header name
+     */
+    static String findHeader(Map<String,List<String>> headers, String name) {
+        if(headers == null || name == null) {
+            return null;
+        }
+        for(Map.Entry<String,List<String>> entry : headers.entrySet()) {
+            if(name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    private final int statusCode;
+    private final Map<String,List<String>> headers;
+    private final InputStream body;
+    private final Closeable onClose;
+}
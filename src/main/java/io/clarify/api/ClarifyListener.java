@@ -0,0 +1,28 @@
+package io.clarify.api;
+
+/**
+ * Receives a callback around every request a ClarifyClient sends through its transport. Register listeners with
+ * ClarifyClient.addListener(); ClarifyMetrics is a ready-made listener collecting latency histograms and counters.
+ *
+ * requestStart() is called on the calling thread just before the request is handed to the transport, and may
+ * add headers to the request, for example to propagate a trace context. requestEnd() is called once the response
+ * has been read or the attempt failed. Responses served from a ResponseCache, and calls that joined an identical
+ * request already in flight, are not sent and produce no callbacks.
+ *
+ * Listeners are called concurrently from all threads using the client and must be thread-safe. An exception
+ * thrown by a listener is ignored, so that instrumentation can never fail an API call.
+ */
+public interface ClarifyListener {
+
+    /**
+     * Called before a request is sent
+     * @param request the request about to be sent
+     */
+    void requestStart(ClarifyHttpRequest request);
+
+    /**
+     * Called after a request attempt completed or failed
+     * @param event the details of the attempt
+     */
+    void requestEnd(ClarifyCallEvent event);
+}
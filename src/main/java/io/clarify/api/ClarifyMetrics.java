@@ -0,0 +1,215 @@
+package io.clarify.api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A ClarifyListener that collects the metrics of the requests sent by one or more clients: a LatencyHistogram
+ * per logical operation (createBundle, searchBundles, nextPage, ...), bytes sent and received before and after
+ * compression, errors by HTTP
+ * status code, network failures and retries. When created for an OkHttpTransport, it also reports the state of
+ * the connection pool.
+ *
+ * Example:
+ *
+ * ClarifyMetrics metrics = new ClarifyMetrics(client.getTransport());
+ * client.addListener(metrics);
+ * ...
+ * System.out.println(metrics.getLatency("searchBundles").getPercentile(0.99, TimeUnit.MILLISECONDS));
+ */
+public class ClarifyMetrics implements ClarifyListener {
+
+    /**
+     * Creates metrics without connection pool statistics
+     */
+    public ClarifyMetrics() {
+        this(null);
+    }
+
+    /**
+     * Creates metrics reporting the connection pool statistics of the given transport
+     * @param transport the transport of the instrumented clients, or null
+     */
+    public ClarifyMetrics(ClarifyTransport transport) {
+        this.transport = transport;
+    }
+
+    public void requestStart(ClarifyHttpRequest request) {
+        inFlight.incrementAndGet();
+    }
+
+    public void requestEnd(ClarifyCallEvent event) {
+        inFlight.decrementAndGet();
+        requests.incrementAndGet();
+        if(event.getAttempt() > 1) {
+            retries.incrementAndGet();
+        }
+        bytesSent.addAndGet(event.getBytesSent());
+        bytesReceived.addAndGet(event.getBytesReceived());
+        uncompressedBytesSent.addAndGet(event.getUncompressedBytesSent());
+        uncompressedBytesReceived.addAndGet(event.getUncompressedBytesReceived());
+        if(event.getStatusCode() >= 400) {
+            counter(errorsByStatus, event.getStatusCode()).incrementAndGet();
+        } else if(!event.isSuccess()) {
+            networkErrors.incrementAndGet();
+        }
+        LatencyHistogram histogram = latencies.get(event.getOperation());
+        if(histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = latencies.putIfAbsent(event.getOperation(), created);
+            if(histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(event.getDuration(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the latency histogram of the given operation
+     * @param operation the operation name, such as findBundle
+     * @return the LatencyHistogram, or null if no request of the operation was recorded
+     */
+    public LatencyHistogram getLatency(String operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * Returns the latency histograms of all recorded operations
+     * @return an unmodifiable Map of operation name to LatencyHistogram, sorted by name
+     */
+    public Map<String,LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<String,LatencyHistogram>(latencies));
+    }
+
+    /**
+     * Returns the number of request attempts completed, including retries
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of request attempts currently in flight
+     */
+    public long getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the number of attempts that were retries or hedged duplicates of an earlier attempt
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Returns the number of request body bytes sent
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Returns the number of response body bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Returns the number of request body bytes before compression; the difference with getBytesSent() is the
+     * bandwidth saved by request compression
+     */
+    public long getUncompressedBytesSent() {
+        return uncompressedBytesSent.get();
+    }
+
+    /**
+     * Returns the number of response body bytes after decompression; the difference with getBytesReceived() is
+     * the bandwidth saved by response compression
+     */
+    public long getUncompressedBytesReceived() {
+        return uncompressedBytesReceived.get();
+    }
+
+    /**
+     * Returns the number of attempts that failed without a response, such as connection failures and timeouts
+     */
+    public long getNetworkErrorCount() {
+        return networkErrors.get();
+    }
+
+    /**
+     * Returns the number of error responses by HTTP status code
+     * @return an unmodifiable Map of status code to count, sorted by status code
+     */
+    public Map<Integer,Long> getErrorsByStatus() {
+        Map<Integer,Long> errors = new TreeMap<Integer,Long>();
+        for(Map.Entry<Integer,AtomicLong> entry : errorsByStatus.entrySet()) {
+            errors.put(entry.getKey(), entry.getValue().get());
+        }
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Returns the number of open connections in the pool of the transport
+     * @return the connection count, or -1 if the transport does not report it
+     */
+    public int getConnectionCount() {
+        return (transport instanceof OkHttpTransport) ? ((OkHttpTransport)transport).getConnectionCount() : -1;
+    }
+
+    /**
+     * Returns the number of idle connections in the pool of the transport
+     * @return the idle connection count, or -1 if the transport does not report it
+     */
+    public int getIdleConnectionCount() {
+        return (transport instanceof OkHttpTransport) ? ((OkHttpTransport)transport).getIdleConnectionCount() : -1;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("requests=").append(getRequestCount())
+          .append(" retries=").append(getRetryCount())
+          .append(" bytesSent=").append(getBytesSent())
+          .append(" bytesReceived=").append(getBytesReceived())
+          .append(" uncompressedBytesSent=").append(getUncompressedBytesSent())
+          .append(" uncompressedBytesReceived=").append(getUncompressedBytesReceived())
+          .append(" networkErrors=").append(getNetworkErrorCount())
+          .append(" errors=").append(getErrorsByStatus())
+          .append(" connections=").append(getConnectionCount())
+          .append(" idle=").append(getIdleConnectionCount());
+        for(Map.Entry<String,LatencyHistogram> entry : getLatencies().entrySet()) {
+            sb.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    private static AtomicLong counter(ConcurrentHashMap<Integer,AtomicLong> counters, int key) {
+        AtomicLong counter = counters.get(key);
+        if(counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(key, created);
+            if(counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    private final ClarifyTransport transport;
+    private final ConcurrentHashMap<String,LatencyHistogram> latencies = new ConcurrentHashMap<String,LatencyHistogram>();
+    private final ConcurrentHashMap<Integer,AtomicLong> errorsByStatus = new ConcurrentHashMap<Integer,AtomicLong>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong uncompressedBytesSent = new AtomicLong();
+    private final AtomicLong uncompressedBytesReceived = new AtomicLong();
+    private final AtomicLong networkErrors = new AtomicLong();
+}
@@ -1,19 +1,39 @@
 package io.clarify.api;
- 
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+import us.monoid.json.JSONObject;
+
 public class ClarifyModel {
     public ClarifyModel(ClarifyClient client, ClarifyResponse response) {
         this.client = client;
         this.response = response;
     }
 
+    /**
+     * Returns the response backing this model. For a model returned in ResponseMode.LAZY, this fetches the full
+     * representation first if it has not been loaded yet.
+     * @return the ClarifyResponse for this model
+     */
     public ClarifyResponse getClarifyResponse() {
-        return response;
+        return resolvedResponse();
     }
-    
+
     public ClarifyClient getClarifyClient() {
         return client;
     }
 
+    /**
+     * Determine if this model only holds the partial representation returned by a write operation
+     * @return true if the full representation has not been loaded yet
+     */
+    public boolean isPartial() {
+        return resolveUrl != null;
+    }
+
     public String toString() {
         if(response == null) {
             return super.toString();
@@ -21,8 +41,111 @@ public class ClarifyModel {
             return response.getResponseContent();
         }
     }
-    
+
+    /**
+     * Marks this model as partial, so that the full representation is fetched from the given URL the first
+     * time a field missing from the current response is accessed
+     * @param url the full request URL of the resource's full representation
+     */
+    void deferResolution(String url) {
+        this.resolveUrl = url;
+    }
+
+    /**
+     * Returns the response holding the full representation, fetching it first if this model is partial
+     * @return the full ClarifyResponse
+     * @throws RuntimeException containing the nested IOException if the fetch failed
+     */
+    protected synchronized ClarifyResponse resolvedResponse() {
+        if(resolveUrl != null) {
+            try {
+                response = client.send("resolve", "GET", resolveUrl);
+                resolveUrl = null;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Returns the root object of the full JSON payload, fetching it first if this model is partial
+     * @return the root us.monoid.json.JSONObject of the response
+     */
+    protected JSONObject getJSON() {
+        return resolvedResponse().getJSONObject();
+    }
+
+    /**
+     * Returns the value of a top-level field in the JSON payload. If this model is partial and the field is not
+     * present in the current response, the full representation is fetched first.
+     * @param name the name of the field
+     * @return the value of the field
+     * @throws RuntimeException containing the nested exception if the lookup failed
+     */
+    protected Object getField(String name) {
+        if(isPartial()) {
+            try {
+                JSONObject partial = response.getJSONObject();
+                if(partial.has(name)) {
+                    return partial.get(name);
+                }
+            } catch (Exception e) {
+                // an empty or non-JSON write response; fall through to the full representation
+            }
+        }
+        try {
+            return getJSON().get(name);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /*
+     * Helpers used by the models to decode their typed fields. Missing, null or malformed values decode to null.
+     */
+
+    static String stringField(JSONObject json, String name) {
+        Object value = json.opt(name);
+        return (value == null || JSONObject.NULL.equals(value)) ? null : value.toString();
+    }
+
+    static Integer intField(JSONObject json, String name) {
+        Object value = json.opt(name);
+        return (value instanceof Number) ? Integer.valueOf(((Number)value).intValue()) : null;
+    }
+
+    static Double doubleField(JSONObject json, String name) {
+        Object value = json.opt(name);
+        return (value instanceof Number) ? Double.valueOf(((Number)value).doubleValue()) : null;
+    }
+
+    static Instant instantField(JSONObject json, String name) {
+        String value = stringField(json, name);
+        if(value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    static URI uriField(JSONObject json, String name) {
+        String value = stringField(json, name);
+        if(value == null) {
+            return null;
+        }
+        try {
+            return URI.create(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     protected ClarifyClient client;
     protected ClarifyResponse response;
+    private volatile String resolveUrl;
 
 }
@@ -1,18 +1,38 @@
 package io.clarify.api;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 import us.monoid.json.JSONArray;
 import us.monoid.json.JSONException;
 import us.monoid.json.JSONObject;
 
 /**
- * Base class for handling pagination within the Clarify Java SDK. Since the nextPage() method should be 
- * typed to the specific return class, no abstract method is provided for nextPage(). Instead, 
- * subclasses should provide the appropriate nextPage() implementation that returns 
- * the corresponding class type expected. 
+ * Base class for handling pagination within the Clarify Java SDK. Subclasses override nextPage() with a
+ * covariant return type, so that the next page is returned as the corresponding class type expected.
+ *
+ * In addition to paging by hand with hasNextPage() and nextPage(), the results may be walked with a
+ * PageIterator, or item by item with items() and stream(). These fetch the following pages in the background
+ * while the current page is being processed.
+ *
+ * Pages returned by the methods taking a PageItemHandler were streamed: their item arrays were handed to the
+ * handler while the response was read and are not part of the page, so getLinkItems() throws for them.
  *
  */
 public class ClarifyPaginatedModel extends ClarifyModel {
 
+    /**
+     * The number of pages fetched ahead of the current page by items() and stream() when no prefetch count is given
+     */
+    public static final int DEFAULT_PREFETCH_PAGES = 2;
+
     public ClarifyPaginatedModel(ClarifyClient client, ClarifyResponse response) {
         super(client, response);
     }
@@ -22,16 +42,36 @@ public class ClarifyPaginatedModel extends ClarifyModel {
      * @return a us.monoid.json.JSONObject for the _links element of the JSON response
      */
     public JSONObject getLinks() {
-        return (JSONObject)response.getJSONValue("_links");
+        JSONObject links = links();
+        if(links == null) {
+            throw new RuntimeException(new JSONException("JSONObject[\"_links\"] not found."));
+        }
+        return links;
     }
 
     /**
      * Returns items within the _links element of the JSON response. Each array element is a us.monoid.json.JSONObject providing
      * access to the element
-     * @return a us.monoid.json.JSONArray containing all items under the _links element in the response 
+     * @return a us.monoid.json.JSONArray containing all items under the _links element in the response
      */
     public JSONArray getLinkItems() {
-        return (JSONArray)response.getJSONValue("_links.items");
+        JSONArray items = linkItems;
+        if(items == null) {
+            items = getLinks().optJSONArray("items");
+            if(items == null) {
+                throw new RuntimeException(new JSONException("JSONObject[\"items\"] not found."));
+            }
+            linkItems = items;
+        }
+        return items;
+    }
+
+    /**
+     * Returns the total number of items across all pages, as reported by the API
+     * @return the total, or null if not present in the response
+     */
+    public Integer getTotal() {
+        return intField(response.getJSONObject(), "total");
     }
 
     /**
@@ -39,21 +79,213 @@ public class ClarifyPaginatedModel extends ClarifyModel {
      * @return true if there is another page available for pagination
      */
     public boolean hasNextPage() {
-        return (nextLink() != null);
+        return (nextHref() != null);
     }
 
     /**
-     * 
+     * Attempt to request the next page using the next link from the current page
+     * @return the next page, or null if there are no other pages
+     * @throws JSONException if the href for the next link could not be obtained for some reason
+     * @throws IOException if a network failure occurred while fetching the next page
+     */
+    public ClarifyPaginatedModel nextPage() throws JSONException, IOException {
+        ClarifyResponse resp = fetchNextPage();
+        return (resp == null) ? null : new ClarifyPaginatedModel(client, resp);
+    }
+
+    /**
+     * Attempt to request the next page using the next link from the current page, passing its items to the 
+     * handler while the response is read instead of keeping them in the returned page
+     * @param handler the PageItemHandler receiving the items of the next page
+     * @return the next page, or null if there are no other pages
+     * @throws JSONException if the href for the next link could not be obtained for some reason
+     * @throws IOException if a network failure occurred while fetching the next page, or if the handler threw an IOException
+     */
+    public ClarifyPaginatedModel nextPage(PageItemHandler handler) throws JSONException, IOException {
+        ClarifyResponse resp = fetchNextPage(handler);
+        return (resp == null) ? null : new ClarifyPaginatedModel(client, resp);
+    }
+
+    /**
+     * Returns an iterator over this page and all following pages, fetching up to prefetch pages ahead
+     * of the caller on the given executor
+     * @param prefetch the number of pages to fetch ahead of the page being processed
+     * @param executor the Executor on which pages are fetched
+     * @return a PageIterator starting with this page
+     */
+    public PageIterator<? extends ClarifyPaginatedModel> pageIterator(int prefetch, Executor executor) {
+        return new PageIterator<ClarifyPaginatedModel>(this, prefetch, executor);
+    }
+
+    /**
+     * Returns the _links.items of this page and all following pages, prefetching DEFAULT_PREFETCH_PAGES
+     * pages on the client's executor
+     * @return an Iterable over the link items of all pages
+     */
+    public Iterable<JSONObject> items() {
+        return items(DEFAULT_PREFETCH_PAGES, client.getExecutor());
+    }
+
+    /**
+     * Returns the _links.items of this page and all following pages, fetching up to prefetch pages ahead
+     * of the caller on the given executor. Each call to iterator() starts a new walk from this page.
+     * @param prefetch the number of pages to fetch ahead of the page being processed
+     * @param executor the Executor on which pages are fetched
+     * @return an Iterable over the link items of all pages
+     */
+    public Iterable<JSONObject> items(final int prefetch, final Executor executor) {
+        return new Iterable<JSONObject>() {
+            public Iterator<JSONObject> iterator() {
+                return new LinkItemIterator(pageIterator(prefetch, executor));
+            }
+        };
+    }
+
+    /**
+     * Returns a sequential Stream over the _links.items of this page and all following pages, prefetching
+     * DEFAULT_PREFETCH_PAGES pages on the client's executor. Close the stream to stop fetching early.
+     * @return a Stream over the link items of all pages
+     */
+    public Stream<JSONObject> stream() {
+        return stream(DEFAULT_PREFETCH_PAGES, client.getExecutor());
+    }
+
+    /**
+     * Returns a sequential Stream over the _links.items of this page and all following pages, fetching up to
+     * prefetch pages ahead of the consumer on the given executor. Close the stream to stop fetching early.
+     * @param prefetch the number of pages to fetch ahead of the page being processed
+     * @param executor the Executor on which pages are fetched
+     * @return a Stream over the link items of all pages
+     */
+    public Stream<JSONObject> stream(int prefetch, Executor executor) {
+        final LinkItemIterator items = new LinkItemIterator(pageIterator(prefetch, executor));
+        Spliterator<JSONObject> spliterator =
+                Spliterators.spliteratorUnknownSize(items, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            public void run() {
+                items.close();
+            }
+        });
+    }
+
+    /**
+     *
      * @return the JSONObject for the next link under the _links, or null if not found
      */
     protected JSONObject nextLink() {
-        try {
-            JSONObject links = (JSONObject)response.getJSONValue("_links");
-            return (JSONObject)links.get("next");
-        } catch (JSONException e) {
-            // a JSONException is thrown if not found
+        JSONObject links = links();
+        return (links == null) ? null : links.optJSONObject("next");
+    }
+
+    /**
+     * Fetches the page referenced by the next link of this page
+     * @return the ClarifyResponse for the next page, or null if there are no other pages
+     * @throws JSONException if the href for the next link could not be obtained for some reason
+     * @throws IOException if a network failure occurred while fetching the next page
+     */
+    protected ClarifyResponse fetchNextPage() throws JSONException, IOException {
+        String href = nextHref();
+        if(href == null) {
+            return null;
+        }
+        return client.send("nextPage", "GET", client.buildPathFromHref(href));
+    }
+
+    /**
+     * Fetches the page referenced by the next link of this page, streaming its items to the given handler
+     * @param handler the PageItemHandler receiving the items of the next page
+     * @return the ClarifyResponse for the next page without its item arrays, or null if there are no other pages
+     * @throws JSONException if the href for the next link could not be obtained for some reason
+     * @throws IOException if a network failure occurred while fetching the next page, or if the handler threw an IOException
+     */
+    protected ClarifyResponse fetchNextPage(PageItemHandler handler) throws JSONException, IOException {
+        String href = nextHref();
+        if(href == null) {
+            return null;
+        }
+        return client.stream("nextPage", client.buildPathFromHref(href), handler);
+    }
+
+    /*
+     * Returns the _links element, decoded once from the response
+     */
+    private JSONObject links() {
+        if(!linksDecoded) {
+            links = response.getJSONObject().optJSONObject("_links");
+            linksDecoded = true;
+        }
+        return links;
+    }
+
+    /*
+     * Returns the href of the next link, decoded once from the response
+     */
+    private String nextHref() {
+        if(!nextHrefDecoded) {
+            JSONObject nextLink = nextLink();
+            nextHref = (nextLink == null) ? null : nextLink.optString("href", null);
+            nextHrefDecoded = true;
+        }
+        return nextHref;
+    }
+
+    // decoded lazily; a racing decode yields the same values, so no locking is needed
+    private volatile JSONObject links;
+    private volatile boolean linksDecoded;
+    private volatile JSONArray linkItems;
+    private volatile String nextHref;
+    private volatile boolean nextHrefDecoded;
+
+    /*
+     * Flattens the _links.items of each page returned by a PageIterator
+     */
+    private static class LinkItemIterator implements Iterator<JSONObject>, Closeable {
+        LinkItemIterator(PageIterator<? extends ClarifyPaginatedModel> pages) {
+            this.pages = pages;
+        }
+
+        public boolean hasNext() {
+            while(items == null || index >= items.length()) {
+                if(!pages.hasNext()) {
+                    return false;
+                }
+                items = linkItems(pages.next());
+                index = 0;
+            }
+            return true;
         }
-        return null;
+
+        public JSONObject next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                return (JSONObject)items.get(index++);
+            } catch (JSONException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        public void close() {
+            pages.close();
+        }
+
+        private static JSONArray linkItems(ClarifyPaginatedModel page) {
+            try {
+                return page.getLinkItems();
+            } catch (Exception e) {
+                // a page without items, such as an empty result set
+                return new JSONArray();
+            }
+        }
+
+        private final PageIterator<? extends ClarifyPaginatedModel> pages;
+        private JSONArray items;
+        private int index;
     }
 
-}
\ No newline at end of file
+}
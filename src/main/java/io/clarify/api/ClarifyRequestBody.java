@@ -0,0 +1,36 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A request body written to the network while the request is sent, rather than held in memory as a byte array.
+ * Used for media uploads, whose size may exceed the heap. A ClarifyTransport sends the body with a fixed
+ * Content-Length when getContentLength() is known, and with chunked transfer encoding otherwise.
+ */
+public interface ClarifyRequestBody {
+
+    /**
+     * Returns the MIME type of the body, including any parameters such as the multipart boundary
+     */
+    String getContentType();
+
+    /**
+     * Returns the number of bytes writeTo() writes
+     * @return the length of the body, or -1 if it is not known in advance
+     */
+    long getContentLength();
+
+    /**
+     * Determine if the body can be written more than once, so that a failed request may be retried
+     * @return true if writeTo() may be called again after a failed attempt
+     */
+    boolean isRepeatable();
+
+    /**
+     * Writes the body
+     * @param out the stream of the request, which must not be closed
+     * @throws IOException if the body could not be read or written
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -1,7 +1,11 @@
 package io.clarify.api;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
 
+import us.monoid.json.JSONObject;
 import us.monoid.web.JSONResource;
 
 /**
@@ -11,9 +15,15 @@ import us.monoid.web.JSONResource;
  * 2) a parsed version of the content (Using Resty), and 
  * 3) the response content (for your own parsing needs).
  * 
- * This class depends on Resty, the underlying HTTP client used for calling the Clarify REST API. More 
- * details about this library, along with a link to the Javadoc, are available 
- * at http://beders.github.io/Resty/Resty/Overview.html
+ * This class depends on Resty for navigating the parsed JSON payload. More details about this library, 
+ * along with a link to the Javadoc, are available at http://beders.github.io/Resty/Resty/Overview.html
+ * 
+ * Responses received through a ClarifyTransport keep the raw response body, so that the content can be
+ * returned without re-serializing the parsed JSON.
+ * 
+ * A response, and the JSONObject parsed from it, may be shared by several callers: every reader of a cached URL
+ * when the client has a ResponseCache, and every concurrent reader of the same URL when request coalescing is
+ * enabled. Treat the JSON of such responses, and of the models built on them, as read-only.
  */
 public class ClarifyResponse {
 
@@ -23,6 +33,20 @@ public class ClarifyResponse {
      */
     public ClarifyResponse(JSONResource jsonResource) {
         this.jsonResource = jsonResource;
+        this.responseCode = -1;
+    }
+
+    /**
+     * Initialize a new instance from a raw HTTP response received through a ClarifyTransport
+     * @param responseCode the HTTP status code
+     * @param headers the HTTP response headers
+     * @param content the raw response body
+     */
+    public ClarifyResponse(int responseCode, Map<String,List<String>> headers, byte[] content) {
+        this.responseCode = responseCode;
+        this.headers = headers;
+        this.content = content;
+        this.jsonResource = new BufferedJSONResource(content);
     }
     
     /**
@@ -30,6 +54,9 @@ public class ClarifyResponse {
      * @return an int containing the response code as a result of the Clarify API call
      */
     public int getResponseCode() {
+        if(responseCode != -1) {
+            return responseCode;
+        }
         try {
             return jsonResource.http().getResponseCode();
         } catch(IOException ioe) {
@@ -43,6 +70,9 @@ public class ClarifyResponse {
      * @return the JSON response payload as a String
      */
     public String getResponseContent() {
+        if(content != null) {
+            return new String(content, UTF8);
+        }
         try {
             return this.jsonResource.toObject().toString();
         } catch (Exception e) {
@@ -50,6 +80,22 @@ public class ClarifyResponse {
         }
     }
     
+    /**
+     * Returns the first value of the given HTTP response header, matching the name case-insensitively
+     * @param name the header name
+     * @return the header value, or null if the header is not present or the headers are not available
+     */
+    public String getHeader(String name) {
+        if(headers == null) {
+            try {
+                return jsonResource.http().getHeaderField(name);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return ClarifyHttpResponse.findHeader(headers, name);
+    }
+
     /**
      * Returns the underlying Resty JSONResource object, representing the parsed JSON response code
      * 
@@ -61,6 +107,20 @@ public class ClarifyResponse {
         return jsonResource;
     }
     
+    /**
+     * Returns the root object of the parsed JSON payload. Unlike getJSONValue(), no JSON path is evaluated, 
+     * so this is the cheapest way to read several fields of a response.
+     * @return the root us.monoid.json.JSONObject of the response
+     * @throws RuntimeException containing the nested exception if the payload is not a JSON object
+     */
+    public JSONObject getJSONObject() {
+        try {
+            return jsonResource.object();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Uses the Resty JSONResponse to perform attempt to get a JSON path from the response payload
      * and return it. The Resty Java API returns an Object type, so you will need to determine the proper
@@ -78,5 +138,10 @@ public class ClarifyResponse {
         }
     }
     
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     private JSONResource jsonResource;
+    private int responseCode;
+    private Map<String,List<String>> headers;
+    private byte[] content;
 }
@@ -0,0 +1,31 @@
+package io.clarify.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Service provider interface for the HTTP layer used by the ClarifyClient. A transport is responsible for
+ * connection management (pooling, keep-alive, TLS session reuse and timeouts) and for executing a single
+ * ClarifyHttpRequest.
+ *
+ * The SDK ships with two implementations:
+ *
+ * 1) OkHttpTransport, the default, which keeps a pool of keep-alive connections and negotiates HTTP/2 when available
+ *
+ * 2) RestyTransport, which uses Resty and a new HttpURLConnection per call, as earlier versions of the SDK did
+ *
+ * Implementations must be safe for use by multiple threads, since a single transport may be shared by many clients.
+ */
+public interface ClarifyTransport extends Closeable {
+
+    /**
+     * Executes the given request and returns the response. Non-success HTTP status codes must be returned as a
+     * normal response rather than thrown, so that the client can inspect the status and the error payload.
+     *
+     * @param request the request to execute
+     * @return the HTTP response, which the caller must close
+     * @throws IOException if the request could not be sent or the response could not be read
+     */
+    ClarifyHttpResponse execute(ClarifyHttpRequest request) throws IOException;
+
+}
@@ -0,0 +1,32 @@
+package io.clarify.api;
+
+/**
+ * Names a resource of a Bundle to retrieve together with the Bundle, for ClarifyClient.findBundle(String, Expand...),
+ * listBundlesExpanded(Expand...) and searchBundlesExpanded(String, Map, Expand...). An expanded resource is returned by
+ * Bundle.getMetadata() or Bundle.listTracks() without another API call.
+ */
+public enum Expand {
+
+    /**
+     * The Metadata of the Bundle
+     */
+    METADATA("metadata"),
+
+    /**
+     * The list of Tracks of the Bundle
+     */
+    TRACKS("tracks");
+
+    private Expand(String embed) {
+        this.embed = embed;
+    }
+
+    /*
+     * Returns the value of the embed parameter of the API for this resource
+     */
+    String getEmbed() {
+        return embed;
+    }
+
+    private final String embed;
+}
@@ -0,0 +1,178 @@
+package io.clarify.api;
+
+import java.util.Map;
+
+/**
+ * Encodes form fields as an application/x-www-form-urlencoded body directly into UTF-8 bytes. The encoded
+ * length is computed first, so each body is written into a single array of the exact size, which is handed to
+ * the transport as is: no StringBuffer, no per-field Strings and no charset conversion of an intermediate String.
+ *
+ * Values are encoded exactly as java.net.URLEncoder does with UTF-8 (and therefore as Resty.enc() does), while
+ * keys are written as given, matching the behavior of ClarifyClient.urlEncodeMap().
+ */
+final class FormEncoder {
+
+    private FormEncoder() {
+    }
+
+    /**
+     * Encodes the fields in the iteration order of the map
+     * @param fields the form fields; values cannot be null
+     * @return the encoded body
+     */
+    static byte[] encode(Map<String,String> fields) {
+        int length = 0;
+        for(Map.Entry<String,String> field : fields.entrySet()) {
+            if(field.getValue() == null) {
+                throw new RuntimeException("value of field "+field.getKey()+" cannot be null");
+            }
+            if(length > 0) {
+                length++;
+            }
+            length += rawLength(field.getKey()) + 1 + encodedLength(field.getValue());
+        }
+
+        byte[] body = new byte[length];
+        int pos = 0;
+        for(Map.Entry<String,String> field : fields.entrySet()) {
+            if(pos > 0) {
+                body[pos++] = '&';
+            }
+            pos = writeRaw(field.getKey(), body, pos);
+            body[pos++] = '=';
+            pos = writeEncoded(field.getValue(), body, pos);
+        }
+        return body;
+    }
+
+    /*
+     * Returns the number of UTF-8 bytes of the string
+     */
+    private static int rawLength(String s) {
+        int length = 0;
+        for(int i=0;i<s.length();i++) {
+            length += utf8Length(s, i);
+            if(isPair(s, i)) {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    /*
+     * Returns the number of bytes of the string once percent-encoded
+     */
+    private static int encodedLength(String s) {
+        int length = 0;
+        for(int i=0;i<s.length();i++) {
+            char c = s.charAt(i);
+            if(isUnreserved(c) || c == ' ') {
+                length++;
+            } else {
+                length += 3 * utf8Length(s, i);
+                if(isPair(s, i)) {
+                    i++;
+                }
+            }
+        }
+        return length;
+    }
+
+    private static int writeRaw(String s, byte[] out, int pos) {
+        for(int i=0;i<s.length();i++) {
+            char c = s.charAt(i);
+            if(c < 0x80) {
+                out[pos++] = (byte)c;
+            } else {
+                int start = pos;
+                pos = writeUtf8(s, i, out, pos);
+                if(pos - start == 4) {
+                    i++;
+                }
+            }
+        }
+        return pos;
+    }
+
+    private static int writeEncoded(String s, byte[] out, int pos) {
+        for(int i=0;i<s.length();i++) {
+            char c = s.charAt(i);
+            if(isUnreserved(c)) {
+                out[pos++] = (byte)c;
+            } else if(c == ' ') {
+                out[pos++] = '+';
+            } else {
+                // encode in place, then expand each byte into %XX from the back
+                int start = pos;
+                int end = writeUtf8(s, i, out, pos);
+                int count = end - start;
+                if(count == 4) {
+                    i++;
+                }
+                for(int b=count-1;b>=0;b--) {
+                    int value = out[start + b] & 0xFF;
+                    int at = start + b * 3;
+                    out[at + 2] = HEX[value & 0x0F];
+                    out[at + 1] = HEX[value >>> 4];
+                    out[at] = '%';
+                }
+                pos = start + count * 3;
+            }
+        }
+        return pos;
+    }
+
+    /*
+     * Writes the UTF-8 bytes of the character at index i, consuming a surrogate pair as one code point.
+     * An unpaired surrogate is written as '?', as the JDK encoder does.
+     */
+    private static int writeUtf8(String s, int i, byte[] out, int pos) {
+        char c = s.charAt(i);
+        if(c < 0x80) {
+            out[pos++] = (byte)c;
+        } else if(c < 0x800) {
+            out[pos++] = (byte)(0xC0 | (c >> 6));
+            out[pos++] = (byte)(0x80 | (c & 0x3F));
+        } else if(isPair(s, i)) {
+            int cp = Character.toCodePoint(c, s.charAt(i + 1));
+            out[pos++] = (byte)(0xF0 | (cp >> 18));
+            out[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+            out[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+            out[pos++] = (byte)(0x80 | (cp & 0x3F));
+        } else if(Character.isSurrogate(c)) {
+            out[pos++] = '?';
+        } else {
+            out[pos++] = (byte)(0xE0 | (c >> 12));
+            out[pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+            out[pos++] = (byte)(0x80 | (c & 0x3F));
+        }
+        return pos;
+    }
+
+    private static int utf8Length(String s, int i) {
+        char c = s.charAt(i);
+        if(c < 0x80) {
+            return 1;
+        }
+        if(c < 0x800) {
+            return 2;
+        }
+        if(isPair(s, i)) {
+            return 4;
+        }
+        return Character.isSurrogate(c) ? 1 : 3;
+    }
+
+    private static boolean isPair(String s, int i) {
+        return Character.isHighSurrogate(s.charAt(i)) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1));
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '.' || c == '-' || c == '*' || c == '_';
+    }
+
+    private static final byte[] HEX = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+}
@@ -0,0 +1,207 @@
+package io.clarify.api;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The append-only progress log of a BulkIngestor. Every step of a record is written as one line before or after
+ * the request it describes, and flushed at once, so that a run killed at any point can be resumed from the log:
+ *
+ * P key idempotencyKey   a create is about to be sent with this Idempotency-Key
+ * C key bundleId         the Bundle was created
+ * T key index            Track number index was added
+ * M key                  the Metadata was stored
+ * D key                  the record is complete
+ *
+ * Fields are separated by tabs; tabs, newlines and backslashes in keys are escaped. A truncated last line, left
+ * by a crash in the middle of a write, is ignored and cut off when the log is opened, so a step is only trusted
+ * once its line is complete.
+ */
+final class IngestCheckpoint {
+
+    /**
+     * The progress of one record recovered from the log
+     */
+    static final class Progress {
+        String idempotencyKey;
+        String bundleId;
+        int tracksAdded;
+        boolean metadataStored;
+        boolean done;
+    }
+
+    /**
+     * Opens the log, reading the progress already recorded in it
+     * @param file the log file, created if it does not exist
+     * @throws IOException if the file cannot be read or opened for writing
+     */
+    IngestCheckpoint(File file) throws IOException {
+        if(file.exists()) {
+            long valid = read(file);
+            if(file.length() > valid) {
+                // drop the partial line, which a later reopening would otherwise read as complete once terminated
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.setLength(valid);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+        this.writer = new OutputStreamWriter(new FileOutputStream(file, true), UTF8);
+    }
+
+    /**
+     * Returns the recorded progress of a record
+     * @param key the key of the record
+     * @return the Progress, or null if nothing was recorded for the key
+     */
+    synchronized Progress get(String key) {
+        return progress.get(key);
+    }
+
+    synchronized void createPending(String key, String idempotencyKey) throws IOException {
+        progress(key).idempotencyKey = idempotencyKey;
+        write("P", key, idempotencyKey);
+    }
+
+    synchronized void created(String key, String bundleId) throws IOException {
+        progress(key).bundleId = bundleId;
+        write("C", key, bundleId);
+    }
+
+    synchronized void trackAdded(String key, int index) throws IOException {
+        progress(key).tracksAdded = index + 1;
+        write("T", key, Integer.toString(index));
+    }
+
+    synchronized void metadataStored(String key) throws IOException {
+        progress(key).metadataStored = true;
+        write("M", key, null);
+    }
+
+    synchronized void done(String key) throws IOException {
+        progress(key).done = true;
+        write("D", key, null);
+    }
+
+    synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private Progress progress(String key) {
+        Progress p = progress.get(key);
+        if(p == null) {
+            p = new Progress();
+            progress.put(key, p);
+        }
+        return p;
+    }
+
+    private void write(String step, String key, String value) throws IOException {
+        StringBuilder line = new StringBuilder().append(step).append('\t').append(escape(key));
+        if(value != null) {
+            line.append('\t').append(escape(value));
+        }
+        writer.write(line.append('\n').toString());
+        writer.flush();
+    }
+
+    /*
+     * Reads every complete line of the log, returning the length of the file up to the end of the last one
+     */
+    private long read(File file) throws IOException {
+        byte[] content = new byte[(int)file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int n = 0;
+            while(n < content.length) {
+                int read = in.read(content, n, content.length - n);
+                if(read < 0) {
+                    break;
+                }
+                n += read;
+            }
+        } finally {
+            in.close();
+        }
+        int lineStart = 0;
+        for(int i=0;i<content.length;i++) {
+            if(content[i] == '\n') {
+                apply(new String(content, lineStart, i - lineStart, UTF8));
+                lineStart = i + 1;
+            }
+        }
+        return lineStart;
+    }
+
+    private void apply(String line) {
+        String[] parts = line.split("\t", -1);
+        if(parts.length < 2) {
+            return;
+        }
+        String key = unescape(parts[1]);
+        String value = (parts.length > 2) ? unescape(parts[2]) : null;
+        if(parts[0].equals("P") && value != null) {
+            progress(key).idempotencyKey = value;
+        } else if(parts[0].equals("C") && value != null) {
+            progress(key).bundleId = value;
+        } else if(parts[0].equals("T") && value != null) {
+            Progress p = progress(key);
+            p.tracksAdded = Math.max(p.tracksAdded, Integer.parseInt(value) + 1);
+        } else if(parts[0].equals("M")) {
+            progress(key).metadataStored = true;
+        } else if(parts[0].equals("D")) {
+            progress(key).done = true;
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for(int i=0;i<s.length();i++) {
+            char c = s.charAt(i);
+            if(c == '\\') {
+                sb.append("\\\\");
+            } else if(c == '\t') {
+                sb.append("\\t");
+            } else if(c == '\n') {
+                sb.append("\\n");
+            } else if(c == '\r') {
+                sb.append("\\r");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String s) {
+        if(s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for(int i=0;i<s.length();i++) {
+            char c = s.charAt(i);
+            if(c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                sb.append((next == 't') ? '\t' : (next == 'n') ? '\n' : (next == 'r') ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Map<String,Progress> progress = new HashMap<String,Progress>();
+    private final Writer writer;
+}
@@ -0,0 +1,193 @@
+package io.clarify.api;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import us.monoid.json.JSONArray;
+import us.monoid.json.JSONException;
+import us.monoid.json.JSONObject;
+
+/**
+ * One entry of a media manifest processed by a BulkIngestor: the Bundle to create, the Tracks to add to it and
+ * the Metadata to store with it. Records are built fluently:
+ *
+ * new IngestRecord("Interview 42", URI.create("http://example.com/42.wav"))
+ *     .key("interview-42")
+ *     .track(URI.create("http://example.com/42-b.wav"))
+ *     .metadata("{\"speaker\":\"jane\"}");
+ *
+ * The key identifies the record in the checkpoint file, so it must be unique within a manifest and stable across
+ * runs. When not set, the external_id field is used if present, otherwise the media URL, otherwise the name.
+ */
+public class IngestRecord {
+
+    /**
+     * Creates a record for a Bundle with the given name and media
+     * @param name the name of the Bundle
+     * @param mediaURI the URI of the media of the Bundle, or null to create a Bundle without media
+     */
+    public IngestRecord(String name, URI mediaURI) {
+        if(name == null) { throw new RuntimeException("name cannot be null"); }
+        this.name = name;
+        this.mediaURI = mediaURI;
+    }
+
+    /**
+     * Parses a record from one line of a JSON lines manifest. The object holds the name and media_url of the
+     * Bundle, an optional tracks array of media URLs, optional metadata (an object, or a String of JSON) and an
+     * optional key. Every other property is passed to the Create Bundle API as an additional field, for example
+     * {"name":"Interview 42","media_url":"http://example.com/42.wav","external_id":"42","tracks":["http://example.com/42-b.wav"],"metadata":{"speaker":"jane"}}
+     * @param json a String holding one JSON object
+     * @return the IngestRecord
+     * @throws RuntimeException if the line is not a JSON object or has no name
+     */
+    public static IngestRecord parse(String json) {
+        if(json == null) { throw new RuntimeException("json cannot be null"); }
+        try {
+            JSONObject object = new JSONObject(json);
+            if(!object.has("name")) { throw new RuntimeException("record has no name: "+json); }
+            String media = object.optString("media_url", null);
+            IngestRecord record = new IngestRecord(object.getString("name"), (media == null) ? null : new URI(media));
+            Iterator<?> keys = object.keys();
+            while(keys.hasNext()) {
+                String field = (String)keys.next();
+                if(field.equals("name") || field.equals("media_url")) {
+                    continue;
+                }
+                if(field.equals("key")) {
+                    record.key(object.getString(field));
+                } else if(field.equals("tracks")) {
+                    JSONArray tracks = object.getJSONArray(field);
+                    for(int i=0;i<tracks.length();i++) {
+                        record.track(new URI(tracks.getString(i)));
+                    }
+                } else if(field.equals("metadata")) {
+                    Object metadata = object.get(field);
+                    record.metadata((metadata instanceof String) ? (String)metadata : metadata.toString());
+                } else {
+                    record.field(field, object.getString(field));
+                }
+            }
+            return record;
+        } catch (JSONException e) {
+            throw new RuntimeException("invalid record: "+json, e);
+        } catch (URISyntaxException e) {
+            throw new RuntimeException("invalid media URL in record: "+json, e);
+        }
+    }
+
+    /**
+     * Sets the key identifying this record in the checkpoint file
+     * @param key a key unique within the manifest
+     * @return this record
+     */
+    public IngestRecord key(String key) {
+        if(key == null) { throw new RuntimeException("key cannot be null"); }
+        this.key = key;
+        return this;
+    }
+
+    /**
+     * Adds a field passed to the Create Bundle API, such as external_id or notify_url
+     * @param name the field name
+     * @param value the field value
+     * @return this record
+     */
+    public IngestRecord field(String name, String value) {
+        if(name == null) { throw new RuntimeException("name cannot be null"); }
+        if(value == null) { throw new RuntimeException("value cannot be null"); }
+        fields.put(name, value);
+        return this;
+    }
+
+    /**
+     * Adds a Track to create once the Bundle exists. Tracks are added in the order given.
+     * @param trackURI the URI of the media of the Track
+     * @return this record
+     */
+    public IngestRecord track(URI trackURI) {
+        if(trackURI == null) { throw new RuntimeException("trackURI cannot be null"); }
+        tracks.add(trackURI);
+        return this;
+    }
+
+    /**
+     * Sets the user-defined Metadata stored once the Tracks are added
+     * @param json a String containing valid JSON, or null to leave the Metadata untouched
+     * @return this record
+     */
+    public IngestRecord metadata(String json) {
+        this.metadata = json;
+        return this;
+    }
+
+    /**
+     * Returns the key identifying this record in the checkpoint file
+     * @return the key set with key(), or the default key
+     */
+    public String getKey() {
+        if(key != null) {
+            return key;
+        }
+        if(fields.containsKey("external_id")) {
+            return fields.get("external_id");
+        }
+        return (mediaURI != null) ? mediaURI.toString() : name;
+    }
+
+    /**
+     * Returns the name of the Bundle
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the URI of the media of the Bundle
+     * @return the media URI, or null
+     */
+    public URI getMediaURI() {
+        return mediaURI;
+    }
+
+    /**
+     * Returns the additional fields passed to the Create Bundle API
+     * @return an unmodifiable Map of field name to value
+     */
+    public Map<String,String> getFields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Returns the Tracks to add to the Bundle, in order
+     * @return an unmodifiable List of media URIs
+     */
+    public List<URI> getTracks() {
+        return Collections.unmodifiableList(tracks);
+    }
+
+    /**
+     * Returns the user-defined Metadata of the Bundle
+     * @return a String of JSON, or null
+     */
+    public String getMetadata() {
+        return metadata;
+    }
+
+    public String toString() {
+        return "IngestRecord[key="+getKey()+", name="+name+", tracks="+tracks.size()+"]";
+    }
+
+    private final String name;
+    private final URI mediaURI;
+    private final Map<String,String> fields = new LinkedHashMap<String,String>();
+    private final List<URI> tracks = new ArrayList<URI>();
+    private String key;
+    private String metadata;
+}
@@ -0,0 +1,93 @@
+package io.clarify.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of a BulkIngestor run. A failed record does not abort the run; it is reported here with the
+ * exception thrown for it, and the steps it completed are kept in the checkpoint so that running the same
+ * manifest again continues the record where it stopped.
+ */
+public class IngestResult {
+
+    IngestResult() {
+    }
+
+    /**
+     * Returns the number of records fully ingested by this run, including records resumed from the checkpoint
+     */
+    public synchronized int getCompletedCount() {
+        return completed;
+    }
+
+    /**
+     * Returns the number of records completed by this run whose Bundle had been created by an earlier run
+     */
+    public synchronized int getResumedCount() {
+        return resumed;
+    }
+
+    /**
+     * Returns the number of records skipped because the checkpoint showed them complete
+     */
+    public synchronized int getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Determine if any record failed
+     * @return true if at least one record failed
+     */
+    public synchronized boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Returns the exceptions of all failed records keyed by record key, in manifest order. A record that could not
+     * be parsed is keyed by its position, such as "line 12".
+     * @return a Map of record key to exception for every failed record
+     */
+    public synchronized Map<String,Exception> getFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String,Exception>(failures));
+    }
+
+    /**
+     * Returns the GUIDs of the Bundles created or completed by this run keyed by record key, in completion order.
+     * Records skipped from the checkpoint are included if the checkpoint recorded their Bundle.
+     * @return a Map of record key to Bundle GUID
+     */
+    public synchronized Map<String,String> getBundleIds() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String,String>(bundleIds));
+    }
+
+    synchronized void completed(String key, String bundleId, boolean wasResumed) {
+        completed++;
+        if(wasResumed) {
+            resumed++;
+        }
+        bundleIds.put(key, bundleId);
+    }
+
+    synchronized void skipped(String key, String bundleId) {
+        skipped++;
+        if(bundleId != null) {
+            bundleIds.put(key, bundleId);
+        }
+    }
+
+    synchronized void failed(String key, Exception error) {
+        failures.put(key, error);
+    }
+
+    public String toString() {
+        return "IngestResult[completed="+getCompletedCount()+", resumed="+getResumedCount()+", skipped="+getSkippedCount()
+                +", failures="+getFailures().size()+"]";
+    }
+
+    private final Map<String,Exception> failures = new LinkedHashMap<String,Exception>();
+    private final Map<String,String> bundleIds = new LinkedHashMap<String,String>();
+    private int completed;
+    private int resumed;
+    private int skipped;
+}
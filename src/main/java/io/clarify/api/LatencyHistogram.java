@@ -0,0 +1,113 @@
+package io.clarify.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations. Each power of two is split into four buckets, so percentiles are reported
+ * with a relative error below 25% while recording stays a few atomic increments. Used by ClarifyMetrics to track
+ * the latency of each operation.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Records one duration
+     * @param duration the duration
+     * @param unit the unit of duration
+     */
+    public void record(long duration, TimeUnit unit) {
+        long nanos = Math.max(0, unit.toNanos(duration));
+        buckets.incrementAndGet(index(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long max;
+        while(nanos > (max = this.max.get()) && !this.max.compareAndSet(max, nanos)) {
+            // retry until the maximum is updated
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean of the recorded durations
+     * @param unit the unit of the returned value
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public long getMean(TimeUnit unit) {
+        long n = count.get();
+        return (n == 0) ? 0 : unit.convert(total.get() / n, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest recorded duration
+     * @param unit the unit of the returned value
+     * @return the maximum, or 0 if nothing was recorded
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the duration below which the given fraction of the recorded durations fall, for example
+     * getPercentile(0.99, TimeUnit.MILLISECONDS) for the p99 latency
+     * @param fraction the fraction between 0 and 1
+     * @param unit the unit of the returned value
+     * @return the upper bound of the bucket holding the percentile, or 0 if nothing was recorded
+     */
+    public long getPercentile(double fraction, TimeUnit unit) {
+        if(fraction < 0 || fraction > 1) { throw new RuntimeException("fraction must be between 0 and 1"); }
+        long n = count.get();
+        if(n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(fraction * n));
+        long seen = 0;
+        for(int i=0;i<BUCKETS;i++) {
+            seen += buckets.get(i);
+            if(seen >= rank) {
+                return unit.convert(Math.min(upperBound(i), max.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    public String toString() {
+        return "count="+getCount()+" mean="+getMean(TimeUnit.MICROSECONDS)+"us p50="+getPercentile(0.5, TimeUnit.MICROSECONDS)
+                +"us p99="+getPercentile(0.99, TimeUnit.MICROSECONDS)+"us max="+getMax(TimeUnit.MICROSECONDS)+"us";
+    }
+
+    /*
+     * Maps a value to its bucket: values below 4 have their own bucket, larger values use the position of their
+     * highest bit and the two bits below it
+     */
+    private static int index(long value) {
+        if(value < 4) {
+            return (int)value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int)(value >>> (exponent - 2)) & 3;
+        return (exponent - 1) * 4 + sub;
+    }
+
+    private static long upperBound(int index) {
+        if(index < 4) {
+            return index;
+        }
+        int exponent = index / 4 + 1;
+        long lower = (4L + index % 4) << (exponent - 2);
+        return lower + (1L << (exponent - 2)) - 1;
+    }
+
+    private static final int BUCKETS = 252;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+}
@@ -0,0 +1,233 @@
+package io.clarify.api;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Media sent with a request instead of a media URL, for ClarifyClient.createBundle(String, MediaUpload) and
+ * addTrackToBundle(String, MediaUpload). The media is streamed from its source in blocks of BLOCK_SIZE bytes while
+ * the request is sent, so a file of any size is uploaded without being read into memory.
+ *
+ * The source may be:
+ *
+ * - a Path, opened for each attempt, so that a failed upload may be retried by a RetryPolicy
+ * - a FileChannel, read with positional reads that leave the channel's position unchanged; it may also be retried,
+ *   and is not closed
+ * - an InputStream, which is read once: an upload from a stream is never retried, and the stream is not closed
+ *
+ * Example:
+ *
+ * MediaUpload media = new MediaUpload(Paths.get("interview.wav"))
+ *     .contentType("audio/wav")
+ *     .progress(new UploadProgressListener() {
+ *         public void onProgress(long bytesSent, long totalBytes) {
+ *             System.out.println(bytesSent+" / "+totalBytes);
+ *         }
+ *     });
+ * Bundle bundle = client.createBundle("Interview", media);
+ */
+public class MediaUpload {
+
+    /**
+     * The number of bytes read from the source and written to the network at a time
+     */
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Creates an upload of a file
+     * @param path the file to upload
+     * @throws IOException if the size of the file cannot be read
+     */
+    public MediaUpload(Path path) throws IOException {
+        if(path == null) { throw new RuntimeException("path cannot be null"); }
+        this.path = path;
+        this.channel = null;
+        this.stream = null;
+        this.position = 0;
+        this.length = Files.size(path);
+        Path name = path.getFileName();
+        this.filename = (name == null) ? DEFAULT_FILENAME : name.toString();
+        String probed = Files.probeContentType(path);
+        this.contentType = (probed == null) ? DEFAULT_CONTENT_TYPE : probed;
+    }
+
+    /**
+     * Creates an upload of a region of an open file
+     * @param channel the channel to read from, which is neither moved nor closed
+     * @param position the offset of the first byte to upload
+     * @param length the number of bytes to upload
+     */
+    public MediaUpload(FileChannel channel, long position, long length) {
+        if(channel == null) { throw new RuntimeException("channel cannot be null"); }
+        if(position < 0 || length < 0) { throw new RuntimeException("position and length cannot be negative"); }
+        this.path = null;
+        this.channel = channel;
+        this.stream = null;
+        this.position = position;
+        this.length = length;
+        this.filename = DEFAULT_FILENAME;
+        this.contentType = DEFAULT_CONTENT_TYPE;
+    }
+
+    /**
+     * Creates an upload of the content of a stream, which can be sent only once
+     * @param stream the stream to read from, which is not closed
+     * @param length the number of bytes to upload, or -1 to upload up to the end of the stream with chunked
+     * transfer encoding
+     */
+    public MediaUpload(InputStream stream, long length) {
+        if(stream == null) { throw new RuntimeException("stream cannot be null"); }
+        if(length < -1) { throw new RuntimeException("length cannot be less than -1"); }
+        this.path = null;
+        this.channel = null;
+        this.stream = stream;
+        this.position = 0;
+        this.length = length;
+        this.filename = DEFAULT_FILENAME;
+        this.contentType = DEFAULT_CONTENT_TYPE;
+    }
+
+    /**
+     * Sets the file name sent with the media
+     * @param filename the file name, by default the name of the Path or "media"
+     * @return this MediaUpload
+     */
+    public MediaUpload filename(String filename) {
+        if(filename == null) { throw new RuntimeException("filename cannot be null"); }
+        this.filename = filename;
+        return this;
+    }
+
+    /**
+     * Sets the MIME type of the media
+     * @param contentType the MIME type, by default the type probed for the Path or application/octet-stream
+     * @return this MediaUpload
+     */
+    public MediaUpload contentType(String contentType) {
+        if(contentType == null) { throw new RuntimeException("contentType cannot be null"); }
+        this.contentType = contentType;
+        return this;
+    }
+
+    /**
+     * Sets the listener receiving the progress of the upload
+     * @param listener the UploadProgressListener, or null
+     * @return this MediaUpload
+     */
+    public MediaUpload progress(UploadProgressListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes to upload
+     * @return the size of the media, or -1 if it is read up to the end of a stream
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Determine if the media can be sent again after a failed attempt
+     * @return true for a Path or FileChannel, false for an InputStream
+     */
+    public boolean isRepeatable() {
+        return stream == null;
+    }
+
+    /*
+     * Writes the media to the request, reporting the progress after each block
+     */
+    void writeTo(OutputStream out) throws IOException {
+        if(stream != null) {
+            if(!streamUsed.compareAndSet(false, true)) {
+                throw new IOException("media read from an InputStream can only be sent once");
+            }
+            copy(stream, out);
+        } else if(path != null) {
+            FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                copy(file, out);
+            } finally {
+                file.close();
+            }
+        } else {
+            copy(channel, out);
+        }
+    }
+
+    private void copy(FileChannel source, OutputStream out) throws IOException {
+        byte[] block = new byte[(int)Math.min(BLOCK_SIZE, Math.max(1, length))];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        long sent = 0;
+        while(sent < length) {
+            buffer.clear();
+            buffer.limit((int)Math.min(block.length, length - sent));
+            int read = source.read(buffer, position + sent);
+            if(read < 0) {
+                throw new EOFException("media ended after "+sent+" of "+length+" bytes");
+            }
+            out.write(block, 0, read);
+            sent += read;
+            progress(sent);
+        }
+    }
+
+    private void copy(InputStream source, OutputStream out) throws IOException {
+        byte[] block = new byte[BLOCK_SIZE];
+        long sent = 0;
+        while(length < 0 || sent < length) {
+            int wanted = (length < 0) ? block.length : (int)Math.min(block.length, length - sent);
+            int read = source.read(block, 0, wanted);
+            if(read < 0) {
+                if(length < 0) {
+                    break;
+                }
+                throw new EOFException("media ended after "+sent+" of "+length+" bytes");
+            }
+            out.write(block, 0, read);
+            sent += read;
+            progress(sent);
+        }
+    }
+
+    private void progress(long sent) {
+        UploadProgressListener current = listener;
+        if(current != null) {
+            try {
+                current.onProgress(sent, length);
+            } catch (RuntimeException e) {
+                // a failing listener must not fail the upload
+            }
+        }
+    }
+
+    private static final String DEFAULT_FILENAME = "media";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final Path path;
+    private final FileChannel channel;
+    private final InputStream stream;
+    private final long position;
+    private final long length;
+    private final AtomicBoolean streamUsed = new AtomicBoolean();
+    private volatile String filename;
+    private volatile String contentType;
+    private volatile UploadProgressListener listener;
+}
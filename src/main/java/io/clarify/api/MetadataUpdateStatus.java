@@ -0,0 +1,22 @@
+package io.clarify.api;
+
+/**
+ * The outcome of the update of one Bundle's Metadata by a MetadataUpdater
+ */
+public enum MetadataUpdateStatus {
+
+    /**
+     * The data was written with an update call
+     */
+    UPDATED,
+
+    /**
+     * The data was reset to {} with a reset call
+     */
+    RESET,
+
+    /**
+     * The known copy of the data already matched, so no call was made
+     */
+    UNCHANGED
+}
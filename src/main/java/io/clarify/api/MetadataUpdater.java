@@ -0,0 +1,239 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import us.monoid.json.JSONArray;
+import us.monoid.json.JSONException;
+import us.monoid.json.JSONObject;
+
+/**
+ * Updates or resets the Metadata of many Bundles concurrently. Each update is a single call: the Metadata is not
+ * re-fetched after the write, as ResponseMode.RESPONSE does for ClarifyClient.updateMetadata().
+ *
+ * Before writing, the new data is compared with a known copy of the Bundle's data, and the write is skipped if
+ * they are equal. JSON objects are compared regardless of the order of their keys. The known copy is, in order:
+ *
+ * - the data last written or reset by this MetadataUpdater
+ * - a fresh Metadata response in the client's ResponseCache
+ * - the Metadata stored in the BundleMirror given to the constructor, if any
+ *
+ * A Bundle with no known copy is always written. A known copy that is out of date, for example because the
+ * Metadata was changed by another application, can cause a needed write to be skipped; call forget() or use a
+ * new MetadataUpdater when the data may have been changed elsewhere.
+ *
+ * Example:
+ *
+ * MetadataUpdater updater = new MetadataUpdater(client);
+ * Map&lt;String,String&gt; retagged = new HashMap&lt;String,String&gt;();
+ * retagged.put(bundleId, "{\"category\":\"news\"}");
+ * BatchResult&lt;MetadataUpdateStatus&gt; result = updater.update(retagged);
+ */
+public class MetadataUpdater {
+
+    /**
+     * Creates an updater using the client's batch concurrency
+     * @param client the ClarifyClient used for the updates
+     */
+    public MetadataUpdater(ClarifyClient client) {
+        this(client, null);
+    }
+
+    /**
+     * Creates an updater that also compares the new data with the Metadata stored in a BundleMirror
+     * @param client the ClarifyClient used for the updates
+     * @param mirror the BundleMirror holding copies of the Metadata, or null
+     */
+    public MetadataUpdater(ClarifyClient client, BundleMirror mirror) {
+        if(client == null) { throw new RuntimeException("client cannot be null"); }
+        this.client = client;
+        this.mirror = mirror;
+        this.concurrency = client.getBatchConcurrency();
+    }
+
+    /**
+     * Sets the maximum number of calls in flight at once
+     * @param concurrency the concurrency limit
+     */
+    public void setConcurrency(int concurrency) {
+        if(concurrency < 1) { throw new RuntimeException("concurrency must be at least 1"); }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Writes the data of each Bundle whose known data differs
+     * @param dataByBundleId the new data keyed by Bundle GUID, as JSON strings. A null value resets the data to {}.
+     * @return a BatchResult holding the MetadataUpdateStatus or exception of each Bundle, in the order of the Map
+     */
+    public BatchResult<MetadataUpdateStatus> update(Map<String,String> dataByBundleId) {
+        if(dataByBundleId == null) { throw new RuntimeException("dataByBundleId cannot be null"); }
+        final Map<String,String> updates = new LinkedHashMap<String,String>(dataByBundleId);
+        return BatchRunner.run(new ArrayList<String>(updates.keySet()), concurrency, client.getExecutor(),
+                new BatchRunner.Call<MetadataUpdateStatus>() {
+                    public MetadataUpdateStatus call(String bundleId) throws Exception {
+                        return write(bundleId, updates.get(bundleId));
+                    }
+                });
+    }
+
+    /**
+     * Writes the data of each Bundle whose known data differs. The stream is read to the end before the first
+     * call is made; when a Bundle appears more than once, its last data is written.
+     * @param updates entries of Bundle GUID and new data as a JSON string, or null to reset the data to {}
+     * @return a BatchResult holding the MetadataUpdateStatus or exception of each Bundle, in the order of the stream
+     */
+    public BatchResult<MetadataUpdateStatus> update(Stream<Map.Entry<String,String>> updates) {
+        if(updates == null) { throw new RuntimeException("updates cannot be null"); }
+        Map<String,String> collected = new LinkedHashMap<String,String>();
+        Iterator<Map.Entry<String,String>> entries = updates.iterator();
+        while(entries.hasNext()) {
+            Map.Entry<String,String> entry = entries.next();
+            collected.put(entry.getKey(), entry.getValue());
+        }
+        return update(collected);
+    }
+
+    /**
+     * Resets the data of each Bundle whose known data is not already {}
+     * @param bundleIds the GUIDs of the Bundles
+     * @return a BatchResult holding the MetadataUpdateStatus or exception of each Bundle, in input order
+     */
+    public BatchResult<MetadataUpdateStatus> reset(Collection<String> bundleIds) {
+        if(bundleIds == null) { throw new RuntimeException("bundleIds cannot be null"); }
+        Map<String,String> resets = new LinkedHashMap<String,String>();
+        for(String bundleId : bundleIds) {
+            resets.put(bundleId, null);
+        }
+        return update(resets);
+    }
+
+    /**
+     * Discards the data this updater knows it wrote for a Bundle, so that its next update is compared with the
+     * response cache or mirror only
+     * @param bundleId the GUID of the Bundle
+     */
+    public void forget(String bundleId) {
+        if(bundleId == null) { throw new RuntimeException("bundleId cannot be null"); }
+        written.remove(bundleId);
+    }
+
+    /**
+     * Discards the data this updater knows it wrote for all Bundles
+     */
+    public void clear() {
+        written.clear();
+    }
+
+    private MetadataUpdateStatus write(String bundleId, String json) throws IOException {
+        if(bundleId == null) { throw new RuntimeException("bundleId cannot be null"); }
+        String data = canonical((json == null) ? EMPTY : json);
+        if(data != null && data.equals(knownData(bundleId))) {
+            return MetadataUpdateStatus.UNCHANGED;
+        }
+        // the outcome of a failed write is unknown, so its previous copy cannot be trusted either
+        written.remove(bundleId);
+        if(json == null) {
+            client.resetMetadata(bundleId);
+        } else {
+            client.updateMetadata(bundleId, json, ResponseMode.RESPONSE);
+        }
+        if(data != null) {
+            written.put(bundleId, data);
+        }
+        return (json == null) ? MetadataUpdateStatus.RESET : MetadataUpdateStatus.UPDATED;
+    }
+
+    /*
+     * Returns the canonical form of the known data of a Bundle, or null if none is known
+     */
+    private String knownData(String bundleId) throws IOException {
+        String known = written.get(bundleId);
+        if(known != null) {
+            return known;
+        }
+        ResponseCache cache = client.getResponseCache();
+        ClarifyResponse cached = (cache == null) ? null
+                : cache.peek(client.buildPathFromResourcePath("/bundles/"+bundleId+"/metadata"));
+        if(cached != null) {
+            return canonical(cached.getJSONObject().opt("data"));
+        }
+        BundleMetadata mirrored = (mirror == null) ? null : mirror.getMetadata(bundleId);
+        if(mirrored != null) {
+            return canonical(mirrored.getClarifyResponse().getJSONObject().opt("data"));
+        }
+        return null;
+    }
+
+    /*
+     * Writes a JSON value with the keys of every object sorted, so that equal data compares equal whatever the
+     * order of its keys. A string is parsed as a JSON document. Returns null if the value is not valid JSON.
+     */
+    private static String canonical(Object value) {
+        try {
+            if(value instanceof String) {
+                String text = ((String)value).trim();
+                value = text.startsWith("[") ? new JSONArray(text) : new JSONObject(text);
+            }
+            if(value == null) {
+                return null;
+            }
+            StringBuilder out = new StringBuilder();
+            appendCanonical(out, value);
+            return out.toString();
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    private static void appendCanonical(StringBuilder out, Object value) throws JSONException {
+        if(value instanceof JSONObject) {
+            JSONObject object = (JSONObject)value;
+            String[] names = JSONObject.getNames(object);
+            if(names == null) {
+                out.append("{}");
+                return;
+            }
+            Arrays.sort(names);
+            out.append('{');
+            for(int i=0;i<names.length;i++) {
+                if(i > 0) {
+                    out.append(',');
+                }
+                out.append(JSONObject.quote(names[i])).append(':');
+                appendCanonical(out, object.opt(names[i]));
+            }
+            out.append('}');
+        } else if(value instanceof JSONArray) {
+            JSONArray array = (JSONArray)value;
+            out.append('[');
+            for(int i=0;i<array.length();i++) {
+                if(i > 0) {
+                    out.append(',');
+                }
+                appendCanonical(out, array.opt(i));
+            }
+            out.append(']');
+        } else if(value instanceof String) {
+            out.append(JSONObject.quote((String)value));
+        } else if(value instanceof Number) {
+            out.append(JSONObject.numberToString((Number)value));
+        } else {
+            out.append(String.valueOf(value));
+        }
+    }
+
+    private static final String EMPTY = "{}";
+
+    private final ClarifyClient client;
+    private final BundleMirror mirror;
+    // the canonical data last written for each Bundle
+    private final Map<String,String> written = new ConcurrentHashMap<String,String>();
+    private volatile int concurrency;
+}
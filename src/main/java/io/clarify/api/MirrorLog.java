@@ -0,0 +1,299 @@
+package io.clarify.api;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * A key-value store kept in a single append-only file, used by BundleMirror. Every put or remove appends a
+ * record; an in-memory index maps each key to the position of its latest value, so a read is one positional read
+ * of the file. Records superseded by later ones are dropped by compact().
+ *
+ * Each record is the key length, the value length (-1 for a removal), the UTF-8 key, the value and a CRC-32 of
+ * all of these. When the file is opened, it is scanned up to the first incomplete or corrupt record, which is
+ * where a crash interrupted a write, and truncated there.
+ */
+final class MirrorLog implements Closeable {
+
+    /**
+     * Opens the store, creating the file if it does not exist
+     * @param file the file of the store
+     * @throws IOException if the file cannot be read or opened for writing
+     */
+    MirrorLog(File file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    /**
+     * Returns the latest value of a key
+     * @param key the key
+     * @return the value, or null if the key has no value
+     * @throws IOException if the file cannot be read
+     */
+    synchronized byte[] get(String key) throws IOException {
+        long[] location = index.get(key);
+        if(location == null) {
+            return null;
+        }
+        ByteBuffer value = ByteBuffer.allocate((int)location[1]);
+        long position = location[0];
+        while(value.hasRemaining()) {
+            int read = channel.read(value, position + value.position());
+            if(read < 0) {
+                throw new EOFException("mirror file truncated: "+file);
+            }
+        }
+        return value.array();
+    }
+
+    /**
+     * Determine if a key has a value
+     * @param key the key
+     * @return true if the key has a value
+     */
+    synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Appends a value for a key, replacing its previous value
+     * @param key the key
+     * @param value the value
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void put(String key, byte[] value) throws IOException {
+        append(key, value);
+    }
+
+    /**
+     * Appends the removal of a key
+     * @param key the key
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void remove(String key) throws IOException {
+        if(index.containsKey(key)) {
+            append(key, null);
+        }
+    }
+
+    /**
+     * Returns the keys starting with the given prefix
+     * @param prefix the prefix
+     * @return a sorted set of the matching keys
+     */
+    synchronized TreeSet<String> keys(String prefix) {
+        TreeSet<String> keys = new TreeSet<String>();
+        for(String key : index.keySet()) {
+            if(key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Forces the records written so far to the storage device
+     * @throws IOException if the file cannot be synced
+     */
+    synchronized void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Determine if more than half of the file is taken by superseded records
+     * @return true if compact() would at least halve the file
+     */
+    synchronized boolean needsCompaction() {
+        return fileBytes > MIN_COMPACTION_BYTES && fileBytes > 2 * liveBytes;
+    }
+
+    /**
+     * Rewrites the file with only the latest value of each key
+     * @throws IOException if the compacted file cannot be written; the store is left unchanged
+     */
+    synchronized void compact() throws IOException {
+        File compacted = new File(file.getPath()+".compact");
+        RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+        try {
+            out.setLength(0);
+            FileChannel target = out.getChannel();
+            for(String key : new TreeSet<String>(index.keySet())) {
+                ByteBuffer record = encode(key, get(key));
+                while(record.hasRemaining()) {
+                    target.write(record);
+                }
+            }
+            target.force(true);
+        } finally {
+            out.close();
+        }
+        channel.close();
+        raf.close();
+        try {
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // reopen whichever file is now in place
+            open();
+        }
+    }
+
+    /**
+     * Returns the size of the file
+     */
+    synchronized long getFileBytes() {
+        return fileBytes;
+    }
+
+    public synchronized void close() throws IOException {
+        channel.close();
+        raf.close();
+    }
+
+    private void append(String key, byte[] value) throws IOException {
+        ByteBuffer record = encode(key, value);
+        int length = record.remaining();
+        long position = fileBytes;
+        while(record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        long[] previous = index.remove(key);
+        if(previous != null) {
+            liveBytes -= previous[2];
+        }
+        if(value != null) {
+            index.put(key, new long[] { fileBytes + length - CRC_BYTES - value.length, value.length, length });
+            liveBytes += length;
+        }
+        fileBytes += length;
+    }
+
+    /*
+     * Opens the file and rebuilds the index from its records
+     */
+    private void open() throws IOException {
+        index.clear();
+        liveBytes = 0;
+        long valid = file.exists() ? scan() : 0;
+        raf = new RandomAccessFile(file, "rw");
+        if(raf.length() > valid) {
+            // drop the record a crash left incomplete
+            raf.setLength(valid);
+        }
+        channel = raf.getChannel();
+        fileBytes = valid;
+    }
+
+    /*
+     * Reads the records of the file into the index, returning the length of the valid part of the file
+     */
+    private long scan() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        long offset = 0;
+        long fileLength = file.length();
+        CRC32 crc = new CRC32();
+        try {
+            while(true) {
+                int keyLength;
+                int valueLength;
+                byte[] key;
+                byte[] value;
+                try {
+                    keyLength = in.readInt();
+                    valueLength = in.readInt();
+                    if(keyLength < 0 || keyLength > MAX_KEY_BYTES || valueLength < -1
+                            || offset + HEADER_BYTES + keyLength + Math.max(0, valueLength) + CRC_BYTES > fileLength) {
+                        return offset;
+                    }
+                    key = new byte[keyLength];
+                    in.readFully(key);
+                    value = (valueLength < 0) ? null : new byte[valueLength];
+                    if(value != null) {
+                        in.readFully(value);
+                    }
+                    crc.reset();
+                    updateHeader(crc, keyLength, valueLength);
+                    crc.update(key);
+                    if(value != null) {
+                        crc.update(value);
+                    }
+                    if(in.readInt() != (int)crc.getValue()) {
+                        return offset;
+                    }
+                } catch (EOFException e) {
+                    return offset;
+                }
+                int length = HEADER_BYTES + keyLength + Math.max(0, valueLength) + CRC_BYTES;
+                String name = new String(key, UTF8);
+                long[] previous = index.remove(name);
+                if(previous != null) {
+                    liveBytes -= previous[2];
+                }
+                if(value != null) {
+                    index.put(name, new long[] { offset + HEADER_BYTES + keyLength, valueLength, length });
+                    liveBytes += length;
+                }
+                offset += length;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static ByteBuffer encode(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(UTF8);
+        if(keyBytes.length > MAX_KEY_BYTES) { throw new RuntimeException("key too long: "+key); }
+        int valueLength = (value == null) ? -1 : value.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length + Math.max(0, valueLength) + CRC_BYTES);
+        record.putInt(keyBytes.length).putInt(valueLength).put(keyBytes);
+        if(value != null) {
+            record.put(value);
+        }
+        CRC32 crc = new CRC32();
+        updateHeader(crc, keyBytes.length, valueLength);
+        crc.update(keyBytes);
+        if(value != null) {
+            crc.update(value);
+        }
+        record.putInt((int)crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static void updateHeader(CRC32 crc, int keyLength, int valueLength) {
+        for(int shift=24;shift>=0;shift-=8) {
+            crc.update(keyLength >>> shift);
+        }
+        for(int shift=24;shift>=0;shift-=8) {
+            crc.update(valueLength >>> shift);
+        }
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int HEADER_BYTES = 8;
+    private static final int CRC_BYTES = 4;
+    private static final int MAX_KEY_BYTES = 4096;
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+
+    private final File file;
+    // key -> { value offset, value length, record length }
+    private final Map<String,long[]> index = new HashMap<String,long[]>();
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private long fileBytes;
+    private long liveBytes;
+}
@@ -0,0 +1,102 @@
+package io.clarify.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of a BundleMirror.sync(). A Bundle that could not be fetched does not abort the sync; it is
+ * reported here and keeps its previous copy, and is fetched again by the next sync.
+ */
+public class MirrorSyncResult {
+
+    MirrorSyncResult() {
+    }
+
+    /**
+     * Returns the number of List Bundles pages read
+     */
+    public synchronized int getPageCount() {
+        return pages;
+    }
+
+    /**
+     * Returns the number of Bundles whose mirrored copy was up to date
+     */
+    public synchronized int getUnchangedCount() {
+        return unchanged;
+    }
+
+    /**
+     * Returns the number of Bundles added to the mirror
+     */
+    public synchronized int getAddedCount() {
+        return added;
+    }
+
+    /**
+     * Returns the number of mirrored Bundles that were fetched again because they changed
+     */
+    public synchronized int getUpdatedCount() {
+        return updated;
+    }
+
+    /**
+     * Returns the number of Bundles removed from the mirror because they no longer exist
+     */
+    public synchronized int getRemovedCount() {
+        return removed;
+    }
+
+    /**
+     * Determine if any Bundle could not be fetched
+     * @return true if at least one Bundle failed
+     */
+    public synchronized boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Returns the exceptions of the Bundles that could not be fetched keyed by Bundle GUID
+     * @return a Map of Bundle GUID to exception
+     */
+    public synchronized Map<String,Exception> getFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String,Exception>(failures));
+    }
+
+    synchronized void page() {
+        pages++;
+    }
+
+    synchronized void unchanged() {
+        unchanged++;
+    }
+
+    synchronized void added() {
+        added++;
+    }
+
+    synchronized void updated() {
+        updated++;
+    }
+
+    synchronized void removed() {
+        removed++;
+    }
+
+    synchronized void failed(String bundleId, Exception error) {
+        failures.put(bundleId, error);
+    }
+
+    public String toString() {
+        return "MirrorSyncResult[pages="+getPageCount()+", unchanged="+getUnchangedCount()+", added="+getAddedCount()
+                +", updated="+getUpdatedCount()+", removed="+getRemovedCount()+", failures="+getFailures().size()+"]";
+    }
+
+    private final Map<String,Exception> failures = new LinkedHashMap<String,Exception>();
+    private int pages;
+    private int unchanged;
+    private int added;
+    private int updated;
+    private int removed;
+}
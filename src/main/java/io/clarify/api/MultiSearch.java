@@ -0,0 +1,295 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import us.monoid.json.JSONArray;
+import us.monoid.json.JSONObject;
+
+/**
+ * Runs several searches as one: the first page of every query is requested concurrently, and the item_results
+ * of all queries are merged into a single sequence of SearchHits in decreasing score order, each Bundle appearing
+ * once with its best score.
+ *
+ * The merge is lazy. Since each query returns its results in decreasing score order, the last score seen for a
+ * query bounds the scores of its remaining pages, and a further page of a query is only requested once that bound
+ * is at least the best score available from the other queries. A caller that stops after the first k hits thus
+ * only pays for the pages that could contribute to the top k; when several queries need a page at the same time,
+ * their pages are requested concurrently.
+ *
+ * Example:
+ *
+ * MultiSearch search = new MultiSearch(client)
+ *     .add("car")
+ *     .add("automobile")
+ *     .add("vehicle", customerFilter);
+ * for(SearchHit hit : search.top(20)) {
+ *     System.out.println(hit.getBundleId()+" "+hit.getScore());
+ * }
+ */
+public class MultiSearch implements Iterable<SearchHit> {
+
+    /**
+     * Creates an empty MultiSearch
+     * @param client the ClarifyClient used for the searches
+     */
+    public MultiSearch(ClarifyClient client) {
+        if(client == null) { throw new RuntimeException("client cannot be null"); }
+        this.client = client;
+    }
+
+    /**
+     * Adds a query without additional parameters
+     * @param query the query string, as for ClarifyClient.searchBundles()
+     * @return this MultiSearch
+     */
+    public MultiSearch add(String query) {
+        return add(query, null);
+    }
+
+    /**
+     * Adds a query with its own parameters, for example filters
+     * @param query the query string, as for ClarifyClient.searchBundles()
+     * @param params the additional parameters of the search, or null
+     * @return this MultiSearch
+     */
+    public MultiSearch add(String query, Map<String,String> params) {
+        if(query == null) { throw new RuntimeException("query cannot be null"); }
+        queries.add(query);
+        this.params.add((params == null) ? new HashMap<String,String>() : new HashMap<String,String>(params));
+        return this;
+    }
+
+    /**
+     * Returns the queries of this MultiSearch
+     * @return an unmodifiable List of query strings, in the order added
+     */
+    public List<String> getQueries() {
+        return Collections.unmodifiableList(queries);
+    }
+
+    /**
+     * Runs the searches and returns an iterator over the merged hits. Each call starts new searches.
+     * The iterator throws a RuntimeException holding the IOException if a page could not be fetched.
+     * @return an Iterator over the SearchHits of all queries, in decreasing score order
+     */
+    public Iterator<SearchHit> iterator() {
+        return new MergeIterator();
+    }
+
+    /**
+     * Runs the searches and returns the k best hits
+     * @param k the number of hits
+     * @return a List of at most k SearchHits, in decreasing score order
+     * @throws IOException if a page could not be fetched
+     */
+    public List<SearchHit> top(int k) throws IOException {
+        if(k < 0) { throw new RuntimeException("k cannot be negative"); }
+        List<SearchHit> hits = new ArrayList<SearchHit>(Math.min(k, 1024));
+        try {
+            Iterator<SearchHit> merged = iterator();
+            while(hits.size() < k && merged.hasNext()) {
+                hits.add(merged.next());
+            }
+        } catch (RuntimeException e) {
+            if(e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw e;
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the number of result pages requested by this MultiSearch so far, including the first pages
+     */
+    public long getPageCount() {
+        return pages.get();
+    }
+
+    /*
+     * The results of one query: the buffered hits of its current page and the link to its next page
+     */
+    private final class Shard {
+        Shard(int index) {
+            this.index = index;
+        }
+
+        boolean isBuffered() {
+            return position < hits.size();
+        }
+
+        boolean hasMorePages() {
+            return first == null || first.hasNextPage();
+        }
+
+        /*
+         * The highest score the remaining results of this query can have
+         */
+        double bound() {
+            return isBuffered() ? hits.get(position).getScore() : lastScore;
+        }
+
+        void fetch() throws IOException {
+            BundleSearchResults page;
+            if(first == null) {
+                page = client.searchBundles(queries.get(index), new HashMap<String,String>(params.get(index)));
+            } else {
+                try {
+                    page = first.nextPage();
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+            pages.incrementAndGet();
+            first = page;
+            hits = (page == null) ? Collections.<SearchHit>emptyList() : hitsOf(page);
+            position = 0;
+        }
+
+        SearchHit take() {
+            SearchHit hit = hits.get(position++);
+            lastScore = hit.getScore();
+            return hit;
+        }
+
+        private List<SearchHit> hitsOf(BundleSearchResults page) {
+            JSONObject json = page.getJSON();
+            JSONArray results = json.optJSONArray("item_results");
+            JSONObject links = json.optJSONObject("_links");
+            JSONArray items = (links == null) ? null : links.optJSONArray("items");
+            List<SearchHit> hits = new ArrayList<SearchHit>();
+            for(int i=0;results != null && items != null && i<results.length() && i<items.length();i++) {
+                JSONObject result = results.optJSONObject(i);
+                JSONObject item = items.optJSONObject(i);
+                String href = (item == null) ? null : ClarifyModel.stringField(item, "href");
+                if(result == null || href == null) {
+                    continue;
+                }
+                double score = result.optDouble("score", 0);
+                // a score above the previous page's would break the merge order; cap it at the bound
+                hits.add(new SearchHit(queries.get(index), index, Math.min(score, lastScore), href, result));
+            }
+            // within a page the order of scores is not relied upon
+            Collections.sort(hits, BY_SCORE);
+            return hits;
+        }
+
+        final int index;
+        // the page currently buffered, whose next link leads to the following page
+        BundleSearchResults first;
+        List<SearchHit> hits = Collections.<SearchHit>emptyList();
+        int position;
+        double lastScore = Double.POSITIVE_INFINITY;
+    }
+
+    private final class MergeIterator implements Iterator<SearchHit> {
+        MergeIterator() {
+            shards = new ArrayList<Shard>();
+            for(int i=0;i<queries.size();i++) {
+                shards.add(new Shard(i));
+            }
+        }
+
+        public boolean hasNext() {
+            while(next == null) {
+                Shard best = null;
+                for(Shard shard : shards) {
+                    if(shard.isBuffered() && (best == null || shard.bound() > best.bound())) {
+                        best = shard;
+                    }
+                }
+                // the queries whose next page may hold a better hit than the best one buffered
+                List<Shard> competitive = new ArrayList<Shard>();
+                for(Shard shard : shards) {
+                    if(!shard.isBuffered() && shard.hasMorePages() && (best == null || shard.bound() >= best.bound())) {
+                        competitive.add(shard);
+                    }
+                }
+                if(!competitive.isEmpty()) {
+                    fetch(competitive);
+                    continue;
+                }
+                if(best == null) {
+                    return false;
+                }
+                SearchHit hit = best.take();
+                if(seen.add(hit.getBundleId())) {
+                    next = hit;
+                }
+            }
+            return true;
+        }
+
+        public SearchHit next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SearchHit hit = next;
+            next = null;
+            return hit;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        /*
+         * Fetches the next page of each shard, concurrently when there are several
+         */
+        private void fetch(final List<Shard> pending) {
+            if(pending.size() == 1) {
+                try {
+                    pending.get(0).fetch();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                return;
+            }
+            List<String> keys = new ArrayList<String>();
+            for(int i=0;i<pending.size();i++) {
+                keys.add(Integer.toString(i));
+            }
+            BatchResult<Boolean> fetched = BatchRunner.run(keys, client.getBatchConcurrency(), client.getExecutor(),
+                    new BatchRunner.Call<Boolean>() {
+                        public Boolean call(String key) throws Exception {
+                            pending.get(Integer.parseInt(key)).fetch();
+                            return Boolean.TRUE;
+                        }
+                    });
+            for(int i=0;i<fetched.size();i++) {
+                if(!fetched.isSuccess(i)) {
+                    Exception error = fetched.getError(i);
+                    throw (error instanceof RuntimeException) ? (RuntimeException)error : new RuntimeException(error);
+                }
+            }
+        }
+
+        private final List<Shard> shards;
+        private final Set<String> seen = new HashSet<String>();
+        private SearchHit next;
+    }
+
+    private static final Comparator<SearchHit> BY_SCORE = new Comparator<SearchHit>() {
+        public int compare(SearchHit a, SearchHit b) {
+            return Double.compare(b.getScore(), a.getScore());
+        }
+    };
+
+    private final ClarifyClient client;
+    private final List<String> queries = new ArrayList<String>();
+    private final List<Map<String,String>> params = new ArrayList<Map<String,String>>();
+    private final AtomicLong pages = new AtomicLong();
+}
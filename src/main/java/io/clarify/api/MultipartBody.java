@@ -0,0 +1,86 @@
+package io.clarify.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A multipart/form-data request body made of form fields followed by one MediaUpload. The framing of the parts
+ * is encoded up front, and the media is streamed between the framing when the body is written, so the length of
+ * the body is known whenever the length of the media is.
+ */
+final class MultipartBody implements ClarifyRequestBody {
+
+    /**
+     * Creates the body
+     * @param fields the form fields, sent before the media
+     * @param name the name of the form field holding the media
+     * @param media the media
+     */
+    MultipartBody(Map<String,String> fields, String name, MediaUpload media) {
+        this.media = media;
+        this.boundary = "clarify-"+UUID.randomUUID().toString();
+
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        for(Map.Entry<String,String> field : fields.entrySet()) {
+            if(field.getValue() == null) { throw new RuntimeException("value of "+field.getKey()+" cannot be null"); }
+            ascii(head, "--"+boundary+CRLF);
+            utf8(head, "Content-Disposition: form-data; name=\""+escape(field.getKey())+"\""+CRLF+CRLF);
+            utf8(head, field.getValue());
+            ascii(head, CRLF);
+        }
+        ascii(head, "--"+boundary+CRLF);
+        utf8(head, "Content-Disposition: form-data; name=\""+escape(name)+"\"; filename=\""+escape(media.getFilename())+"\""+CRLF);
+        ascii(head, "Content-Type: "+media.getContentType()+CRLF+CRLF);
+        this.head = head.toByteArray();
+        this.tail = (CRLF+"--"+boundary+"--"+CRLF).getBytes(ASCII);
+    }
+
+    public String getContentType() {
+        return "multipart/form-data; boundary="+boundary;
+    }
+
+    public long getContentLength() {
+        long length = media.getLength();
+        return (length < 0) ? -1 : head.length + length + tail.length;
+    }
+
+    public boolean isRepeatable() {
+        return media.isRepeatable();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(head);
+        media.writeTo(out);
+        out.write(tail);
+    }
+
+    /*
+     * Escapes the quotes and line breaks of a field or file name, which would end the quoted parameter
+     */
+    private static String escape(String value) {
+        return value.replace("\"", "%22").replace("\r", "%0D").replace("\n", "%0A");
+    }
+
+    private static void ascii(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(ASCII);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void utf8(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(UTF8);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static final String CRLF = "\r\n";
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final MediaUpload media;
+    private final String boundary;
+    private final byte[] head;
+    private final byte[] tail;
+}
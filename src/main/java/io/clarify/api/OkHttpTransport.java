@@ -0,0 +1,277 @@
+package io.clarify.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+
+/**
+ * The default ClarifyTransport. Requests are executed with OkHttp over a shared pool of keep-alive connections,
+ * so that TCP and TLS handshakes are paid once per connection rather than once per API call. HTTP/2 is negotiated
+ * via ALPN when supported by the JVM and the server, allowing many concurrent calls to be multiplexed over a single
+ * connection.
+ *
+ * Use the Builder to tune the pool size, the maximum number of concurrent connections per route (host and port),
+ * idle eviction and the connect, read and write timeouts. A transport is thread-safe and is intended to be shared.
+ */
+public class OkHttpTransport implements ClarifyTransport {
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 64;
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 16;
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 5 * 60 * 1000L;
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 10 * 1000L;
+    public static final long DEFAULT_READ_TIMEOUT_MILLIS = 60 * 1000L;
+    public static final long DEFAULT_WRITE_TIMEOUT_MILLIS = 60 * 1000L;
+
+    /**
+     * Creates a new transport with the default settings
+     */
+    public OkHttpTransport() {
+        this(new Builder());
+    }
+
+    private OkHttpTransport(Builder builder) {
+        this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        this.connectionPool = new ConnectionPool(builder.maxIdleConnections, builder.keepAliveMillis, TimeUnit.MILLISECONDS);
+        List<Protocol> protocols = new ArrayList<Protocol>();
+        if(builder.http2) {
+            protocols.add(Protocol.HTTP_2);
+        }
+        protocols.add(Protocol.HTTP_1_1);
+        this.httpClient = new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .protocols(protocols)
+                .connectTimeout(builder.connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(builder.readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(builder.writeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .followRedirects(true)
+                .build();
+    }
+
+    /**
+     * Returns a new Builder for configuring an OkHttpTransport
+     * @return a Builder initialized with the default settings
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public ClarifyHttpResponse execute(ClarifyHttpRequest request) throws IOException {
+        HttpUrl url = HttpUrl.get(request.getUrl());
+        Request.Builder okRequest = new Request.Builder().url(url);
+        for(Map.Entry<String,String> header : request.getHeaders().entrySet()) {
+            okRequest.header(header.getKey(), header.getValue());
+        }
+        okRequest.method(request.getMethod(), requestBody(request));
+
+        final Semaphore permits = routePermits(url);
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a connection to "+url.host());
+        }
+
+        Response response;
+        try {
+            response = httpClient.newCall(okRequest.build()).execute();
+        } catch (IOException e) {
+            permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        final ResponseBody body = response.body();
+        return new ClarifyHttpResponse(response.code(), response.headers().toMultimap(),
+                (body == null) ? null : body.byteStream(), new Closeable() {
+                    private boolean closed;
+                    public synchronized void close() {
+                        if(!closed) {
+                            closed = true;
+                            if(body != null) { body.close(); }
+                            permits.release();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Returns the number of connections currently held in the pool
+     * @return the total number of pooled connections
+     */
+    public int getConnectionCount() {
+        return connectionPool.connectionCount();
+    }
+
+    /**
+     * Returns the number of idle connections currently held in the pool
+     * @return the number of idle pooled connections
+     */
+    public int getIdleConnectionCount() {
+        return connectionPool.idleConnectionCount();
+    }
+
+    /**
+     * Evicts all idle connections from the pool immediately
+     */
+    public void evictIdleConnections() {
+        connectionPool.evictAll();
+    }
+
+    /**
+     * Closes all pooled connections and shuts down the transport's background threads
+     */
+    public void close() throws IOException {
+        httpClient.dispatcher().executorService().shutdown();
+        connectionPool.evictAll();
+    }
+
+    private RequestBody requestBody(ClarifyHttpRequest request) {
+        byte[] body = request.getBody();
+        MediaType mediaType = (request.getContentType() == null) ? null : MediaType.parse(request.getContentType());
+        if(request.getStreamingBody() != null) {
+            return new StreamingRequestBody(mediaType, request.getStreamingBody());
+        }
+        if(body != null) {
+            return RequestBody.create(mediaType, body);
+        }
+        if("POST".equals(request.getMethod()) || "PUT".equals(request.getMethod())) {
+            return RequestBody.create(mediaType, new byte[0]);
+        }
+        return null;
+    }
+
+    private Semaphore routePermits(HttpUrl url) {
+        String route = url.scheme()+"://"+url.host()+":"+url.port();
+        Semaphore permits = routes.get(route);
+        if(permits == null) {
+            Semaphore created = new Semaphore(maxConnectionsPerRoute);
+            permits = routes.putIfAbsent(route, created);
+            if(permits == null) {
+                permits = created;
+            }
+        }
+        return permits;
+    }
+
+    /*
+     * Writes a streaming body through the sink of the call. OkHttp sends it with a Content-Length when the length
+     * is known and chunked otherwise, and does not repeat a one-shot body on a redirect or connection retry.
+     */
+    private static class StreamingRequestBody extends RequestBody {
+        StreamingRequestBody(MediaType mediaType, ClarifyRequestBody body) {
+            this.mediaType = mediaType;
+            this.body = body;
+        }
+
+        public MediaType contentType() {
+            return mediaType;
+        }
+
+        public long contentLength() {
+            return body.getContentLength();
+        }
+
+        public boolean isOneShot() {
+            return !body.isRepeatable();
+        }
+
+        public void writeTo(BufferedSink sink) throws IOException {
+            body.writeTo(sink.outputStream());
+        }
+
+        private final MediaType mediaType;
+        private final ClarifyRequestBody body;
+    }
+
+    /**
+     * Fluent builder for OkHttpTransport settings
+     */
+    public static class Builder {
+        /**
+         * Sets the maximum number of requests that may be in flight to a single route (scheme, host and port) at
+         * once. Additional callers wait for a permit. With HTTP/1.1 this bounds the number of open connections.
+         */
+        public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            if(maxConnectionsPerRoute < 1) { throw new RuntimeException("maxConnectionsPerRoute must be at least 1"); }
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of idle connections kept in the pool
+         */
+        public Builder maxIdleConnections(int maxIdleConnections) {
+            if(maxIdleConnections < 0) { throw new RuntimeException("maxIdleConnections cannot be negative"); }
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * Sets how long an idle connection is kept in the pool before it is evicted
+         */
+        public Builder keepAlive(long duration, TimeUnit unit) {
+            this.keepAliveMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder writeTimeout(long timeout, TimeUnit unit) {
+            this.writeTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Enables or disables HTTP/2 negotiation. When disabled, only HTTP/1.1 is used.
+         */
+        public Builder http2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        public OkHttpTransport build() {
+            return new OkHttpTransport(this);
+        }
+
+        private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+        private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+        private long connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+        private long readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+        private long writeTimeoutMillis = DEFAULT_WRITE_TIMEOUT_MILLIS;
+        private boolean http2 = true;
+    }
+
+    private final int maxConnectionsPerRoute;
+    private final ConnectionPool connectionPool;
+    private final OkHttpClient httpClient;
+    private final ConcurrentMap<String,Semaphore> routes = new ConcurrentHashMap<String,Semaphore>();
+}
@@ -0,0 +1,35 @@
+package io.clarify.api;
+
+import java.io.IOException;
+
+import us.monoid.json.JSONObject;
+
+/**
+ * Receives the items of a list or search page one at a time while the response is still being read from the
+ * network. Pass a handler to ClarifyClient.listBundles(PageItemHandler), searchBundles(String, Map, PageItemHandler)
+ * or nextPage(PageItemHandler) to process large pages without holding the whole parsed payload in memory.
+ *
+ * Each item is parsed on its own and becomes garbage once the handler returns, unless the handler keeps it.
+ * Handlers are called on the thread performing the request, in the order the items appear in the response.
+ */
+public interface PageItemHandler {
+
+    /**
+     * The field name passed to onItem() for the elements of the item_results array of a search response
+     */
+    String ITEM_RESULTS = "item_results";
+
+    /**
+     * The field name passed to onItem() for the elements of the _links.items array of a list or search response
+     */
+    String LINK_ITEMS = "_links.items";
+
+    /**
+     * Called once for every element of the item_results and _links.items arrays
+     * @param field either ITEM_RESULTS or LINK_ITEMS
+     * @param index the position of the element within its array
+     * @param item the parsed element
+     * @throws IOException to abort reading the page; the exception is thrown to the caller of the request
+     */
+    void onItem(String field, int index, JSONObject item) throws IOException;
+}
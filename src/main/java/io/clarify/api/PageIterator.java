@@ -0,0 +1,162 @@
+package io.clarify.api;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Iterates over a paginated Clarify API response, following the _links.next link of each page. While the caller
+ * is processing the current page, up to prefetch further pages are fetched in the background on the given
+ * executor, so that network latency overlaps with processing. At most prefetch pages are buffered ahead of the
+ * caller, which bounds memory use when the caller is slower than the network.
+ *
+ * Since each page's next link is only known once that page has arrived, prefetched pages are fetched one after
+ * another rather than in parallel. No thread is blocked while waiting for a page unless the caller is waiting in
+ * hasNext() or next().
+ *
+ * Failures while fetching a page are thrown from hasNext() or next() as a RuntimeException wrapping the original
+ * IOException. Call close() to stop fetching when abandoning an iteration early.
+ */
+public class PageIterator<T extends ClarifyPaginatedModel> implements Iterator<T>, Closeable {
+
+    /**
+     * Creates a new iterator starting with (and including) the given page
+     * @param firstPage the first page to return
+     * @param prefetch the number of pages to fetch ahead of the page being processed, or 0 to fetch on demand
+     * @param executor the Executor on which pages are fetched
+     */
+    public PageIterator(T firstPage, int prefetch, Executor executor) {
+        if(firstPage == null) { throw new RuntimeException("firstPage cannot be null"); }
+        if(prefetch < 0) { throw new RuntimeException("prefetch cannot be negative"); }
+        if(executor == null) { throw new RuntimeException("executor cannot be null"); }
+        this.prefetch = prefetch;
+        this.executor = executor;
+        this.tail = CompletableFuture.completedFuture(firstPage);
+        this.buffer.add(tail);
+    }
+
+    public boolean hasNext() {
+        CompletableFuture<T> head;
+        synchronized(this) {
+            if(closed) {
+                return false;
+            }
+            if(buffer.isEmpty()) {
+                if(exhausted) {
+                    return false;
+                }
+                schedule();
+                if(buffer.isEmpty()) {
+                    return false;
+                }
+            }
+            head = buffer.peek();
+        }
+        // wait outside the lock, so that close() does not wait for the page and can cancel it
+        T page = await(head);
+        synchronized(this) {
+            if(closed) {
+                return false;
+            }
+            if(page == null) {
+                exhausted = true;
+                buffer.clear();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    public T next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CompletableFuture<T> head;
+        synchronized(this) {
+            if(closed || buffer.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            head = buffer.poll();
+            while(!exhausted && buffer.size() < prefetch) {
+                schedule();
+            }
+        }
+        // hasNext() waited for this page, so this does not block
+        T page = await(head);
+        if(page == null) {
+            throw new NoSuchElementException();
+        }
+        return page;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * Stops fetching further pages. Pages already being fetched are discarded when they arrive. May be called
+     * from another thread while the caller waits in hasNext() or next(), which then return false or throw
+     * NoSuchElementException.
+     */
+    public synchronized void close() {
+        closed = true;
+        for(CompletableFuture<T> pending : buffer) {
+            pending.cancel(false);
+        }
+        buffer.clear();
+    }
+
+    /*
+     * Chains the fetch of the page after the current tail. A page that turns out to be the last one
+     * resolves every later fetch to null.
+     */
+    private void schedule() {
+        if(tail.isDone() && !tail.isCompletedExceptionally() && tail.getNow(null) == null) {
+            exhausted = true;
+            return;
+        }
+        tail = tail.thenApplyAsync(new Function<T,T>() {
+            @SuppressWarnings("unchecked")
+            public T apply(T page) {
+                if(page == null || closed) {
+                    return null;
+                }
+                try {
+                    // subclasses override nextPage() with their own type, so the next page is always a T
+                    return (T)page.nextPage();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }
+        }, executor);
+        buffer.add(tail);
+    }
+
+    private T await(CompletableFuture<T> page) {
+        try {
+            return page.join();
+        } catch (CancellationException e) {
+            return null;
+        } catch (CompletionException e) {
+            Throwable cause = (e.getCause() == null) ? e : e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private final int prefetch;
+    private final Executor executor;
+    private final Deque<CompletableFuture<T>> buffer = new ArrayDeque<CompletableFuture<T>>();
+    private CompletableFuture<T> tail;
+    private boolean exhausted;
+    private volatile boolean closed;
+}
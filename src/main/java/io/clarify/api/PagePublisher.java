@@ -0,0 +1,258 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes the items of a paginated listing as a Reactive Streams Publisher. Each Subscriber walks the listing
+ * from its first page on its own, and nothing is fetched before it requests items.
+ *
+ * Pages are fetched one after another on the given executor, and only while the Subscriber's outstanding demand
+ * exceeds the items already fetched. The next page is fetched while the items of the current one are delivered,
+ * but no further, so at most two pages are buffered however large the demand and however long the listing is.
+ *
+ * Signals are delivered by whichever thread calls request() or completes a page fetch, one at a time and never
+ * recursively. Cancelling a Subscription abandons the page fetch in flight, whose result is discarded, and no
+ * further page is fetched. The fetch is left to finish rather than interrupted: it runs on an executor that may be
+ * shared with other work, which an interrupt could reach once the fetch is over, and when the client coalesces
+ * requests another caller may be waiting on the same response. A page costs one GET request, so finishing it is
+ * cheap next to those risks.
+ */
+abstract class PagePublisher<P extends ClarifyPaginatedModel, T> implements Publisher<T> {
+
+    /**
+     * Creates a publisher fetching its pages on the given executor
+     * @param executor the Executor on which pages are fetched
+     */
+    PagePublisher(Executor executor) {
+        if(executor == null) { throw new RuntimeException("executor cannot be null"); }
+        this.executor = executor;
+    }
+
+    /**
+     * Fetches the first page of the listing
+     * @return the first page
+     * @throws IOException if a network failure occurred while fetching the page
+     */
+    abstract P firstPage() throws IOException;
+
+    /**
+     * Returns the items of a page, in the order they are published
+     * @param page a page of the listing
+     * @return the items of the page
+     */
+    abstract List<T> items(P page);
+
+    public void subscribe(Subscriber<? super T> subscriber) {
+        // the specification requires a NullPointerException here
+        if(subscriber == null) { throw new NullPointerException("subscriber cannot be null"); }
+        subscriber.onSubscribe(new PageSubscription(subscriber));
+    }
+
+    /*
+     * The walk of one Subscriber. The fields are guarded by the subscription's lock; the Subscriber is only
+     * signalled by the thread that moved wip from zero, outside the lock.
+     */
+    private final class PageSubscription implements Subscription {
+        PageSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        public void request(long n) {
+            FutureTask<P> abandoned = null;
+            synchronized(this) {
+                if(cancelled || done) {
+                    return;
+                }
+                if(n <= 0) {
+                    error = new IllegalArgumentException("request must be positive, was "+n);
+                    buffer.clear();
+                    abandoned = fetch;
+                    fetch = null;
+                } else {
+                    requested = (requested + n < 0) ? Long.MAX_VALUE : requested + n;
+                }
+            }
+            if(abandoned != null) {
+                abandoned.cancel(false);
+            }
+            drain();
+        }
+
+        public void cancel() {
+            FutureTask<P> abandoned;
+            synchronized(this) {
+                cancelled = true;
+                buffer.clear();
+                abandoned = fetch;
+                fetch = null;
+            }
+            if(abandoned != null) {
+                abandoned.cancel(false);
+            }
+        }
+
+        /*
+         * Delivers the buffered items the Subscriber asked for, fetching the next page when the demand exceeds
+         * them, and the terminal signal once the buffer is empty
+         */
+        private void drain() {
+            if(wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            while(true) {
+                while(true) {
+                    T item = null;
+                    Throwable failure = null;
+                    boolean complete = false;
+                    FutureTask<P> started = null;
+                    synchronized(this) {
+                        if(cancelled || done) {
+                            break;
+                        }
+                        // fetch ahead only while no more than the items of one page are buffered
+                        if(fetch == null && !last && error == null && buffer.size() < requested && buffer.size() <= pageSize) {
+                            started = startFetch();
+                        }
+                        if(requested > 0 && !buffer.isEmpty()) {
+                            item = buffer.poll();
+                            if(requested != Long.MAX_VALUE) {
+                                requested--;
+                            }
+                        } else if(buffer.isEmpty() && error != null) {
+                            failure = error;
+                            done = true;
+                        } else if(buffer.isEmpty() && last) {
+                            complete = true;
+                            done = true;
+                        }
+                    }
+                    if(started != null) {
+                        execute(started);
+                    }
+                    if(item != null) {
+                        deliver(item);
+                    } else if(failure != null) {
+                        subscriber.onError(failure);
+                        break;
+                    } else if(complete) {
+                        subscriber.onComplete();
+                        break;
+                    } else if(started == null) {
+                        break;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if(missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /*
+         * Creates the fetch of the page after the last one fetched, or of the first page. Called with the lock held.
+         */
+        private FutureTask<P> startFetch() {
+            final P current = page;
+            fetch = new FutureTask<P>(new Callable<P>() {
+                @SuppressWarnings("unchecked")
+                public P call() throws Exception {
+                    // subclasses override nextPage() with their own type, so the next page is always a P
+                    return (current == null) ? firstPage() : (P)current.nextPage();
+                }
+            }) {
+                protected void done() {
+                    fetched(this);
+                }
+            };
+            return fetch;
+        }
+
+        private void execute(FutureTask<P> task) {
+            try {
+                executor.execute(task);
+            } catch (RuntimeException e) {
+                synchronized(this) {
+                    if(fetch == task) {
+                        fetch = null;
+                        error = e;
+                    }
+                }
+            }
+        }
+
+        /*
+         * Buffers the items of a fetched page, or the failure of its fetch, unless the fetch was abandoned
+         */
+        private void fetched(FutureTask<P> task) {
+            synchronized(this) {
+                if(fetch != task) {
+                    return;
+                }
+                fetch = null;
+                try {
+                    P fetchedPage = task.get();
+                    if(fetchedPage == null) {
+                        last = true;
+                    } else {
+                        List<T> items = items(fetchedPage);
+                        page = fetchedPage;
+                        pageSize = items.size();
+                        buffer.addAll(items);
+                        last = !fetchedPage.hasNextPage();
+                    }
+                } catch (ExecutionException e) {
+                    error = (e.getCause() == null) ? e : e.getCause();
+                } catch (CancellationException e) {
+                    return;
+                } catch (InterruptedException e) {
+                    // the task is done, so get() does not wait
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+            drain();
+        }
+
+        /*
+         * Passes an item to the Subscriber, cancelling the subscription if onNext() breaks the specification by throwing
+         */
+        private void deliver(T item) {
+            try {
+                subscriber.onNext(item);
+            } catch (RuntimeException e) {
+                cancel();
+                throw e;
+            }
+        }
+
+        private final Subscriber<? super T> subscriber;
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Deque<T> buffer = new ArrayDeque<T>();
+        private long requested;
+        private P page;
+        private int pageSize;
+        private FutureTask<P> fetch;
+        private Throwable error;
+        private boolean last;
+        private boolean cancelled;
+        private boolean done;
+    }
+
+    private final Executor executor;
+}
@@ -0,0 +1,571 @@
+package io.clarify.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import us.monoid.json.JSONArray;
+import us.monoid.json.JSONObject;
+
+/**
+ * Waits for many Bundles and Tracks to finish processing, replacing a polling loop per Bundle. A single
+ * scheduler thread decides when each Bundle is polled; the polls themselves run on the client's executor with a
+ * bounded number in flight, and each completes the CompletableFutures returned by watch() and watchTrack().
+ *
+ * Polls are coalesced: every Bundle is polled with one List Tracks request, however many of its Tracks are
+ * watched and however many callers watch it. Poll intervals adapt to the Bundle: a Bundle is polled soon after
+ * it is watched and after any change in the status of its Tracks, and less and less often (up to the maximum
+ * interval) while nothing changes. When the client has a ResponseCache, unchanged Bundles are revalidated with
+ * a conditional request and cost a 304 response.
+ *
+ * Pushed notifications can replace most of the polling: pass the URL of startWebhook() as the notify_url of
+ * the Bundles (or call notifyChanged() from an existing endpoint), and each notification triggers an immediate
+ * poll of its Bundle. While a webhook is listening, Bundles are otherwise only polled at the maximum interval,
+ * as a safety net for lost notifications.
+ *
+ * A Track is done when its status is "ready" or "error". Example:
+ *
+ * Bundle bundle = client.createBundle("interview", mediaUri);
+ * client.getProcessingWatcher().watch(bundle.getId())
+ *       .thenAccept(tracks -> System.out.println("processed: "+tracks));
+ */
+public class ProcessingWatcher implements Closeable {
+
+    /**
+     * The interval before the first poll of a Bundle that changed, in milliseconds, when none is given
+     */
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The longest interval between two polls of a Bundle, in milliseconds, when none is given
+     */
+    public static final long DEFAULT_MAX_INTERVAL_MILLIS = 30000;
+
+    /**
+     * The number of consecutive failed polls after which the futures of a Bundle complete exceptionally
+     */
+    public static final int MAX_CONSECUTIVE_FAILURES = 5;
+
+    /**
+     * Creates a watcher with the default poll intervals
+     * @param client the ClarifyClient used for the polls
+     */
+    public ProcessingWatcher(ClarifyClient client) {
+        this(client, DEFAULT_MIN_INTERVAL_MILLIS, DEFAULT_MAX_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a watcher with the given poll intervals. The interval of a Bundle starts at minInterval and grows
+     * by half after each poll that found no change, up to maxInterval.
+     * @param client the ClarifyClient used for the polls
+     * @param minInterval the interval after a change
+     * @param maxInterval the longest interval between two polls of a Bundle
+     * @param unit the unit of the intervals
+     */
+    public ProcessingWatcher(ClarifyClient client, long minInterval, long maxInterval, TimeUnit unit) {
+        if(client == null) { throw new RuntimeException("client cannot be null"); }
+        if(unit == null) { throw new RuntimeException("unit cannot be null"); }
+        if(minInterval <= 0 || maxInterval < minInterval) { throw new RuntimeException("intervals must be positive, with maxInterval >= minInterval"); }
+        this.client = client;
+        this.minIntervalNanos = unit.toNanos(minInterval);
+        this.maxIntervalNanos = unit.toNanos(maxInterval);
+        this.pollPermits = new Semaphore(client.getBatchConcurrency());
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, ClarifyExecutors.daemonThreadFactory("clarify-watcher"));
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+    }
+
+    /**
+     * Waits for every Track of a Bundle to finish processing. A Bundle whose track list is still empty keeps being
+     * polled until it has at least one Track.
+     * @param bundleId the GUID of the Bundle
+     * @return a CompletableFuture completing with the final BundleTrackList, or exceptionally with the IOException
+     * of the last poll if the Bundle could not be polled, for example a ClarifyApiException for a deleted Bundle
+     */
+    public CompletableFuture<BundleTrackList> watch(String bundleId) {
+        if(bundleId == null) { throw new RuntimeException("bundleId cannot be null"); }
+        CompletableFuture<BundleTrackList> future = new CompletableFuture<BundleTrackList>();
+        synchronized(this) {
+            checkOpen();
+            watchOf(bundleId).bundleFutures.add(future);
+        }
+        return future;
+    }
+
+    /**
+     * Waits for one Track of a Bundle to finish processing
+     * @param bundleId the GUID of the Bundle
+     * @param trackId the GUID of the Track
+     * @return a CompletableFuture completing with the BundleTrack once its status is "ready" or "error", or
+     * exceptionally with the IOException of the last poll if the Bundle could not be polled
+     */
+    public CompletableFuture<BundleTrack> watchTrack(String bundleId, String trackId) {
+        if(bundleId == null) { throw new RuntimeException("bundleId cannot be null"); }
+        if(trackId == null) { throw new RuntimeException("trackId cannot be null"); }
+        CompletableFuture<BundleTrack> future = new CompletableFuture<BundleTrack>();
+        synchronized(this) {
+            checkOpen();
+            Watch watch = watchOf(bundleId);
+            List<CompletableFuture<BundleTrack>> futures = watch.trackFutures.get(trackId);
+            if(futures == null) {
+                futures = new ArrayList<CompletableFuture<BundleTrack>>();
+                watch.trackFutures.put(trackId, futures);
+            }
+            futures.add(future);
+        }
+        return future;
+    }
+
+    /**
+     * Signals that a Bundle may have changed, for example from a notification received by the caller's own
+     * endpoint. A watched Bundle is polled at once; other Bundles are ignored.
+     * @param bundleId the GUID of the Bundle
+     */
+    public synchronized void notifyChanged(String bundleId) {
+        if(bundleId == null || closed) {
+            return;
+        }
+        Watch watch = watches.get(bundleId);
+        if(watch != null) {
+            notifications.incrementAndGet();
+            watch.intervalNanos = minIntervalNanos;
+            if(watch.polling) {
+                // the poll in flight may have been answered before the change; poll again once it returns
+                watch.notified = true;
+            } else {
+                schedule(watch, 0);
+            }
+        }
+    }
+
+    /**
+     * Starts a local HTTP endpoint receiving the notifications the API sends to the notify_url of a Bundle. Each
+     * request naming a watched Bundle, by a bundle_id query parameter or by the bundle_id, id or _links of a JSON
+     * body, triggers an immediate poll of the Bundle. The endpoint must be reachable from the Clarify API.
+     * @param address the local address to listen on, for example new InetSocketAddress(8080)
+     * @return the address the endpoint is bound to
+     * @throws IOException if the endpoint cannot be started
+     */
+    public synchronized InetSocketAddress startWebhook(InetSocketAddress address) throws IOException {
+        if(address == null) { throw new RuntimeException("address cannot be null"); }
+        checkOpen();
+        if(webhook != null) { throw new RuntimeException("webhook already started"); }
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    notifyChanged(notifiedBundleId(exchange));
+                } finally {
+                    exchange.sendResponseHeaders(204, -1);
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        webhook = server;
+        return server.getAddress();
+    }
+
+    /**
+     * Stops the webhook endpoint, if started; Bundles are polled at their adaptive intervals again
+     */
+    public synchronized void stopWebhook() {
+        if(webhook != null) {
+            webhook.stop(0);
+            webhook = null;
+        }
+    }
+
+    /**
+     * Returns the number of Bundles being watched
+     */
+    public synchronized int getPendingCount() {
+        return watches.size();
+    }
+
+    /**
+     * Returns the number of polls sent
+     */
+    public long getPollCount() {
+        return polls.get();
+    }
+
+    /**
+     * Returns the number of notifications that triggered a poll, through notifyChanged() or the webhook
+     */
+    public long getNotificationCount() {
+        return notifications.get();
+    }
+
+    /**
+     * Stops watching: the scheduler and webhook are stopped, and the pending futures complete exceptionally
+     */
+    public void close() {
+        List<CompletableFuture<?>> pending = new ArrayList<CompletableFuture<?>>();
+        synchronized(this) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            stopWebhook();
+            scheduler.shutdownNow();
+            for(Watch watch : watches.values()) {
+                pending.addAll(watch.takeFutures());
+            }
+            watches.clear();
+        }
+        fail(pending, new InterruptedIOException("ProcessingWatcher closed"));
+    }
+
+    /*
+     * Returns the Watch of a Bundle, creating and scheduling an immediate first poll if it is not watched yet
+     */
+    private Watch watchOf(String bundleId) {
+        Watch watch = watches.get(bundleId);
+        if(watch == null) {
+            watch = new Watch(bundleId, minIntervalNanos);
+            watches.put(bundleId, watch);
+            schedule(watch, 0);
+        }
+        return watch;
+    }
+
+    private void checkOpen() {
+        if(closed) { throw new RuntimeException("ProcessingWatcher is closed"); }
+    }
+
+    /*
+     * Schedules the next poll of a Bundle, replacing the one scheduled before. Called holding the lock.
+     */
+    private void schedule(final Watch watch, long delayNanos) {
+        if(watch.next != null) {
+            watch.next.cancel(false);
+        }
+        watch.next = scheduler.schedule(new Runnable() {
+            public void run() {
+                dispatch(watch);
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /*
+     * Runs on the scheduler thread: hands the poll to the client's executor once a poll permit is available
+     */
+    private void dispatch(final Watch watch) {
+        synchronized(this) {
+            if(closed || watches.get(watch.bundleId) != watch || watch.polling) {
+                return;
+            }
+            if(!pollPermits.tryAcquire()) {
+                // too many polls in flight; try again shortly rather than blocking the scheduler
+                schedule(watch, Math.min(minIntervalNanos, RETRY_DISPATCH_NANOS));
+                return;
+            }
+            watch.polling = true;
+            watch.next = null;
+        }
+        Executor executor = client.getExecutor();
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    poll(watch);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pollPermits.release();
+            synchronized(this) {
+                watch.polling = false;
+                if(!closed) {
+                    schedule(watch, watch.intervalNanos);
+                }
+            }
+        }
+    }
+
+    /*
+     * Polls the Tracks of a Bundle and completes the futures that are done
+     */
+    private void poll(Watch watch) {
+        ClarifyResponse response = null;
+        IOException error = null;
+        try {
+            polls.incrementAndGet();
+            response = client.poll("watchTracks", client.buildPathFromResourcePath("/bundles/"+watch.bundleId+"/tracks"));
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException(e);
+        } finally {
+            pollPermits.release();
+        }
+
+        if(response != null) {
+            try {
+                complete(watch, response);
+            } catch (RuntimeException e) {
+                // an unexpected payload; count it as a failed poll
+                error = new IOException("invalid List Tracks response for bundle "+watch.bundleId, e);
+            }
+        }
+
+        List<CompletableFuture<?>> failed;
+        synchronized(this) {
+            watch.polling = false;
+            if(closed || watches.get(watch.bundleId) != watch) {
+                return;
+            }
+            watch.discardCancelled();
+            boolean permanent = (error instanceof ClarifyApiException) && ((ClarifyApiException)error).getStatusCode() < 500
+                    && ((ClarifyApiException)error).getStatusCode() != 429;
+            if(error != null && (permanent || ++watch.failures >= MAX_CONSECUTIVE_FAILURES)) {
+                watches.remove(watch.bundleId);
+                failed = watch.takeFutures();
+            } else {
+                if(error == null) {
+                    watch.failures = 0;
+                } else {
+                    watch.intervalNanos = Math.min(maxIntervalNanos, watch.intervalNanos * 2);
+                }
+                if(watch.isEmpty()) {
+                    watches.remove(watch.bundleId);
+                } else if(watch.notified) {
+                    watch.notified = false;
+                    schedule(watch, 0);
+                } else {
+                    schedule(watch, jitter((webhook != null) ? maxIntervalNanos : watch.intervalNanos));
+                }
+                return;
+            }
+        }
+        // complete outside the lock, as completion runs the callers' dependent stages
+        fail(failed, error);
+    }
+
+    /*
+     * Completes the futures satisfied by a List Tracks response and adapts the poll interval of the Bundle
+     */
+    private void complete(Watch watch, ClarifyResponse response) {
+        JSONArray tracks = response.getJSONObject().optJSONArray("tracks");
+        Map<String,JSONObject> byId = new HashMap<String,JSONObject>();
+        StringBuilder signature = new StringBuilder();
+        int count = 0;
+        int done = 0;
+        for(int i=0;tracks != null && i<tracks.length();i++) {
+            JSONObject track = tracks.optJSONObject(i);
+            if(track == null) {
+                continue;
+            }
+            String id = ClarifyModel.stringField(track, "id");
+            String status = ClarifyModel.stringField(track, "status");
+            if(id != null) {
+                byId.put(id, track);
+            }
+            signature.append(id).append('=').append(status).append(';');
+            count++;
+            if(isDone(status)) {
+                done++;
+            }
+        }
+        // a Bundle without Tracks has nothing processed yet, so it is only done once it has at least one
+        boolean allDone = count > 0 && done == count;
+
+        List<CompletableFuture<BundleTrackList>> bundleFutures = null;
+        Map<CompletableFuture<BundleTrack>,JSONObject> trackFutures = new HashMap<CompletableFuture<BundleTrack>,JSONObject>();
+        synchronized(this) {
+            String current = signature.toString();
+            if(!current.equals(watch.signature)) {
+                watch.signature = current;
+                watch.intervalNanos = minIntervalNanos;
+            } else {
+                watch.intervalNanos = Math.min(maxIntervalNanos, watch.intervalNanos + watch.intervalNanos / 2);
+            }
+            if(allDone && !watch.bundleFutures.isEmpty()) {
+                bundleFutures = new ArrayList<CompletableFuture<BundleTrackList>>(watch.bundleFutures);
+                watch.bundleFutures.clear();
+            }
+            Iterator<Map.Entry<String,List<CompletableFuture<BundleTrack>>>> entries = watch.trackFutures.entrySet().iterator();
+            while(entries.hasNext()) {
+                Map.Entry<String,List<CompletableFuture<BundleTrack>>> entry = entries.next();
+                JSONObject track = byId.get(entry.getKey());
+                if(track != null && isDone(ClarifyModel.stringField(track, "status"))) {
+                    for(CompletableFuture<BundleTrack> future : entry.getValue()) {
+                        trackFutures.put(future, track);
+                    }
+                    entries.remove();
+                }
+            }
+        }
+
+        if(bundleFutures != null) {
+            BundleTrackList list = new BundleTrackList(client, response);
+            for(CompletableFuture<BundleTrackList> future : bundleFutures) {
+                future.complete(list);
+            }
+        }
+        for(Map.Entry<CompletableFuture<BundleTrack>,JSONObject> entry : trackFutures.entrySet()) {
+            byte[] content = entry.getValue().toString().getBytes(UTF8);
+            entry.getKey().complete(new BundleTrack(client, new ClarifyResponse(200, new HashMap<String,List<String>>(), content)));
+        }
+    }
+
+    /*
+     * Completes the given futures exceptionally. Called without the lock, once the futures have been taken from
+     * their Watch under it.
+     */
+    private static void fail(List<CompletableFuture<?>> futures, IOException error) {
+        for(CompletableFuture<?> future : futures) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private long jitter(long nanos) {
+        // spread the polls of Bundles watched together by +-10%
+        return nanos - nanos / 10 + (long)(ThreadLocalRandom.current().nextDouble() * (nanos / 5));
+    }
+
+    private static boolean isDone(String status) {
+        return "ready".equals(status) || "error".equals(status);
+    }
+
+    /*
+     * Extracts the Bundle GUID from a notification request
+     */
+    private static String notifiedBundleId(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if(query != null) {
+            for(String param : query.split("&")) {
+                if(param.startsWith("bundle_id=")) {
+                    return URLDecoder.decode(param.substring("bundle_id=".length()), "UTF-8");
+                }
+            }
+        }
+        InputStream in = exchange.getRequestBody();
+        byte[] body = new byte[MAX_NOTIFICATION_BYTES];
+        int length = 0;
+        int read;
+        while(length < body.length && (read = in.read(body, length, body.length - length)) > 0) {
+            length += read;
+        }
+        try {
+            JSONObject json = new JSONObject(new String(body, 0, length, UTF8));
+            String id = ClarifyModel.stringField(json, "bundle_id");
+            if(id == null) {
+                id = ClarifyModel.stringField(json, "id");
+            }
+            if(id == null) {
+                JSONObject links = json.optJSONObject("_links");
+                JSONObject bundle = (links == null) ? null : links.optJSONObject("self");
+                String href = (bundle == null) ? null : ClarifyModel.stringField(bundle, "href");
+                int start = (href == null) ? -1 : href.indexOf("/bundles/");
+                if(start >= 0) {
+                    int end = href.indexOf('/', start + "/bundles/".length());
+                    id = href.substring(start + "/bundles/".length(), (end < 0) ? href.length() : end);
+                }
+            }
+            return id;
+        } catch (Exception e) {
+            // not a JSON notification
+            return null;
+        }
+    }
+
+    /*
+     * The callers waiting for one Bundle and the polling state of the Bundle. Guarded by the watcher's lock.
+     */
+    private static final class Watch {
+        Watch(String bundleId, long intervalNanos) {
+            this.bundleId = bundleId;
+            this.intervalNanos = intervalNanos;
+        }
+
+        boolean isEmpty() {
+            return bundleFutures.isEmpty() && trackFutures.isEmpty();
+        }
+
+        /*
+         * Forgets the futures cancelled by their callers, so that a Bundle nobody waits for is no longer polled
+         */
+        void discardCancelled() {
+            Iterator<CompletableFuture<BundleTrackList>> futures = bundleFutures.iterator();
+            while(futures.hasNext()) {
+                if(futures.next().isDone()) {
+                    futures.remove();
+                }
+            }
+            Iterator<List<CompletableFuture<BundleTrack>>> lists = trackFutures.values().iterator();
+            while(lists.hasNext()) {
+                List<CompletableFuture<BundleTrack>> list = lists.next();
+                Iterator<CompletableFuture<BundleTrack>> tracks = list.iterator();
+                while(tracks.hasNext()) {
+                    if(tracks.next().isDone()) {
+                        tracks.remove();
+                    }
+                }
+                if(list.isEmpty()) {
+                    lists.remove();
+                }
+            }
+        }
+
+        /*
+         * Removes and returns every future waiting on the Bundle, to be completed outside the lock
+         */
+        List<CompletableFuture<?>> takeFutures() {
+            List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>(bundleFutures);
+            for(List<CompletableFuture<BundleTrack>> list : trackFutures.values()) {
+                futures.addAll(list);
+            }
+            bundleFutures.clear();
+            trackFutures.clear();
+            return futures;
+        }
+
+        final String bundleId;
+        final List<CompletableFuture<BundleTrackList>> bundleFutures = new ArrayList<CompletableFuture<BundleTrackList>>();
+        final Map<String,List<CompletableFuture<BundleTrack>>> trackFutures = new HashMap<String,List<CompletableFuture<BundleTrack>>>();
+        long intervalNanos;
+        int failures;
+        boolean polling;
+        boolean notified;
+        String signature;
+        ScheduledFuture<?> next;
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long RETRY_DISPATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int MAX_NOTIFICATION_BYTES = 64 * 1024;
+
+    private final ClarifyClient client;
+    private final long minIntervalNanos;
+    private final long maxIntervalNanos;
+    private final Semaphore pollPermits;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String,Watch> watches = new HashMap<String,Watch>();
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong notifications = new AtomicLong();
+    private HttpServer webhook;
+    private boolean closed;
+}
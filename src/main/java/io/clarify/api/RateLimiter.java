@@ -0,0 +1,296 @@
+package io.clarify.api;
+
+import java.io.InterruptedIOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A client-side limit on the requests sent to the Clarify API, shared by all threads using a ClarifyClient.
+ * Install it with ClarifyClient.setRateLimiter().
+ *
+ * Two limits are applied before a request is sent. A token bucket caps the request rate, allowing short bursts
+ * up to the bucket size. An adaptive concurrency limit caps the number of requests in flight. The concurrency
+ * limit follows an AIMD scheme: it is halved when the API answers 429 Too Many Requests or 503 Service Unavailable,
+ * and grows by one after a full window of successful requests, up to the configured maximum. Requests that
+ * started before a decrease do not decrease it again, so a burst of throttled responses halves the limit once.
+ *
+ * The limiter also follows the API's own signals. A Retry-After header pauses all requests until the given time,
+ * and when the X-RateLimit-Remaining (or RateLimit-Remaining) header reaches zero, requests are paused until the
+ * time given by the matching Reset header. Callers waiting for a permit are queued; see getQueueDepth().
+ */
+public class RateLimiter {
+
+    /**
+     * Creates a limiter allowing bursts of up to one second's worth of requests, starting at the maximum concurrency
+     * @param requestsPerSecond the sustained request rate
+     * @param maxConcurrency the maximum number of requests in flight at once
+     */
+    public RateLimiter(double requestsPerSecond, int maxConcurrency) {
+        this(requestsPerSecond, (int)Math.max(1, Math.ceil(requestsPerSecond)), maxConcurrency, maxConcurrency);
+    }
+
+    /**
+     * Creates a new limiter
+     * @param requestsPerSecond the sustained request rate
+     * @param burst the number of requests that may be sent at once after a quiet period
+     * @param initialConcurrency the starting concurrency limit
+     * @param maxConcurrency the maximum the concurrency limit may grow to
+     */
+    public RateLimiter(double requestsPerSecond, int burst, int initialConcurrency, int maxConcurrency) {
+        if(requestsPerSecond <= 0) { throw new RuntimeException("requestsPerSecond must be positive"); }
+        if(burst < 1) { throw new RuntimeException("burst must be at least 1"); }
+        if(maxConcurrency < 1) { throw new RuntimeException("maxConcurrency must be at least 1"); }
+        if(initialConcurrency < 1 || initialConcurrency > maxConcurrency) {
+            throw new RuntimeException("initialConcurrency must be between 1 and maxConcurrency");
+        }
+        this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.maxConcurrency = maxConcurrency;
+        this.concurrencyLimit = initialConcurrency;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+        this.pausedUntil = refilledAt;
+    }
+
+    /**
+     * Returns the number of requests that may currently be sent without waiting for the rate limit
+     * @return the whole number of tokens in the bucket
+     */
+    public int getAvailablePermits() {
+        lock.lock();
+        try {
+            refill(System.nanoTime());
+            return (int)tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current adaptive concurrency limit
+     * @return the maximum number of requests currently allowed in flight
+     */
+    public int getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests currently in flight
+     * @return the number of requests that hold a permit
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of callers waiting for a permit
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of responses that signalled throttling (429 or 503)
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * Waits until a request may be sent
+     * @return the Permit to release once the response has been read
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    Permit acquire() throws InterruptedIOException {
+        lock.lock();
+        waiting++;
+        try {
+            while(true) {
+                long now = System.nanoTime();
+                refill(now);
+                long wait;
+                if(now - pausedUntil < 0) {
+                    wait = pausedUntil - now;
+                } else if(inFlight >= concurrencyLimit) {
+                    wait = Long.MAX_VALUE;
+                } else if(tokens >= 1) {
+                    tokens -= 1;
+                    inFlight++;
+                    return new Permit(epoch);
+                } else {
+                    wait = (long)Math.ceil((1 - tokens) / tokensPerNano);
+                }
+                if(wait == Long.MAX_VALUE) {
+                    changed.await();
+                } else {
+                    changed.awaitNanos(wait);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a rate limit permit");
+        } finally {
+            waiting--;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a permit, adjusting the limits according to the response
+     * @param permit the permit returned by acquire()
+     * @param response the response, or null if the request failed without one
+     */
+    void release(Permit permit, ClarifyHttpResponse response) {
+        long now = System.nanoTime();
+        long pause = (response == null) ? 0 : pauseNanos(response);
+        lock.lock();
+        try {
+            inFlight--;
+            if(response != null) {
+                int status = response.getStatusCode();
+                if(status == 429 || status == 503) {
+                    throttled.incrementAndGet();
+                    // multiplicative decrease, once per generation of requests
+                    if(permit.epoch == epoch) {
+                        concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+                        successes = 0;
+                        epoch++;
+                    }
+                } else if(status < 400 && ++successes >= concurrencyLimit) {
+                    // additive increase after a full window of successes
+                    concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1);
+                    successes = 0;
+                }
+                String remaining = header(response, "X-RateLimit-Remaining", "RateLimit-Remaining");
+                if(remaining != null) {
+                    try {
+                        refill(now);
+                        tokens = Math.min(tokens, Double.parseDouble(remaining.trim()));
+                    } catch (NumberFormatException e) {
+                        // ignore a malformed header
+                    }
+                }
+            }
+            if(pause > 0 && now + pause - pausedUntil > 0) {
+                pausedUntil = now + pause;
+                tokens = 0;
+                refilledAt = pausedUntil;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Helper to add the tokens accumulated since the last refill, up to the bucket size
+     */
+    private void refill(long now) {
+        if(now - refilledAt > 0) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+
+    /*
+     * Helper to determine how long the API asked us to pause, from Retry-After or an exhausted rate limit
+     */
+    private static long pauseNanos(ClarifyHttpResponse response) {
+        String retryAfter = response.getHeader("Retry-After");
+        if(retryAfter != null) {
+            return delayNanos(retryAfter.trim(), true);
+        }
+        if("0".equals(trim(header(response, "X-RateLimit-Remaining", "RateLimit-Remaining")))) {
+            String reset = header(response, "X-RateLimit-Reset", "RateLimit-Reset");
+            if(reset != null) {
+                return delayNanos(reset.trim(), false);
+            }
+        }
+        return 0;
+    }
+
+    /*
+     * Parses a delay given in seconds, as epoch seconds, or (for Retry-After) as an HTTP date
+     */
+    static long delayNanos(String value, boolean allowDate) {
+        long nowMillis = System.currentTimeMillis();
+        try {
+            long seconds = Long.parseLong(value);
+            // large values are absolute epoch seconds rather than a delay
+            long millis = (seconds > EPOCH_THRESHOLD) ? seconds * 1000 - nowMillis : seconds * 1000;
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        } catch (NumberFormatException e) {
+            if(!allowDate) {
+                return 0;
+            }
+        }
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            Date date = format.parse(value);
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, date.getTime() - nowMillis));
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    private static String header(ClarifyHttpResponse response, String name, String alternative) {
+        String value = response.getHeader(name);
+        return (value == null) ? response.getHeader(alternative) : value;
+    }
+
+    private static String trim(String value) {
+        return (value == null) ? null : value.trim();
+    }
+
+    /*
+     * A permission to send one request, remembering the generation of the concurrency limit it was granted in
+     */
+    static class Permit {
+        Permit(long epoch) {
+            this.epoch = epoch;
+        }
+
+        final long epoch;
+    }
+
+    private static final long EPOCH_THRESHOLD = 1000000000L;
+
+    private final double tokensPerNano;
+    private final int burst;
+    private final int maxConcurrency;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicLong throttled = new AtomicLong();
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+    private int concurrencyLimit;
+    private int inFlight;
+    private int waiting;
+    private int successes;
+    private long epoch;
+}
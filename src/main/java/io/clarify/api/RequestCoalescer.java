@@ -0,0 +1,114 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight execution of identical GET requests, used by ClarifyClient. The first caller for a URL becomes
+ * the leader and sends the request; callers asking for the same URL while it is in flight wait for the leader and
+ * receive the same ClarifyResponse, or the same exception. Once the leader completes, the URL is removed from the
+ * in-flight map, so a later call sends a new request.
+ *
+ * The in-flight map is a ConcurrentHashMap: joining a flight is a single putIfAbsent, and no lock is held while a
+ * request is sent.
+ */
+final class RequestCoalescer {
+
+    /**
+     * A request to send on behalf of all the callers of a URL
+     */
+    interface Call {
+        ClarifyResponse call() throws IOException;
+    }
+
+    /**
+     * Sends the request, or waits for the identical request already in flight
+     * @param key the URL of the request
+     * @param call sends the request when this caller is the leader
+     * @return the ClarifyResponse shared by all callers of the flight
+     * @throws IOException the exception of the leader's request, or an InterruptedIOException if this caller was
+     * interrupted while waiting
+     */
+    ClarifyResponse execute(String key, Call call) throws IOException {
+        Flight flight = new Flight();
+        Flight current = flights.putIfAbsent(key, flight);
+        if(current != null) {
+            coalesced.incrementAndGet();
+            return current.await();
+        }
+
+        leaders.incrementAndGet();
+        try {
+            flight.response = call.call();
+        } catch (IOException e) {
+            flight.error = e;
+        } catch (RuntimeException e) {
+            flight.error = e;
+        } catch (Error e) {
+            flight.error = e;
+        } finally {
+            flights.remove(key, flight);
+            flight.done.countDown();
+        }
+        return flight.result();
+    }
+
+    /**
+     * Returns the number of requests sent by a leader
+     */
+    long getLeaderCount() {
+        return leaders.get();
+    }
+
+    /**
+     * Returns the number of calls that joined a request already in flight instead of sending their own
+     */
+    long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Returns the number of requests currently in flight
+     */
+    int getInFlightCount() {
+        return flights.size();
+    }
+
+    private static final class Flight {
+        ClarifyResponse await() throws IOException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for an identical request in flight");
+            }
+            return result();
+        }
+
+        ClarifyResponse result() throws IOException {
+            if(error instanceof IOException) {
+                throw (IOException)error;
+            }
+            if(error instanceof RuntimeException) {
+                throw (RuntimeException)error;
+            }
+            if(error instanceof Error) {
+                throw (Error)error;
+            }
+            return response;
+        }
+
+        final CountDownLatch done = new CountDownLatch(1);
+        // written by the leader before done is counted down, read by the followers after it
+        ClarifyResponse response;
+        Throwable error;
+    }
+
+    private final ConcurrentMap<String,Flight> flights = new ConcurrentHashMap<String,Flight>();
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+}
@@ -0,0 +1,225 @@
+package io.clarify.api;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, in-memory cache of GET responses keyed by request URL (the output of
+ * ClarifyClient.buildPathFromResourcePath or buildPathFromHref). Install it with ClarifyClient.setResponseCache().
+ *
+ * Entries are served without a network call for the configured time-to-live. After that they are stale: if the
+ * API returned an ETag or Last-Modified header, the next read sends a conditional request with If-None-Match or
+ * If-Modified-Since, and a 304 Not Modified response refreshes the entry without transferring the payload again.
+ * When the cache is full, the least recently used entry is evicted.
+ *
+ * Writes made through the client (updateBundle, deleteBundle, updateMetadata, resetMetadata, addTrackToBundle,
+ * deleteTrack, ...) automatically invalidate the cached entries of the affected Bundle.
+ *
+ * Cached responses are shared between callers and are returned as they are, not copied: the ClarifyResponse of
+ * a cache hit, its JSONObject and the models built on it must be treated as read-only. Since entries are keyed by URL
+ * only, a cache must not be shared between clients using different application keys.
+ */
+public class ResponseCache {
+
+    /**
+     * Creates a new cache
+     * @param maxEntries the maximum number of responses held at once
+     * @param ttl how long a response is served without revalidation
+     * @param unit the unit of ttl
+     */
+    public ResponseCache(int maxEntries, long ttl, TimeUnit unit) {
+        if(maxEntries < 1) { throw new RuntimeException("maxEntries must be at least 1"); }
+        if(ttl < 0) { throw new RuntimeException("ttl cannot be negative"); }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<String,CachedResponse>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String,CachedResponse> eldest) {
+                if(size() > ResponseCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Removes the cached response for the given URL
+     * @param url the full request URL
+     */
+    public synchronized void invalidate(String url) {
+        generation++;
+        entries.remove(url);
+    }
+
+    /**
+     * Removes the cached responses for the given URL and every URL below it, for example a Bundle together with
+     * its tracks and metadata. Query strings are treated as part of the resource they are applied to.
+     * @param url the full request URL of the root resource
+     */
+    public synchronized void invalidateTree(String url) {
+        generation++;
+        Iterator<String> keys = entries.keySet().iterator();
+        while(keys.hasNext()) {
+            String key = keys.next();
+            if(key.equals(url) || key.startsWith(url+"/") || key.startsWith(url+"?")) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes the cached responses for the given URL with any query string, such as all pages of a listing
+     */
+    synchronized void invalidateQueries(String url) {
+        generation++;
+        Iterator<String> keys = entries.keySet().iterator();
+        while(keys.hasNext()) {
+            String key = keys.next();
+            if(key.equals(url) || key.startsWith(url+"?")) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached responses
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of responses currently cached
+     * @return the number of cached responses
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of reads served from the cache without a network call
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of reads for which no usable cached response existed
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of stale responses confirmed unchanged by a 304 Not Modified response
+     */
+    public long getRevalidationCount() {
+        return revalidations.get();
+    }
+
+    /**
+     * Returns the number of responses evicted because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Looks up the cached entry for the given URL, counting a hit if it is fresh and a miss if there is no
+     * entry or it is stale without validators
+     */
+    synchronized CachedResponse lookup(String url) {
+        CachedResponse entry = entries.get(url);
+        if(entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if(entry.isFresh()) {
+            hits.incrementAndGet();
+        } else if(!entry.canRevalidate()) {
+            entries.remove(url);
+            misses.incrementAndGet();
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the cached response for the given URL if it is fresh, without counting a hit or a miss
+     */
+    synchronized ClarifyResponse peek(String url) {
+        CachedResponse entry = entries.get(url);
+        return (entry != null && entry.isFresh()) ? entry.response : null;
+    }
+
+    /**
+     * Returns the invalidation generation, which moves on every invalidation. A response read while the
+     * generation moved may predate a write and must not be stored.
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores a successful response, unless the API marked it as not cacheable or an invalidation happened since
+     * the request was sent
+     * @param generation the generation() read before the request was sent
+     */
+    synchronized void store(String url, ClarifyResponse response, long generation) {
+        if(generation != this.generation) {
+            return;
+        }
+        String cacheControl = response.getHeader("Cache-Control");
+        if(cacheControl != null && cacheControl.toLowerCase().contains("no-store")) {
+            return;
+        }
+        entries.put(url, new CachedResponse(response));
+    }
+
+    /**
+     * Marks a stale entry as fresh again after a 304 Not Modified response
+     */
+    synchronized void revalidated(CachedResponse entry) {
+        entry.storedAt = System.nanoTime();
+        revalidations.incrementAndGet();
+    }
+
+    /*
+     * A cached response together with its validators and the time it was stored or last revalidated
+     */
+    class CachedResponse {
+        CachedResponse(ClarifyResponse response) {
+            this.response = response;
+            this.etag = response.getHeader("ETag");
+            this.lastModified = response.getHeader("Last-Modified");
+            this.storedAt = System.nanoTime();
+        }
+
+        boolean isFresh() {
+            return System.nanoTime() - storedAt < ttlNanos;
+        }
+
+        boolean canRevalidate() {
+            return etag != null || lastModified != null;
+        }
+
+        final ClarifyResponse response;
+        final String etag;
+        final String lastModified;
+        volatile long storedAt;
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String,CachedResponse> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long generation;
+}
@@ -0,0 +1,27 @@
+package io.clarify.api;
+
+/**
+ * Controls how the ClarifyClient builds the model returned by write operations such as createBundle,
+ * addTrackToBundle and updateMetadata. The mode may be set on the client with setResponseMode() and
+ * overridden on each call.
+ */
+public enum ResponseMode {
+
+    /**
+     * Re-fetch the full representation after the write (2 API calls). This is the default and matches the
+     * behavior of earlier SDK versions.
+     */
+    REFETCH,
+
+    /**
+     * Build the model directly from the body returned by the write (1 API call). Only the fields returned by
+     * the write, typically the id and _links, are available.
+     */
+    RESPONSE,
+
+    /**
+     * Build the model from the body returned by the write (1 API call), and fetch the full representation only
+     * when a field not present in that body is first accessed.
+     */
+    LAZY
+}
@@ -0,0 +1,144 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLConnection;
+import java.util.Map;
+
+import us.monoid.web.AbstractContent;
+import us.monoid.web.AbstractResource;
+import us.monoid.web.Content;
+import us.monoid.web.JSONResource;
+import us.monoid.web.Resty;
+
+/**
+ * A ClarifyTransport that uses Resty to issue each request over a new HttpURLConnection. This is how earlier
+ * versions of the SDK talked to the Clarify API, and it remains available as a fallback for environments where
+ * the pooled OkHttpTransport cannot be used. Connection reuse is limited to the JVM-wide keep-alive cache of
+ * HttpURLConnection.
+ */
+public class RestyTransport implements ClarifyTransport {
+
+    /**
+     * Creates a new transport using the default HttpURLConnection timeouts
+     */
+    public RestyTransport() {
+        this(0);
+    }
+
+    /**
+     * Creates a new transport with the given connect and read timeout
+     * @param timeoutMillis the connect and read timeout in milliseconds, or 0 to use the HttpURLConnection defaults
+     */
+    public RestyTransport(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public ClarifyHttpResponse execute(ClarifyHttpRequest request) throws IOException {
+        CapturingResty resty = (timeoutMillis > 0) ? new CapturingResty(Resty.Option.timeout(timeoutMillis)) : new CapturingResty();
+        for(Map.Entry<String,String> header : request.getHeaders().entrySet()) {
+            if("User-Agent".equalsIgnoreCase(header.getKey())) {
+                resty.setUserAgent(header.getValue());
+            } else {
+                resty.withHeader(header.getKey(), header.getValue());
+            }
+        }
+
+        URI uri = URI.create(request.getUrl());
+        String method = request.getMethod();
+        CapturedResource resource;
+        if("GET".equals(method)) {
+            resource = (CapturedResource)resty.json(uri);
+        } else if("DELETE".equals(method)) {
+            resource = (CapturedResource)resty.json(uri, Resty.delete());
+        } else {
+            String contentType = (request.getContentType() == null) ? "application/octet-stream" : request.getContentType();
+            byte[] body = (request.getBody() == null) ? new byte[0] : request.getBody();
+            Content content = (request.getStreamingBody() != null) ? new StreamingContent(contentType, request.getStreamingBody())
+                    : new Content(contentType, body);
+            AbstractContent payload = "PUT".equals(method) ? Resty.put(content) : content;
+            resource = (CapturedResource)resty.json(uri, payload);
+        }
+
+        final HttpURLConnection connection = (HttpURLConnection)resource.connection;
+        int statusCode = connection.getResponseCode();
+        InputStream body = (statusCode >= 400) ? connection.getErrorStream() : connection.getInputStream();
+        return new ClarifyHttpResponse(statusCode, connection.getHeaderFields(), body, null);
+    }
+
+    /**
+     * Nothing to release; HttpURLConnection manages its own keep-alive cache
+     */
+    public void close() throws IOException {
+    }
+
+    /*
+     * Resty subclass that hands back the open URLConnection instead of reading the response, so that the
+     * status code, headers and error payloads are available to the transport
+     */
+    private static class CapturingResty extends Resty {
+        CapturingResty(Option... options) {
+            super(options);
+        }
+
+        void setUserAgent(String userAgent) {
+            this.userAgent = userAgent;
+        }
+
+        protected JSONResource createJSONResource() {
+            return new CapturedResource();
+        }
+
+        protected <T extends AbstractResource> T fillResourceFromURL(URLConnection con, T resource) throws IOException {
+            ((CapturedResource)resource).connection = con;
+            return resource;
+        }
+    }
+
+    private static class CapturedResource extends JSONResource {
+        URLConnection connection;
+    }
+
+    /*
+     * Content that streams a ClarifyRequestBody into the connection, with a fixed length when it is known and
+     * chunked otherwise, so that HttpURLConnection does not buffer the body in memory
+     */
+    private static class StreamingContent extends Content {
+        StreamingContent(String contentType, ClarifyRequestBody body) {
+            super(contentType, null);
+            this.body = body;
+        }
+
+        protected void addContent(URLConnection con) throws IOException {
+            con.setDoOutput(true);
+            con.setRequestProperty("Content-Type", mime);
+            long length = body.getContentLength();
+            if(length >= 0) {
+                ((HttpURLConnection)con).setFixedLengthStreamingMode(length);
+            } else {
+                ((HttpURLConnection)con).setChunkedStreamingMode(MediaUpload.BLOCK_SIZE);
+            }
+            OutputStream out = con.getOutputStream();
+            try {
+                body.writeTo(out);
+            } finally {
+                out.close();
+            }
+        }
+
+        public void writeHeader(OutputStream out) throws IOException {
+            out.write(ascii("Content-Type: "+mime+"\r\n"));
+        }
+
+        public void writeContent(OutputStream out) throws IOException {
+            body.writeTo(out);
+        }
+
+        private final ClarifyRequestBody body;
+    }
+
+    private final int timeoutMillis;
+}
@@ -0,0 +1,336 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries failed requests that are safe to repeat. Install it with ClarifyClient.setRetryPolicy().
+ *
+ * A request is retried only if it is idempotent: GET requests (findBundle, findTrackByHref, findMetadata,
+ * listBundles, searchBundles, nextPage, ...) and requests carrying an Idempotency-Key header, which createBundle
+ * adds so that the API can recognise a repeated create. A failure is retried if it is a network error, or an
+ * HTTP status such as 429 or 503 that indicates a temporary condition. Attempts are spaced by an exponential
+ * backoff with full jitter, and never sooner than the Retry-After time given by the API.
+ *
+ * Optionally, GET requests can be hedged: if the response has not arrived after the 95th percentile of recent
+ * response times, a duplicate request is sent and whichever response arrives first is used. This trims the
+ * latency tail caused by a single slow connection at the cost of a few extra requests.
+ *
+ * Example:
+ *
+ * client.setRetryPolicy(RetryPolicy.builder().maxAttempts(4).hedge(50, TimeUnit.MILLISECONDS).build());
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100L;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 5 * 1000L;
+
+    /**
+     * The name of the header used to make repeated non-idempotent requests safe
+     */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * Creates a policy with the default settings and without hedging
+     */
+    public RetryPolicy() {
+        this(new Builder());
+    }
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(builder.initialBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxBackoffMillis);
+        this.retryStatusCodes = new HashSet<Integer>(builder.retryStatusCodes);
+        this.hedgeDelayNanos = (builder.hedgeDelayMillis < 0) ? -1 : TimeUnit.MILLISECONDS.toNanos(builder.hedgeDelayMillis);
+    }
+
+    /**
+     * Returns a new Builder for configuring a RetryPolicy
+     * @return a Builder initialized with the default settings
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the maximum number of attempts made for a single request, including the first one
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns the number of retries made so far
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Returns the number of hedged requests sent so far
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * Determine if hedging of GET requests is enabled
+     * @return true if duplicate GET requests are sent for slow responses
+     */
+    public boolean isHedging() {
+        return hedgeDelayNanos >= 0;
+    }
+
+    /**
+     * Returns the delay after which a duplicate GET request is currently sent: the 95th percentile of recent
+     * response times, but no less than the minimum delay configured with Builder.hedge()
+     * @param unit the unit of the returned delay
+     * @return the hedge delay, or -1 if hedging is disabled
+     */
+    public long getHedgeDelay(TimeUnit unit) {
+        if(!isHedging()) {
+            return -1;
+        }
+        return unit.convert(Math.max(hedgeDelayNanos, latencies.percentile(0.95)), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Determine if the request may be sent again after a failure
+     * @param request the request
+     * @return true for GET requests and requests carrying an Idempotency-Key header
+     */
+    public boolean isIdempotent(ClarifyHttpRequest request) {
+        return "GET".equals(request.getMethod()) || request.getHeaders().containsKey(IDEMPOTENCY_KEY_HEADER);
+    }
+
+    /**
+     * Determine if the failure is temporary, so that the request may succeed when sent again
+     * @param e the exception thrown for the request
+     * @return true for network errors and for the HTTP status codes configured as retryable
+     */
+    public boolean isRetryable(IOException e) {
+        if(e instanceof ClarifyApiException) {
+            return retryStatusCodes.contains(((ClarifyApiException)e).getStatusCode());
+        }
+        return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+    }
+
+    /**
+     * A single attempt of a request
+     */
+    interface Attempt {
+        ClarifyResponse run() throws IOException;
+
+        /** Returns false once the attempt had side effects that must not be repeated */
+        boolean canRepeat();
+    }
+
+    /**
+     * Runs the attempt, retrying and hedging according to this policy
+     * @param request the request being attempted
+     * @param attempt the attempt to run
+     * @param hedgeable true if a duplicate attempt may be run concurrently
+     * @param executor the Executor on which hedged attempts are run
+     * @return the first successful response
+     * @throws IOException the exception of the last attempt if all attempts failed
+     */
+    ClarifyResponse execute(ClarifyHttpRequest request, Attempt attempt, boolean hedgeable, Executor executor)
+            throws IOException {
+        boolean idempotent = isIdempotent(request);
+        hedgeable = hedgeable && isHedging() && "GET".equals(request.getMethod());
+        for(int n=1;;n++) {
+            try {
+                long start = System.nanoTime();
+                ClarifyResponse response = hedgeable ? hedged(attempt, executor) : attempt.run();
+                if("GET".equals(request.getMethod())) {
+                    latencies.record(System.nanoTime() - start);
+                }
+                return response;
+            } catch (IOException e) {
+                if(!idempotent || n >= maxAttempts || !isRetryable(e) || !attempt.canRepeat()) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                pause(backoffNanos(n, e));
+            }
+        }
+    }
+
+    /*
+     * Helper to run an attempt and, if it is slower than the hedge delay, a duplicate of it. The first
+     * successful response wins; if both fail, the later failure is thrown.
+     */
+    private ClarifyResponse hedged(final Attempt attempt, Executor executor) throws IOException {
+        final CompletableFuture<ClarifyResponse> result = new CompletableFuture<ClarifyResponse>();
+        final AtomicInteger pending = new AtomicInteger(1);
+        Runnable run = new Runnable() {
+            public void run() {
+                try {
+                    result.complete(attempt.run());
+                } catch (Throwable t) {
+                    if(pending.decrementAndGet() == 0) {
+                        result.completeExceptionally(t);
+                    }
+                }
+            }
+        };
+        executor.execute(run);
+        try {
+            try {
+                return result.get(getHedgeDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if(!result.isDone() && pending.getAndIncrement() > 0) {
+                    hedges.incrementAndGet();
+                    executor.execute(run);
+                }
+                return result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /*
+     * Helper to compute the delay before the next attempt: exponential backoff with full jitter, but no
+     * shorter than the Retry-After time requested by the API
+     */
+    private long backoffNanos(int attempt, IOException e) {
+        long ceiling = initialBackoffNanos << Math.min(attempt - 1, 30);
+        if(ceiling <= 0 || ceiling > maxBackoffNanos) {
+            ceiling = maxBackoffNanos;
+        }
+        long delay = (ceiling <= 0) ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if(e instanceof ClarifyApiException) {
+            String retryAfter = ((ClarifyApiException)e).getHeader("Retry-After");
+            if(retryAfter != null) {
+                delay = Math.max(delay, RateLimiter.delayNanos(retryAfter.trim(), true));
+            }
+        }
+        return delay;
+    }
+
+    private static void pause(long nanos) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to retry");
+        }
+    }
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Set<Integer> retryStatusCodes;
+    private final long hedgeDelayNanos;
+    private final LatencyWindow latencies = new LatencyWindow(256);
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    /*
+     * The most recent response times, used to derive the hedge delay
+     */
+    private static class LatencyWindow {
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        synchronized long percentile(double p) {
+            if(count < MIN_SAMPLES) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int)Math.ceil(p * count) - 1)];
+        }
+
+        private static final int MIN_SAMPLES = 20;
+
+        private final long[] samples;
+        private int next;
+        private int count;
+    }
+
+    public static class Builder {
+        /**
+         * Sets the maximum number of attempts made for a single request, including the first one
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if(maxAttempts < 1) { throw new RuntimeException("maxAttempts must be at least 1"); }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the backoff before the first retry and the maximum backoff. The backoff doubles with each retry,
+         * and a random delay of up to the backoff is used.
+         */
+        public Builder backoff(long initial, long max, TimeUnit unit) {
+            if(initial < 0 || max < initial) { throw new RuntimeException("backoff must satisfy 0 <= initial <= max"); }
+            this.initialBackoffMillis = unit.toMillis(initial);
+            this.maxBackoffMillis = unit.toMillis(max);
+            return this;
+        }
+
+        /**
+         * Sets the HTTP status codes that are retried. Defaults to 408, 429, 500, 502, 503 and 504.
+         */
+        public Builder retryOnStatus(int... statusCodes) {
+            this.retryStatusCodes.clear();
+            for(int statusCode : statusCodes) {
+                this.retryStatusCodes.add(statusCode);
+            }
+            return this;
+        }
+
+        /**
+         * Enables hedging of GET requests. A duplicate request is sent when no response has arrived after the
+         * 95th percentile of recent response times, or after the given minimum delay if that is longer.
+         */
+        public Builder hedge(long minDelay, TimeUnit unit) {
+            if(minDelay < 0) { throw new RuntimeException("minDelay cannot be negative"); }
+            this.hedgeDelayMillis = unit.toMillis(minDelay);
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+        private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+        private Set<Integer> retryStatusCodes = new HashSet<Integer>(Arrays.asList(408, 429, 500, 502, 503, 504));
+        private long hedgeDelayMillis = -1;
+    }
+}
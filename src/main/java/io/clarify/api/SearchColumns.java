@@ -0,0 +1,429 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import us.monoid.json.JSONArray;
+import us.monoid.json.JSONObject;
+
+/**
+ * A decoded, column-oriented view of the item_results of one search page. Instead of a JSONObject tree per match,
+ * the page is held in a few parallel primitive arrays:
+ *
+ * - one entry per item: the score and the Bundle GUID, and the range of its matches
+ * - one entry per term result of an item: the score of the term within the item
+ * - one entry per match, that is per hit of a term in a track: the item, the term, the track, the media type and
+ *   the start and end offsets in seconds
+ *
+ * Items and matches are addressed by index, so iterating and filtering allocates nothing per match:
+ *
+ * SearchColumns columns = page.getColumns();
+ * for(int m=0;m<columns.getMatchCount();m++) {
+ *     render(columns.getMatchTerm(m), columns.getMatchStart(m), columns.getMatchEnd(m));
+ * }
+ * columns.matches().filter(m -&gt; columns.getMatchStart(m) &gt;= 60).forEach(...);
+ *
+ * Term and media type strings are interned, so equal terms of different pages are the same String instance.
+ * A SearchColumns is immutable and may be shared between threads.
+ */
+public final class SearchColumns {
+
+    private SearchColumns(Decoder decoder, JSONObject page) {
+        this.itemCount = decoder.items;
+        this.scores = Arrays.copyOf(decoder.scores, itemCount);
+        this.firstMatch = Arrays.copyOf(decoder.firstMatch, itemCount + 1);
+        this.firstMatch[itemCount] = decoder.matches;
+        this.firstTermResult = Arrays.copyOf(decoder.firstTermResult, itemCount + 1);
+        this.firstTermResult[itemCount] = decoder.termResults;
+        this.termScores = Arrays.copyOf(decoder.termScores, decoder.termResults);
+
+        // _links.items may be streamed before or after item_results; both are indexed by item position
+        this.bundleIds = new String[itemCount];
+        System.arraycopy(decoder.bundleIds, 0, bundleIds, 0, Math.min(itemCount, decoder.bundleIds.length));
+
+        this.matchCount = decoder.matches;
+        this.matchItems = Arrays.copyOf(decoder.matchItems, matchCount);
+        this.matchTerms = Arrays.copyOf(decoder.matchTerms, matchCount);
+        this.matchTracks = Arrays.copyOf(decoder.matchTracks, matchCount);
+        this.matchTypes = Arrays.copyOf(decoder.matchTypes, matchCount);
+        this.starts = Arrays.copyOf(decoder.starts, matchCount);
+        this.ends = Arrays.copyOf(decoder.ends, matchCount);
+        this.types = Arrays.copyOf(decoder.types, decoder.typeCount);
+
+        JSONArray searchTerms = (page == null) ? null : page.optJSONArray("search_terms");
+        int termCount = Math.max(decoder.maxTerms, (searchTerms == null) ? 0 : searchTerms.length());
+        this.terms = new String[termCount];
+        for(int i=0;i<termCount;i++) {
+            JSONObject term = (searchTerms == null) ? null : searchTerms.optJSONObject(i);
+            String value = (term == null) ? null : ClarifyModel.stringField(term, "term");
+            terms[i] = (value == null) ? null : value.intern();
+        }
+    }
+
+    /**
+     * Decodes the item_results, _links.items and search_terms of a parsed search page
+     * @param page the root object of the search response
+     * @return the SearchColumns of the page
+     */
+    static SearchColumns decode(JSONObject page) {
+        Decoder decoder = new Decoder();
+        JSONArray results = page.optJSONArray("item_results");
+        for(int i=0;results != null && i<results.length();i++) {
+            JSONObject item = results.optJSONObject(i);
+            decoder.addItem(i, (item == null) ? new JSONObject() : item);
+        }
+        JSONObject links = page.optJSONObject("_links");
+        JSONArray items = (links == null) ? null : links.optJSONArray("items");
+        for(int i=0;items != null && i<items.length();i++) {
+            JSONObject item = items.optJSONObject(i);
+            if(item != null) {
+                decoder.addLink(i, item);
+            }
+        }
+        return decoder.finish(page);
+    }
+
+    /**
+     * Returns the number of items, that is of matched Bundles, in the page
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Returns the score of an item
+     * @param item the index of the item, from 0 to getItemCount() - 1
+     * @return the score, or 0 if the item has none
+     */
+    public float getScore(int item) {
+        return scores[item];
+    }
+
+    /**
+     * Returns the GUID of the Bundle of an item, taken from the matching element of _links.items
+     * @param item the index of the item
+     * @return the Bundle GUID, or null if the page has no link for the item
+     */
+    public String getBundleId(int item) {
+        return bundleIds[item];
+    }
+
+    /**
+     * Returns the index of the first match of an item. The matches of an item are contiguous, from
+     * getFirstMatch(item) up to but excluding getMatchLimit(item).
+     * @param item the index of the item
+     * @return the index of the first match of the item
+     */
+    public int getFirstMatch(int item) {
+        return firstMatch[item];
+    }
+
+    /**
+     * Returns the index following the last match of an item
+     * @param item the index of the item
+     * @return the index following the last match of the item
+     */
+    public int getMatchLimit(int item) {
+        return firstMatch[item + 1];
+    }
+
+    /**
+     * Returns the number of search terms, which is the number of term results an item can have
+     */
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Returns a search term
+     * @param term the index of the term, from 0 to getTermCount() - 1
+     * @return the interned term, or null if the page did not include the search terms
+     */
+    public String getTerm(int term) {
+        return terms[term];
+    }
+
+    /**
+     * Returns the index of a search term
+     * @param term the term
+     * @return the index of the term, or -1 if it is not a search term of the page
+     */
+    public int indexOfTerm(String term) {
+        for(int i=0;i<terms.length;i++) {
+            if(terms[i] != null && terms[i].equals(term)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the score of one term within an item
+     * @param item the index of the item
+     * @param term the index of the term
+     * @return the score of the term result, or 0 if the item has no result for the term
+     */
+    public float getTermScore(int item, int term) {
+        int index = firstTermResult[item] + term;
+        return (term >= 0 && index < firstTermResult[item + 1]) ? termScores[index] : 0f;
+    }
+
+    /**
+     * Returns the number of matches in the page, over all items
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * Returns the item a match belongs to
+     * @param match the index of the match, from 0 to getMatchCount() - 1
+     * @return the index of the item
+     */
+    public int getMatchItem(int match) {
+        return matchItems[match];
+    }
+
+    /**
+     * Returns the index of the search term of a match
+     * @param match the index of the match
+     * @return the index of the term, for getTerm() and getTermScore()
+     */
+    public int getMatchTermIndex(int match) {
+        return matchTerms[match];
+    }
+
+    /**
+     * Returns the search term of a match
+     * @param match the index of the match
+     * @return the interned term, or null if the page did not include the search terms
+     */
+    public String getMatchTerm(int match) {
+        return terms[matchTerms[match]];
+    }
+
+    /**
+     * Returns the track of a match
+     * @param match the index of the match
+     * @return the track number, or -1 if the match has none
+     */
+    public int getMatchTrack(int match) {
+        return matchTracks[match];
+    }
+
+    /**
+     * Returns the media type of a match, such as audio
+     * @param match the index of the match
+     * @return the interned type, or null if the match has none
+     */
+    public String getMatchType(int match) {
+        return (matchTypes[match] < 0) ? null : types[matchTypes[match]];
+    }
+
+    /**
+     * Returns the offset where a match starts
+     * @param match the index of the match
+     * @return the start offset in seconds
+     */
+    public double getMatchStart(int match) {
+        return starts[match];
+    }
+
+    /**
+     * Returns the offset where a match ends
+     * @param match the index of the match
+     * @return the end offset in seconds
+     */
+    public double getMatchEnd(int match) {
+        return ends[match];
+    }
+
+    /**
+     * Returns the indexes of all matches, for filtering without boxing
+     * @return an IntStream of match indexes in page order
+     */
+    public IntStream matches() {
+        return IntStream.range(0, matchCount);
+    }
+
+    /**
+     * Returns the indexes of the matches of one item
+     * @param item the index of the item
+     * @return an IntStream of match indexes in page order
+     */
+    public IntStream matches(int item) {
+        return IntStream.range(firstMatch[item], firstMatch[item + 1]);
+    }
+
+    /**
+     * Returns the indexes of the matches of one search term
+     * @param term the term
+     * @return an IntStream of match indexes in page order, empty if term is not a search term of the page
+     */
+    public IntStream matchesOf(String term) {
+        final int index = indexOfTerm(term);
+        return matches().filter(new IntPredicate() {
+            public boolean test(int match) {
+                return matchTerms[match] == index;
+            }
+        });
+    }
+
+    public String toString() {
+        return "SearchColumns[items="+itemCount+", terms="+terms.length+", matches="+matchCount+"]";
+    }
+
+    /**
+     * Accumulates the columns from the items of a page, either parsed or handed over one by one while the page
+     * is streamed. Each item is decoded as it arrives, so its JSONObject can be collected right away.
+     */
+    static final class Decoder implements PageItemHandler {
+
+        public void onItem(String field, int index, JSONObject item) throws IOException {
+            if(ITEM_RESULTS.equals(field)) {
+                addItem(index, item);
+            } else if(LINK_ITEMS.equals(field)) {
+                addLink(index, item);
+            }
+        }
+
+        void addItem(int index, JSONObject item) {
+            if(index != items) {
+                throw new RuntimeException("item_results out of order: "+index);
+            }
+            if(items + 1 >= scores.length) {
+                scores = Arrays.copyOf(scores, scores.length * 2);
+                firstMatch = Arrays.copyOf(firstMatch, firstMatch.length * 2);
+                firstTermResult = Arrays.copyOf(firstTermResult, firstTermResult.length * 2);
+            }
+            scores[items] = (float)item.optDouble("score", 0);
+            firstMatch[items] = matches;
+            firstTermResult[items] = termResults;
+
+            JSONArray results = item.optJSONArray("term_results");
+            int count = (results == null) ? 0 : results.length();
+            maxTerms = Math.max(maxTerms, count);
+            for(int term=0;term<count;term++) {
+                JSONObject result = results.optJSONObject(term);
+                if(termResults == termScores.length) {
+                    termScores = Arrays.copyOf(termScores, termScores.length * 2);
+                }
+                termScores[termResults++] = (result == null) ? 0f : (float)result.optDouble("score", 0);
+                JSONArray termMatches = (result == null) ? null : result.optJSONArray("matches");
+                for(int i=0;termMatches != null && i<termMatches.length();i++) {
+                    JSONObject match = termMatches.optJSONObject(i);
+                    if(match != null) {
+                        addMatches(term, match);
+                    }
+                }
+            }
+            items++;
+        }
+
+        void addLink(int index, JSONObject link) {
+            String href = ClarifyModel.stringField(link, "href");
+            if(href == null) {
+                return;
+            }
+            if(index >= bundleIds.length) {
+                bundleIds = Arrays.copyOf(bundleIds, Math.max(bundleIds.length * 2, index + 1));
+            }
+            int end = href.indexOf('?');
+            String path = (end < 0) ? href : href.substring(0, end);
+            bundleIds[index] = path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        SearchColumns finish(JSONObject page) {
+            return new SearchColumns(this, page);
+        }
+
+        /*
+         * Adds one match column entry per hit of a term in a track
+         */
+        private void addMatches(int term, JSONObject match) {
+            JSONArray hits = match.optJSONArray("hits");
+            if(hits == null) {
+                return;
+            }
+            int track = match.optInt("track", -1);
+            byte type = typeIndex(ClarifyModel.stringField(match, "type"));
+            for(int i=0;i<hits.length();i++) {
+                JSONObject hit = hits.optJSONObject(i);
+                if(hit == null) {
+                    continue;
+                }
+                if(matches == starts.length) {
+                    int capacity = starts.length * 2;
+                    matchItems = Arrays.copyOf(matchItems, capacity);
+                    matchTerms = Arrays.copyOf(matchTerms, capacity);
+                    matchTracks = Arrays.copyOf(matchTracks, capacity);
+                    matchTypes = Arrays.copyOf(matchTypes, capacity);
+                    starts = Arrays.copyOf(starts, capacity);
+                    ends = Arrays.copyOf(ends, capacity);
+                }
+                matchItems[matches] = items;
+                matchTerms[matches] = term;
+                matchTracks[matches] = track;
+                matchTypes[matches] = type;
+                starts[matches] = hit.optDouble("start", 0);
+                ends[matches] = hit.optDouble("end", 0);
+                matches++;
+            }
+        }
+
+        private byte typeIndex(String type) {
+            if(type == null) {
+                return -1;
+            }
+            for(int i=0;i<typeCount;i++) {
+                if(types[i].equals(type)) {
+                    return (byte)i;
+                }
+            }
+            if(typeCount == Byte.MAX_VALUE) {
+                throw new RuntimeException("too many media types in search results");
+            }
+            if(typeCount == types.length) {
+                types = Arrays.copyOf(types, types.length * 2);
+            }
+            types[typeCount] = type.intern();
+            return (byte)typeCount++;
+        }
+
+        private int items;
+        private float[] scores = new float[16];
+        private int[] firstMatch = new int[16];
+        private int[] firstTermResult = new int[16];
+        private String[] bundleIds = new String[16];
+        private int termResults;
+        private float[] termScores = new float[16];
+        private int maxTerms;
+        private int matches;
+        private int[] matchItems = new int[64];
+        private int[] matchTerms = new int[64];
+        private int[] matchTracks = new int[64];
+        private byte[] matchTypes = new byte[64];
+        private double[] starts = new double[64];
+        private double[] ends = new double[64];
+        private String[] types = new String[4];
+        private int typeCount;
+    }
+
+    private final int itemCount;
+    private final float[] scores;
+    private final String[] bundleIds;
+    private final int[] firstMatch;
+    private final int[] firstTermResult;
+    private final float[] termScores;
+    private final String[] terms;
+    private final int matchCount;
+    private final int[] matchItems;
+    private final int[] matchTerms;
+    private final int[] matchTracks;
+    private final byte[] matchTypes;
+    private final double[] starts;
+    private final double[] ends;
+    private final String[] types;
+}
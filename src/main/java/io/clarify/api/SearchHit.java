@@ -0,0 +1,75 @@
+package io.clarify.api;
+
+import us.monoid.json.JSONObject;
+
+/**
+ * One Bundle matched by a MultiSearch: the entry of item_results describing the match, together with the
+ * Bundle it refers to and the query that found it.
+ */
+public class SearchHit {
+
+    SearchHit(String query, int shard, double score, String href, JSONObject itemResult) {
+        this.query = query;
+        this.shard = shard;
+        this.score = score;
+        this.href = href;
+        this.itemResult = itemResult;
+    }
+
+    /**
+     * Returns the GUID of the matched Bundle
+     * @return the Bundle GUID, taken from the last segment of the href
+     */
+    public String getBundleId() {
+        int end = href.indexOf('?');
+        String path = (end < 0) ? href : href.substring(0, end);
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Returns the relative href of the matched Bundle, as found in _links.items
+     * @return the href, which may be passed to ClarifyClient.findBundleByHref()
+     */
+    public String getHref() {
+        return href;
+    }
+
+    /**
+     * Returns the score of the match
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the query that produced this hit
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the position of the query in the MultiSearch, starting at 0
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Returns the entry of item_results for the match, holding the term results and match locations
+     * @return a us.monoid.json.JSONObject for the item result
+     */
+    public JSONObject getItemResult() {
+        return itemResult;
+    }
+
+    public String toString() {
+        return "SearchHit[bundle="+getBundleId()+", score="+score+", query="+query+"]";
+    }
+
+    private final String query;
+    private final int shard;
+    private final double score;
+    private final String href;
+    private final JSONObject itemResult;
+}
@@ -0,0 +1,122 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import us.monoid.json.JSONException;
+import us.monoid.json.JSONObject;
+import us.monoid.json.JSONTokener;
+
+/**
+ * Pull parser for list and search pages. The response is read from the network one token at a time: the
+ * elements of item_results and _links.items are parsed one by one and handed to a PageItemHandler, while all
+ * other members (total, _links.next, search_terms, ...) are collected into a small summary object. The item
+ * arrays are never held in memory as a whole.
+ */
+final class StreamingPageParser {
+
+    private StreamingPageParser() {
+    }
+
+    /**
+     * Reads a page from the given reader
+     * @param reader the response body
+     * @param handler the handler receiving the item_results and _links.items elements
+     * @return the page without its item_results and _links.items arrays
+     * @throws IOException if the body could not be read or is not a JSON object, or if the handler failed
+     */
+    static JSONObject parse(Reader reader, PageItemHandler handler) throws IOException {
+        JSONObject page = new JSONObject();
+        try {
+            JSONTokener x = new JSONTokener(reader);
+            char c = x.nextClean();
+            if(c == 0) {
+                // empty body
+                return page;
+            }
+            if(c != '{') {
+                throw x.syntaxError("A JSONObject text must begin with '{'");
+            }
+            readObject(x, page, null, handler);
+        } catch (JSONException e) {
+            throw new IOException("Malformed JSON response: "+e.getMessage(), e);
+        }
+        return page;
+    }
+
+    /*
+     * Reads the members of an object up to its closing brace. The opening brace has already been consumed.
+     */
+    private static void readObject(JSONTokener x, JSONObject target, String path, PageItemHandler handler)
+            throws JSONException, IOException {
+        char c = x.nextClean();
+        if(c == '}') {
+            return;
+        }
+        x.back();
+        while(true) {
+            if(x.nextClean() != '"') {
+                throw x.syntaxError("A JSONObject key must be a quoted string");
+            }
+            String key = x.nextString('"');
+            if(x.nextClean() != ':') {
+                throw x.syntaxError("Expected a ':' after a key");
+            }
+            String memberPath = (path == null) ? key : path+"."+key;
+            if(PageItemHandler.ITEM_RESULTS.equals(memberPath) || PageItemHandler.LINK_ITEMS.equals(memberPath)) {
+                readItems(x, target, key, memberPath, handler);
+            } else if(LINKS.equals(memberPath) && x.nextClean() == '{') {
+                JSONObject links = new JSONObject();
+                readObject(x, links, memberPath, handler);
+                target.put(key, links);
+            } else {
+                if(LINKS.equals(memberPath)) {
+                    x.back();
+                }
+                target.put(key, x.nextValue());
+            }
+
+            c = x.nextClean();
+            if(c == '}') {
+                return;
+            }
+            if(c != ',') {
+                throw x.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    /*
+     * Hands each element of an item array to the handler. A member that is not an array is kept in the summary.
+     */
+    private static void readItems(JSONTokener x, JSONObject target, String key, String field, PageItemHandler handler)
+            throws JSONException, IOException {
+        if(x.nextClean() != '[') {
+            x.back();
+            target.put(key, x.nextValue());
+            return;
+        }
+        if(x.nextClean() == ']') {
+            return;
+        }
+        x.back();
+        int index = 0;
+        while(true) {
+            Object item = x.nextValue();
+            if(!(item instanceof JSONObject)) {
+                throw x.syntaxError("Expected a JSONObject in "+field);
+            }
+            handler.onItem(field, index++, (JSONObject)item);
+
+            char c = x.nextClean();
+            if(c == ']') {
+                return;
+            }
+            if(c != ',') {
+                throw x.syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    private static final String LINKS = "_links";
+}
@@ -0,0 +1,15 @@
+package io.clarify.api;
+
+/**
+ * Receives the progress of a MediaUpload while it is sent. Called on the thread sending the request, after each
+ * block of media is written. When a failed upload is retried, the progress starts again from 0.
+ */
+public interface UploadProgressListener {
+
+    /**
+     * Called after a block of media has been written to the network
+     * @param bytesSent the number of media bytes sent so far in this attempt
+     * @param totalBytes the size of the media, or -1 if it is not known
+     */
+    void onProgress(long bytesSent, long totalBytes);
+}
@@ -0,0 +1,72 @@
+package io.clarify.api;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks when findBundle(String, Expand...) asks the API to embed the resources of a Bundle, and when it fetches
+ * them alongside the Bundle instead
+ */
+public class BundleExpanderTest extends TestCase {
+
+    public void testEmbeddedResourcesAreNotFetched() throws Exception {
+        embedded = "\"_embedded\":{\"metadata\":" + METADATA + ",\"tracks\":" + TRACKS + "},";
+        Bundle bundle = client.findBundle("b1", Expand.METADATA, Expand.TRACKS);
+
+        assertEquals("b1", bundle.getId());
+        assertEquals(Arrays.asList(EMBED), transport.getRequests());
+    }
+
+    public void testPartialEmbeddingKeepsEmbedding() throws Exception {
+        embedded = "\"_embedded\":{\"metadata\":" + METADATA + "},";
+        client.findBundle("b1", Expand.METADATA, Expand.TRACKS);
+        client.findBundle("b1", Expand.METADATA, Expand.TRACKS);
+
+        // the tracks missing from _embedded are fetched, but the next call still asks for them to be embedded
+        assertEquals(Arrays.asList(EMBED, TRACKS_URL, EMBED, TRACKS_URL), transport.getRequests());
+    }
+
+    public void testIgnoredEmbedFallsBackToConcurrentFetches() throws Exception {
+        embedded = "";
+        client.findBundle("b1", Expand.METADATA);
+        assertEquals(Arrays.asList(EMBED_METADATA, METADATA_URL), transport.getRequests());
+
+        client.findBundle("b1", Expand.METADATA);
+        assertEquals(4, transport.getRequests().size());
+        assertTrue(transport.getRequests().subList(2, 4).containsAll(Arrays.asList(BUNDLE_URL, METADATA_URL)));
+    }
+
+    protected void setUp() {
+        transport = new StubTransport() {
+            String respond(String method, String path, ClarifyHttpRequest request) {
+                if(path.startsWith("/v1/bundles/b1?")) {
+                    return "{\"id\":\"b1\"," + embedded + "\"_links\":{\"self\":{\"href\":\"/v1/bundles/b1\"}}}";
+                }
+                if(path.equals(BUNDLE_PATH)) {
+                    return "{\"id\":\"b1\",\"_links\":{\"self\":{\"href\":\"/v1/bundles/b1\"}}}";
+                }
+                if(path.equals(BUNDLE_PATH + "/metadata")) {
+                    return METADATA;
+                }
+                return TRACKS;
+            }
+        };
+        client = new ClarifyClient("test-app-key", transport);
+    }
+
+    private static final String BUNDLE_PATH = "/v1/bundles/b1";
+    private static final String BUNDLE_URL = "GET " + BUNDLE_PATH;
+    private static final String METADATA_URL = "GET " + BUNDLE_PATH + "/metadata";
+    private static final String TRACKS_URL = "GET " + BUNDLE_PATH + "/tracks";
+    private static final String EMBED = "GET " + BUNDLE_PATH + "?embed=metadata,tracks";
+    private static final String EMBED_METADATA = "GET " + BUNDLE_PATH + "?embed=metadata";
+    private static final String METADATA =
+            "{\"bundle_id\":\"b1\",\"data\":{},\"_links\":{\"self\":{\"href\":\"/v1/bundles/b1/metadata\"}}}";
+    private static final String TRACKS =
+            "{\"bundle_id\":\"b1\",\"tracks\":[],\"_links\":{\"self\":{\"href\":\"/v1/bundles/b1/tracks\"}}}";
+
+    private StubTransport transport;
+    private ClarifyClient client;
+    private volatile String embedded;
+}
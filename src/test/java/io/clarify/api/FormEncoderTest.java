@@ -0,0 +1,131 @@
+package io.clarify.api;
+
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks FormEncoder against java.net.URLEncoder, which it must match byte for byte
+ */
+public class FormEncoderTest extends TestCase {
+
+    public void testAsciiValues() throws Exception {
+        assertEncodedAsUrlEncoder("name");
+        assertEncodedAsUrlEncoder("Hello World");
+        assertEncodedAsUrlEncoder("0123456789.-*_");
+    }
+
+    public void testReservedCharacters() throws Exception {
+        assertEncodedAsUrlEncoder("a&b=c+d%e/f?g#h");
+        assertEncodedAsUrlEncoder("!\"$'(),:;<>@[\\]^`{|}~");
+        assertEncodedAsUrlEncoder("tab\tnew\nline\r");
+        assertEncodedAsUrlEncoder("\u0000\u007F");
+    }
+
+    public void testMultiByteCharacters() throws Exception {
+        assertEncodedAsUrlEncoder("caf\u00E9");
+        assertEncodedAsUrlEncoder("\u07FF\u0800");
+        assertEncodedAsUrlEncoder("\u65E5\u672C\u8A9E");
+        assertEncodedAsUrlEncoder("\uFFFD\uFFFF");
+    }
+
+    public void testSurrogatePairs() throws Exception {
+        assertEncodedAsUrlEncoder("\uD83C\uDFB5");
+        assertEncodedAsUrlEncoder("a\uD83C\uDFB5b\uD83D\uDE00 \uD800\uDC00\uDBFF\uDFFF");
+    }
+
+    public void testUnpairedSurrogates() throws Exception {
+        assertEncodedAsUrlEncoder("\uD83C");
+        assertEncodedAsUrlEncoder("\uDFB5");
+        assertEncodedAsUrlEncoder("a\uD83Cb");
+        assertEncodedAsUrlEncoder("\uDFB5\uD83C");
+        assertEncodedAsUrlEncoder("\uD83C\uD83C\uDFB5");
+        assertEncodedAsUrlEncoder("\uD83C\u00E9");
+        assertEncodedAsUrlEncoder("end\uD83C");
+    }
+
+    public void testEmptyValue() throws Exception {
+        assertEncodedAsUrlEncoder("");
+        Map<String,String> fields = new LinkedHashMap<String,String>();
+        fields.put("first", "");
+        fields.put("second", "");
+        assertEquals("first=&second=", new String(FormEncoder.encode(fields), UTF8));
+    }
+
+    public void testNoFields() {
+        assertEquals(0, FormEncoder.encode(new LinkedHashMap<String,String>()).length);
+    }
+
+    public void testFieldsInMapOrder() throws Exception {
+        Map<String,String> fields = new LinkedHashMap<String,String>();
+        fields.put("name", "my bundle");
+        fields.put("media_url", "http://example.com/a.wav?x=1&y=2");
+        fields.put("notify_url", "");
+        String expected = "name=" + URLEncoder.encode("my bundle", "UTF-8")
+                + "&media_url=" + URLEncoder.encode("http://example.com/a.wav?x=1&y=2", "UTF-8")
+                + "&notify_url=";
+        assertEquals(expected, new String(FormEncoder.encode(fields), UTF8));
+    }
+
+    public void testKeysWrittenAsGiven() {
+        Map<String,String> fields = new LinkedHashMap<String,String>();
+        fields.put("a b[\u00E9]", "v");
+        byte[] body = FormEncoder.encode(fields);
+        assertEquals("a b[\u00E9]=v", new String(body, UTF8));
+        assertEquals("a b[\u00E9]=v".getBytes(UTF8).length, body.length);
+    }
+
+    public void testNullValueRejected() {
+        Map<String,String> fields = new LinkedHashMap<String,String>();
+        fields.put("name", null);
+        try {
+            FormEncoder.encode(fields);
+            fail("a null value must be rejected");
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    public void testRandomStrings() throws Exception {
+        // a fixed seed keeps failures reproducible; the alphabet favors surrogates and encoding boundaries
+        Random random = new Random(42);
+        char[] alphabet = { 'a', 'Z', '9', ' ', '*', '+', '&', '=', '%', '~', '\u007F', '\u0080', '\u07FF', '\u0800',
+                '\u00E9', '\uFFFF', '\uD800', '\uDBFF', '\uDC00', '\uDFFF', '\uD83C', '\uDFB5' };
+        for(int n=0;n<2000;n++) {
+            char[] value = new char[random.nextInt(12)];
+            for(int i=0;i<value.length;i++) {
+                value[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            assertEncodedAsUrlEncoder(new String(value));
+        }
+    }
+
+    /*
+     * Checks that a single field with the given value is encoded as URLEncoder encodes it with UTF-8
+     */
+    private static void assertEncodedAsUrlEncoder(String value) throws Exception {
+        Map<String,String> fields = new LinkedHashMap<String,String>();
+        fields.put("k", value);
+        String expected = "k=" + URLEncoder.encode(value, "UTF-8");
+        assertEquals("encoding of " + escape(value), expected, new String(FormEncoder.encode(fields), UTF8));
+    }
+
+    private static String escape(String s) {
+        StringBuilder out = new StringBuilder();
+        for(int i=0;i<s.length();i++) {
+            char c = s.charAt(i);
+            if(c >= 0x20 && c < 0x7F) {
+                out.append(c);
+            } else {
+                out.append(String.format("\\u%04X", (int)c));
+            }
+        }
+        return out.toString();
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+}
@@ -0,0 +1,304 @@
+package io.clarify.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that an IngestCheckpoint recovers the progress of its records after reopening, and that a BulkIngestor
+ * resumes a record from each of the steps the log can end with
+ */
+public class IngestCheckpointTest extends TestCase {
+
+    protected void setUp() throws Exception {
+        file = File.createTempFile("ingest", ".checkpoint");
+        file.delete();
+    }
+
+    protected void tearDown() {
+        file.delete();
+    }
+
+    public void testProgressSurvivesReopening() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.createPending("r1", "key-1");
+        checkpoint.created("r1", "bundle-1");
+        checkpoint.trackAdded("r1", 0);
+        checkpoint.trackAdded("r1", 1);
+        checkpoint.metadataStored("r1");
+        checkpoint.done("r1");
+        checkpoint.createPending("r2", "key-2");
+        checkpoint.close();
+
+        checkpoint = new IngestCheckpoint(file);
+        IngestCheckpoint.Progress p = checkpoint.get("r1");
+        assertEquals("key-1", p.idempotencyKey);
+        assertEquals("bundle-1", p.bundleId);
+        assertEquals(2, p.tracksAdded);
+        assertTrue(p.metadataStored);
+        assertTrue(p.done);
+        p = checkpoint.get("r2");
+        assertEquals("key-2", p.idempotencyKey);
+        assertNull(p.bundleId);
+        assertEquals(0, p.tracksAdded);
+        assertFalse(p.done);
+        assertNull(checkpoint.get("r3"));
+        checkpoint.close();
+    }
+
+    public void testKeysWithSpecialCharacters() throws Exception {
+        String key = "a\tb\nc\\d\re";
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.created(key, "bundle\t1");
+        checkpoint.close();
+
+        checkpoint = new IngestCheckpoint(file);
+        assertEquals("bundle\t1", checkpoint.get(key).bundleId);
+        checkpoint.close();
+    }
+
+    public void testTruncatedLastLineAtEveryLength() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.createPending("r1", "key-1");
+        long intact = file.length();
+        checkpoint.created("r1", "bundle-1234");
+        long full = file.length();
+        checkpoint.close();
+        byte[] content = read(file);
+
+        for(long length=intact;length<full;length++) {
+            write(file, Arrays.copyOf(content, (int)length));
+            checkpoint = new IngestCheckpoint(file);
+            IngestCheckpoint.Progress p = checkpoint.get("r1");
+            assertEquals("key-1", p.idempotencyKey);
+            assertNull("partial line read at length "+length, p.bundleId);
+            checkpoint.close();
+            // a reopening must not find the partial line either, now or once more has been written after it
+            checkpoint = new IngestCheckpoint(file);
+            assertNull(checkpoint.get("r1").bundleId);
+            checkpoint.trackAdded("r2", 0);
+            checkpoint.close();
+            checkpoint = new IngestCheckpoint(file);
+            assertNull(checkpoint.get("r1").bundleId);
+            assertEquals(1, checkpoint.get("r2").tracksAdded);
+            checkpoint.close();
+        }
+    }
+
+    public void testTruncatedTrackIndexIsNotTrusted() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.trackAdded("r1", 0);
+        checkpoint.trackAdded("r1", 12);
+        checkpoint.close();
+        byte[] content = read(file);
+        // "T r1 12\n" cut to "T r1 1": the step must not be read as track 1
+        write(file, Arrays.copyOf(content, content.length - 2));
+
+        checkpoint = new IngestCheckpoint(file);
+        assertEquals(1, checkpoint.get("r1").tracksAdded);
+        checkpoint.close();
+        checkpoint = new IngestCheckpoint(file);
+        assertEquals(1, checkpoint.get("r1").tracksAdded);
+        checkpoint.close();
+    }
+
+    public void testFreshRun() throws Exception {
+        Ingest ingest = new Ingest();
+        IngestResult result = ingest.run();
+        assertEquals(1, result.getCompletedCount());
+        assertEquals(0, result.getResumedCount());
+        assertEquals(Arrays.asList(CREATE, ADD_TRACK, ADD_TRACK, METADATA), ingest.transport.getRequests());
+        assertNotNull(ingest.idempotencyKey(0));
+        assertEquals(ingest.idempotencyKey(0)+"-track-0", ingest.idempotencyKey(1));
+        assertEquals(ingest.idempotencyKey(0)+"-track-1", ingest.idempotencyKey(2));
+        assertDone();
+    }
+
+    public void testResumeAfterCreatePending() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.createPending("r1", "key-1");
+        checkpoint.close();
+
+        Ingest ingest = new Ingest();
+        IngestResult result = ingest.run();
+        assertEquals(1, result.getCompletedCount());
+        assertEquals(0, result.getResumedCount());
+        // the create is repeated with the key logged before the lost request
+        assertEquals(Arrays.asList(CREATE, ADD_TRACK, ADD_TRACK, METADATA), ingest.transport.getRequests());
+        assertEquals("key-1", ingest.idempotencyKey(0));
+        assertEquals("key-1-track-0", ingest.idempotencyKey(1));
+        assertEquals("key-1-track-1", ingest.idempotencyKey(2));
+        assertDone();
+    }
+
+    public void testResumeAfterCreated() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.createPending("r1", "key-1");
+        checkpoint.created("r1", "b1");
+        checkpoint.close();
+
+        Ingest ingest = new Ingest();
+        IngestResult result = ingest.run();
+        assertEquals(1, result.getResumedCount());
+        assertEquals(Arrays.asList(ADD_TRACK, ADD_TRACK, METADATA), ingest.transport.getRequests());
+        assertEquals("key-1-track-0", ingest.idempotencyKey(0));
+        assertEquals("b1", result.getBundleIds().get("r1"));
+        assertDone();
+    }
+
+    public void testResumeAfterTrackAdded() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.createPending("r1", "key-1");
+        checkpoint.created("r1", "b1");
+        checkpoint.trackAdded("r1", 0);
+        checkpoint.close();
+
+        Ingest ingest = new Ingest();
+        IngestResult result = ingest.run();
+        assertEquals(1, result.getResumedCount());
+        assertEquals(Arrays.asList(ADD_TRACK, METADATA), ingest.transport.getRequests());
+        assertEquals("key-1-track-1", ingest.idempotencyKey(0));
+        assertDone();
+    }
+
+    public void testResumeAfterAllTracksAdded() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.createPending("r1", "key-1");
+        checkpoint.created("r1", "b1");
+        checkpoint.trackAdded("r1", 0);
+        checkpoint.trackAdded("r1", 1);
+        checkpoint.close();
+
+        Ingest ingest = new Ingest();
+        assertEquals(1, ingest.run().getResumedCount());
+        assertEquals(Collections.singletonList(METADATA), ingest.transport.getRequests());
+        assertDone();
+    }
+
+    public void testResumeAfterMetadataStored() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.createPending("r1", "key-1");
+        checkpoint.created("r1", "b1");
+        checkpoint.trackAdded("r1", 0);
+        checkpoint.trackAdded("r1", 1);
+        checkpoint.metadataStored("r1");
+        checkpoint.close();
+
+        Ingest ingest = new Ingest();
+        IngestResult result = ingest.run();
+        assertEquals(1, result.getCompletedCount());
+        assertEquals(1, result.getResumedCount());
+        assertTrue(ingest.transport.getRequests().isEmpty());
+        assertDone();
+    }
+
+    public void testSkipDoneRecord() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.createPending("r1", "key-1");
+        checkpoint.created("r1", "b1");
+        checkpoint.done("r1");
+        checkpoint.close();
+
+        Ingest ingest = new Ingest();
+        IngestResult result = ingest.run();
+        assertEquals(0, result.getCompletedCount());
+        assertEquals(1, result.getSkippedCount());
+        assertEquals("b1", result.getBundleIds().get("r1"));
+        assertTrue(ingest.transport.getRequests().isEmpty());
+    }
+
+    public void testResumeAfterTruncatedCreatedLine() throws Exception {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        checkpoint.createPending("r1", "key-1");
+        checkpoint.created("r1", "b1");
+        checkpoint.close();
+        byte[] content = read(file);
+        write(file, Arrays.copyOf(content, content.length - 1));
+
+        // the Bundle id was not recorded in full, so the create is repeated with the logged key
+        Ingest ingest = new Ingest();
+        assertEquals(1, ingest.run().getCompletedCount());
+        assertEquals(Arrays.asList(CREATE, ADD_TRACK, ADD_TRACK, METADATA), ingest.transport.getRequests());
+        assertEquals("key-1", ingest.idempotencyKey(0));
+        assertDone();
+    }
+
+    /*
+     * Checks that the checkpoint left by a run records the record as complete
+     */
+    private void assertDone() throws IOException {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(file);
+        IngestCheckpoint.Progress p = checkpoint.get("r1");
+        assertEquals("b1", p.bundleId);
+        assertEquals(2, p.tracksAdded);
+        assertTrue(p.metadataStored);
+        assertTrue(p.done);
+        checkpoint.close();
+    }
+
+    /*
+     * A run of a BulkIngestor over one record with two tracks and metadata, against a stub API
+     */
+    private class Ingest {
+        IngestResult run() throws IOException {
+            ClarifyClient client = new ClarifyClient("test-app-key", transport);
+            IngestRecord record = new IngestRecord("episode", URI.create("http://example.com/episode.wav"))
+                    .key("r1")
+                    .track(URI.create("http://example.com/left.wav"))
+                    .track(URI.create("http://example.com/right.wav"))
+                    .metadata("{\"speaker\":\"host\"}");
+            IngestResult result = new BulkIngestor(client, file).ingest(Collections.singletonList(record));
+            assertFalse(result.getFailures().toString(), result.hasFailures());
+            return result;
+        }
+
+        String idempotencyKey(int request) {
+            return transport.getHeaders().get(request).get(RetryPolicy.IDEMPOTENCY_KEY_HEADER);
+        }
+
+        final StubTransport transport = new StubTransport() {
+            String respond(String method, String path, ClarifyHttpRequest request) {
+                if(path.equals("/v1/bundles")) {
+                    return "{\"id\":\"b1\",\"_links\":{\"self\":{\"href\":\"/v1/bundles/b1\"}}}";
+                }
+                if(path.equals("/v1/bundles/b1/tracks")) {
+                    return "{\"id\":\"t1\",\"_links\":{\"self\":{\"href\":\"/v1/bundles/b1/tracks/t1\"}}}";
+                }
+                return "{\"bundle_id\":\"b1\",\"data\":{},\"_links\":{\"self\":{\"href\":\"/v1/bundles/b1/metadata\"}}}";
+            }
+        };
+    }
+
+    private static byte[] read(File f) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(f, "r");
+        try {
+            byte[] content = new byte[(int)in.length()];
+            in.readFully(content);
+            return content;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void write(File f, byte[] content) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(f, "rw");
+        try {
+            out.setLength(0);
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static final String CREATE = "POST /v1/bundles";
+    private static final String ADD_TRACK = "POST /v1/bundles/b1/tracks";
+    private static final String METADATA = "PUT /v1/bundles/b1/metadata";
+
+    private File file;
+}
@@ -0,0 +1,210 @@
+package io.clarify.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that a MirrorLog keeps its records across reopening, and recovers from a last record that a crash left
+ * incomplete or corrupt
+ */
+public class MirrorLogTest extends TestCase {
+
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("mirrorlog", "");
+        dir.delete();
+        dir.mkdir();
+        file = new File(dir, "mirror.log");
+    }
+
+    protected void tearDown() {
+        for(File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    public void testPutGetRemove() throws Exception {
+        MirrorLog log = new MirrorLog(file);
+        log.put("bundle/a", bytes("one"));
+        log.put("bundle/b", bytes("two"));
+        log.put("bundle/a", bytes("three"));
+        log.remove("bundle/b");
+        log.remove("bundle/missing");
+        assertValue(log, "bundle/a", "three");
+        assertNull(log.get("bundle/b"));
+        assertFalse(log.contains("bundle/b"));
+        log.close();
+
+        log = new MirrorLog(file);
+        assertValue(log, "bundle/a", "three");
+        assertNull(log.get("bundle/b"));
+        assertEquals(1, log.keys("bundle/").size());
+        log.close();
+    }
+
+    public void testEmptyValueAndUnicodeKey() throws Exception {
+        MirrorLog log = new MirrorLog(file);
+        log.put("caf\u00E9/\uD83C\uDFB5", new byte[0]);
+        log.close();
+
+        log = new MirrorLog(file);
+        assertTrue(log.contains("caf\u00E9/\uD83C\uDFB5"));
+        assertEquals(0, log.get("caf\u00E9/\uD83C\uDFB5").length);
+        log.close();
+    }
+
+    public void testKeysByPrefix() throws Exception {
+        MirrorLog log = new MirrorLog(file);
+        log.put("tracks/b/2", bytes("x"));
+        log.put("bundle/b", bytes("x"));
+        log.put("tracks/a/1", bytes("x"));
+        log.put("tracks/b/1", bytes("x"));
+        assertEquals(Arrays.asList("tracks/a/1", "tracks/b/1", "tracks/b/2"),
+                Arrays.asList(log.keys("tracks/").toArray()));
+        assertEquals(Arrays.asList("tracks/b/1", "tracks/b/2"), Arrays.asList(log.keys("tracks/b/").toArray()));
+        log.close();
+    }
+
+    public void testTruncatedLastRecordAtEveryLength() throws Exception {
+        MirrorLog log = new MirrorLog(file);
+        log.put("bundle/a", bytes("first value"));
+        log.put("bundle/b", bytes("second value"));
+        long intact = log.getFileBytes();
+        log.put("bundle/a", bytes("replacement"));
+        long full = log.getFileBytes();
+        log.close();
+        byte[] content = read(file);
+
+        // cut the last record anywhere: it is dropped, and the records before it survive
+        for(long length=intact;length<full;length++) {
+            write(file, Arrays.copyOf(content, (int)length));
+            log = new MirrorLog(file);
+            assertEquals(intact, log.getFileBytes());
+            assertEquals(intact, file.length());
+            assertValue(log, "bundle/a", "first value");
+            assertValue(log, "bundle/b", "second value");
+            log.close();
+        }
+    }
+
+    public void testCorruptLastRecord() throws Exception {
+        MirrorLog log = new MirrorLog(file);
+        log.put("bundle/a", bytes("first value"));
+        long intact = log.getFileBytes();
+        log.put("bundle/a", bytes("second value"));
+        long full = log.getFileBytes();
+        log.close();
+        byte[] content = read(file);
+
+        // flip one bit anywhere in the last record: its CRC or its lengths no longer match, and it is dropped
+        for(long position=intact;position<full;position++) {
+            byte[] corrupt = content.clone();
+            corrupt[(int)position] ^= 0x10;
+            write(file, corrupt);
+            log = new MirrorLog(file);
+            assertEquals("corruption at "+position, intact, log.getFileBytes());
+            assertValue(log, "bundle/a", "first value");
+            log.close();
+        }
+    }
+
+    public void testAppendAfterRecovery() throws Exception {
+        MirrorLog log = new MirrorLog(file);
+        log.put("bundle/a", bytes("first value"));
+        log.put("bundle/b", bytes("lost value"));
+        log.close();
+        byte[] content = read(file);
+        write(file, Arrays.copyOf(content, content.length - 3));
+
+        log = new MirrorLog(file);
+        assertNull(log.get("bundle/b"));
+        log.put("bundle/b", bytes("written after recovery"));
+        log.close();
+
+        // the new record starts where the valid part ended, not after the dropped bytes
+        log = new MirrorLog(file);
+        assertValue(log, "bundle/a", "first value");
+        assertValue(log, "bundle/b", "written after recovery");
+        log.close();
+    }
+
+    public void testCorruptRemovalKeepsPreviousValue() throws Exception {
+        MirrorLog log = new MirrorLog(file);
+        log.put("bundle/a", bytes("value"));
+        long intact = log.getFileBytes();
+        log.remove("bundle/a");
+        log.close();
+        byte[] content = read(file);
+        content[content.length - 1] ^= 0x01;
+        write(file, content);
+
+        log = new MirrorLog(file);
+        assertEquals(intact, log.getFileBytes());
+        assertValue(log, "bundle/a", "value");
+        log.close();
+    }
+
+    public void testCompact() throws Exception {
+        MirrorLog log = new MirrorLog(file);
+        for(int i=0;i<100;i++) {
+            log.put("bundle/a", bytes("value "+i));
+            log.put("bundle/b", bytes("other "+i));
+        }
+        log.remove("bundle/b");
+        long before = log.getFileBytes();
+        log.compact();
+        assertTrue(log.getFileBytes() < before);
+        assertEquals(file.length(), log.getFileBytes());
+        assertValue(log, "bundle/a", "value 99");
+        assertFalse(log.contains("bundle/b"));
+        log.put("bundle/c", bytes("after compaction"));
+        log.close();
+
+        log = new MirrorLog(file);
+        assertValue(log, "bundle/a", "value 99");
+        assertValue(log, "bundle/c", "after compaction");
+        assertFalse(log.contains("bundle/b"));
+        log.close();
+    }
+
+    private static void assertValue(MirrorLog log, String key, String expected) throws IOException {
+        byte[] value = log.get(key);
+        assertNotNull("no value for "+key, value);
+        assertEquals(expected, new String(value, UTF8));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(UTF8);
+    }
+
+    private static byte[] read(File f) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(f, "r");
+        try {
+            byte[] content = new byte[(int)in.length()];
+            in.readFully(content);
+            return content;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void write(File f, byte[] content) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(f, "rw");
+        try {
+            out.setLength(0);
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private File dir;
+    private File file;
+}
@@ -0,0 +1,91 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that a PageIterator walks every page, and that close() does not wait for a page being fetched
+ */
+public class PageIteratorTest extends TestCase {
+
+    protected void setUp() {
+        pool = Executors.newCachedThreadPool();
+        transport = new StubTransport() {
+            String respond(String method, String path, ClarifyHttpRequest request) throws IOException {
+                int page = path.contains("page=") ? Integer.parseInt(path.substring(path.indexOf("page=") + 5)) : 1;
+                if(page == blockedPage) {
+                    fetching.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                String next = (page < 4) ? "\"next\":{\"href\":\"/v1/bundles?page="+(page + 1)+"\"}," : "";
+                return "{\"total\":4,\"_links\":{"+next+"\"items\":[{\"href\":\"/v1/bundles/p"+page+"\"}]}}";
+            }
+        };
+        client = new ClarifyClient("test-app-key", transport);
+    }
+
+    protected void tearDown() {
+        release.countDown();
+        pool.shutdownNow();
+    }
+
+    public void testWalksEveryPage() throws Exception {
+        PageIterator<BundleList> pages = new PageIterator<BundleList>(client.listBundles(), 2, pool);
+        List<String> hrefs = new ArrayList<String>();
+        while(pages.hasNext()) {
+            hrefs.add(pages.next().getLinkItems().getJSONObject(0).getString("href"));
+        }
+        assertEquals(4, hrefs.size());
+        assertEquals("/v1/bundles/p4", hrefs.get(3));
+        assertFalse(pages.hasNext());
+        try {
+            pages.next();
+            fail("next() after the last page must throw");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    public void testCloseWhileWaitingForAPage() throws Exception {
+        blockedPage = 2;
+        final PageIterator<BundleList> pages = new PageIterator<BundleList>(client.listBundles(), 0, pool);
+        assertTrue(pages.hasNext());
+        pages.next();
+
+        // hasNext() waits for the second page, which the stub holds back
+        Future<Boolean> waiting = pool.submit(new Callable<Boolean>() {
+            public Boolean call() {
+                return pages.hasNext();
+            }
+        });
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        long start = System.nanoTime();
+        pages.close();
+        assertTrue("close() waited for the page", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertFalse(waiting.get(1, TimeUnit.SECONDS));
+        assertFalse(pages.hasNext());
+    }
+
+    private ExecutorService pool;
+    private StubTransport transport;
+    private ClarifyClient client;
+    private volatile int blockedPage;
+    private final CountDownLatch fetching = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+}
@@ -0,0 +1,367 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import us.monoid.json.JSONArray;
+
+/**
+ * Checks that a PagePublisher follows the Reactive Streams rules on demand, cancellation and terminal signals,
+ * publishing the _links.items hrefs of a stub listing of PAGES pages of PAGE_SIZE items
+ */
+public class PagePublisherTest extends TestCase {
+
+    protected void setUp() {
+        pool = Executors.newCachedThreadPool();
+    }
+
+    protected void tearDown() {
+        pool.shutdownNow();
+    }
+
+    public void testSynchronousExecutor() throws Exception {
+        Listing listing = new Listing(PAGES);
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        listing.publisher(SYNCHRONOUS).subscribe(recorder);
+
+        // with a synchronous executor, everything is delivered within request()
+        assertTrue(recorder.completed);
+        assertNull(recorder.error);
+        assertEquals(expectedItems(PAGES), recorder.items);
+        assertEquals(PAGES, listing.transport.getRequests().size());
+    }
+
+    public void testDemandBoundsFetching() {
+        Listing listing = new Listing(PAGES);
+        Recorder recorder = new Recorder(0);
+        listing.publisher(SYNCHRONOUS).subscribe(recorder);
+        assertTrue(listing.transport.getRequests().isEmpty());
+
+        recorder.subscription.request(2);
+        assertEquals(expectedItems(PAGES).subList(0, 2), recorder.items);
+        assertEquals(1, listing.transport.getRequests().size());
+
+        recorder.subscription.request(2);
+        assertEquals(expectedItems(PAGES).subList(0, 4), recorder.items);
+        assertEquals(2, listing.transport.getRequests().size());
+        assertFalse(recorder.completed);
+    }
+
+    public void testUnboundedDemandBuffersAtMostTwoPages() throws Exception {
+        final CountDownLatch resume = new CountDownLatch(1);
+        final Listing listing = new Listing(PAGES);
+        // the Subscriber blocks in its first onNext, so fetched pages can only accumulate
+        final Recorder recorder = new Recorder(Long.MAX_VALUE) {
+            public void onNext(String item) {
+                super.onNext(item);
+                if(items.size() == 1) {
+                    await(resume);
+                }
+            }
+        };
+        // subscribed from the pool, since the item may be delivered by the thread calling request()
+        pool.execute(new Runnable() {
+            public void run() {
+                listing.publisher(pool).subscribe(recorder);
+            }
+        });
+        Thread.sleep(200);
+        assertEquals(1, recorder.items.size());
+        assertTrue(listing.transport.getRequests().size() <= 2);
+        resume.countDown();
+        recorder.awaitTerminal();
+        assertEquals(expectedItems(PAGES), recorder.items);
+    }
+
+    public void testRequestZero() {
+        Listing listing = new Listing(PAGES);
+        Recorder recorder = new Recorder(0);
+        listing.publisher(SYNCHRONOUS).subscribe(recorder);
+        recorder.subscription.request(0);
+
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertFalse(recorder.completed);
+        assertTrue(recorder.items.isEmpty());
+        assertTrue(listing.transport.getRequests().isEmpty());
+        // signals after the terminal one are ignored
+        recorder.subscription.request(5);
+        assertTrue(recorder.items.isEmpty());
+        assertEquals(1, recorder.terminalSignals);
+    }
+
+    public void testNegativeRequestAfterItems() {
+        Listing listing = new Listing(PAGES);
+        Recorder recorder = new Recorder(2);
+        listing.publisher(SYNCHRONOUS).subscribe(recorder);
+        recorder.subscription.request(-1);
+
+        // the buffered items are dropped, and the error is signalled at once
+        assertEquals(2, recorder.items.size());
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertEquals(1, recorder.terminalSignals);
+    }
+
+    public void testCancelDuringFetch() throws Exception {
+        final CountDownLatch fetching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Listing listing = new Listing(PAGES) {
+            void onFetch(int page) {
+                if(page == 2) {
+                    fetching.countDown();
+                    await(release);
+                }
+            }
+        };
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        listing.publisher(pool).subscribe(recorder);
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+
+        recorder.subscription.cancel();
+        release.countDown();
+        Thread.sleep(200);
+
+        // the fetch in flight finished, but its items were discarded and no further page was fetched; the items
+        // of the first page may still have been in delivery when cancel() was called
+        assertTrue(recorder.items.size() <= PAGE_SIZE);
+        assertEquals(expectedItems(PAGES).subList(0, recorder.items.size()), recorder.items);
+        assertEquals(2, listing.transport.getRequests().size());
+        assertEquals(0, recorder.terminalSignals);
+    }
+
+    public void testCancelInOnNext() {
+        Listing listing = new Listing(PAGES);
+        Recorder recorder = new Recorder(Long.MAX_VALUE) {
+            public void onNext(String item) {
+                super.onNext(item);
+                if(items.size() == 2) {
+                    subscription.cancel();
+                }
+            }
+        };
+        listing.publisher(SYNCHRONOUS).subscribe(recorder);
+
+        assertEquals(2, recorder.items.size());
+        assertEquals(0, recorder.terminalSignals);
+        assertTrue(listing.transport.getRequests().size() <= 2);
+    }
+
+    public void testRequestInOnNextDoesNotRecurse() {
+        Listing listing = new Listing(200);
+        // requests one item at a time from onNext, over enough items to overflow the stack if signals recursed
+        Recorder recorder = new Recorder(1) {
+            public void onNext(String item) {
+                assertFalse("onNext called recursively", inOnNext);
+                inOnNext = true;
+                super.onNext(item);
+                subscription.request(1);
+                inOnNext = false;
+            }
+            boolean inOnNext;
+        };
+        listing.publisher(SYNCHRONOUS).subscribe(recorder);
+
+        assertTrue(recorder.completed);
+        assertEquals(200 * PAGE_SIZE, recorder.items.size());
+    }
+
+    public void testFetchFailure() throws Exception {
+        Listing listing = new Listing(PAGES) {
+            void onFetch(int page) throws IOException {
+                if(page == 2) {
+                    throw new IOException("connection reset");
+                }
+            }
+        };
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        listing.publisher(pool).subscribe(recorder);
+        recorder.awaitTerminal();
+
+        // the items fetched before the failure are delivered before it
+        assertEquals(expectedItems(PAGES).subList(0, PAGE_SIZE), recorder.items);
+        assertTrue(recorder.error instanceof IOException);
+        assertEquals("connection reset", recorder.error.getMessage());
+    }
+
+    public void testRejectedExecution() {
+        Listing listing = new Listing(PAGES);
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        listing.publisher(new Executor() {
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("shut down");
+            }
+        }).subscribe(recorder);
+
+        assertTrue(recorder.error instanceof RejectedExecutionException);
+        assertEquals(1, recorder.terminalSignals);
+    }
+
+    public void testEmptyListing() {
+        Listing listing = new Listing(1, 0);
+        Recorder recorder = new Recorder(1);
+        listing.publisher(SYNCHRONOUS).subscribe(recorder);
+
+        assertTrue(recorder.completed);
+        assertTrue(recorder.items.isEmpty());
+    }
+
+    public void testEachSubscriberWalksFromTheFirstPage() throws Exception {
+        Listing listing = new Listing(PAGES);
+        PagePublisher<BundleList,String> publisher = listing.publisher(pool);
+        Recorder first = new Recorder(Long.MAX_VALUE);
+        Recorder second = new Recorder(Long.MAX_VALUE);
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        first.awaitTerminal();
+        second.awaitTerminal();
+
+        assertEquals(expectedItems(PAGES), first.items);
+        assertEquals(expectedItems(PAGES), second.items);
+        assertEquals(2 * PAGES, listing.transport.getRequests().size());
+    }
+
+    public void testNullSubscriber() {
+        try {
+            new Listing(PAGES).publisher(SYNCHRONOUS).subscribe(null);
+            fail("a null Subscriber must be rejected");
+        } catch (NullPointerException e) {
+            // required by rule 1.9
+        }
+    }
+
+    private static List<String> expectedItems(int pages) {
+        List<String> items = new ArrayList<String>();
+        for(int page=1;page<=pages;page++) {
+            for(int i=0;i<PAGE_SIZE;i++) {
+                items.add(href(page, i));
+            }
+        }
+        return items;
+    }
+
+    private static String href(int page, int index) {
+        return "/v1/bundles/p"+page+"i"+index;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * A stub bundle listing, published as the hrefs of its items
+     */
+    private static class Listing {
+        Listing(int pages) {
+            this(pages, PAGE_SIZE);
+        }
+
+        Listing(final int pages, final int pageSize) {
+            transport = new StubTransport() {
+                String respond(String method, String path, ClarifyHttpRequest request) throws IOException {
+                    int page = path.contains("page=") ? Integer.parseInt(path.substring(path.indexOf("page=") + 5)) : 1;
+                    onFetch(page);
+                    StringBuilder items = new StringBuilder();
+                    for(int i=0;i<pageSize;i++) {
+                        items.append((i == 0) ? "" : ",").append("{\"href\":\"").append(href(page, i)).append("\"}");
+                    }
+                    String next = (page < pages) ? "\"next\":{\"href\":\"/v1/bundles?page="+(page + 1)+"\"}," : "";
+                    return "{\"total\":"+(pages * pageSize)+",\"_links\":{"+next+"\"items\":["+items+"]}}";
+                }
+            };
+            client = new ClarifyClient("test-app-key", transport);
+        }
+
+        /**
+         * Called on the fetching thread before a page is returned
+         */
+        void onFetch(int page) throws IOException {
+        }
+
+        PagePublisher<BundleList,String> publisher(Executor executor) {
+            return new PagePublisher<BundleList,String>(executor) {
+                BundleList firstPage() throws IOException {
+                    return client.listBundles();
+                }
+                List<String> items(BundleList page) {
+                    List<String> hrefs = new ArrayList<String>();
+                    JSONArray items = page.getLinkItems();
+                    for(int i=0;items != null && i<items.length();i++) {
+                        hrefs.add(items.optJSONObject(i).optString("href"));
+                    }
+                    return hrefs;
+                }
+            };
+        }
+
+        final StubTransport transport;
+        final ClarifyClient client;
+    }
+
+    /*
+     * Records the signals it receives, requesting the given number of items on subscription
+     */
+    private static class Recorder implements Subscriber<String> {
+        Recorder(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            if(initialRequest > 0) {
+                s.request(initialRequest);
+            }
+        }
+
+        public void onNext(String item) {
+            items.add(item);
+        }
+
+        public void onError(Throwable t) {
+            error = t;
+            terminalSignals++;
+            terminated.countDown();
+        }
+
+        public void onComplete() {
+            completed = true;
+            terminalSignals++;
+            terminated.countDown();
+        }
+
+        void awaitTerminal() throws InterruptedException {
+            assertTrue("no terminal signal", terminated.await(5, TimeUnit.SECONDS));
+        }
+
+        final long initialRequest;
+        final List<String> items = new CopyOnWriteArrayList<String>();
+        final CountDownLatch terminated = new CountDownLatch(1);
+        volatile Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+        volatile int terminalSignals;
+    }
+
+    private static final Executor SYNCHRONOUS = new Executor() {
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+    private static final int PAGES = 3;
+    private static final int PAGE_SIZE = 3;
+
+    private ExecutorService pool;
+}
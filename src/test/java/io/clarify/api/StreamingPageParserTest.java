@@ -0,0 +1,204 @@
+package io.clarify.api;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import us.monoid.json.JSONObject;
+
+/**
+ * Checks that StreamingPageParser hands every item to the handler, in order, and keeps everything else in the
+ * summary page
+ */
+public class StreamingPageParserTest extends TestCase {
+
+    public void testItemsBeforeLinks() throws Exception {
+        String json = "{\"item_results\":[{\"score\":0.5},{\"score\":0.25}],"
+                + "\"_links\":{\"self\":{\"href\":\"/v1/search\"},\"items\":[{\"href\":\"/v1/bundles/a\"},{\"href\":\"/v1/bundles/b\"}],"
+                + "\"next\":{\"href\":\"/v1/search?page=2\"}},\"total\":2}";
+        Recorder recorder = new Recorder();
+        JSONObject page = StreamingPageParser.parse(new StringReader(json), recorder);
+
+        assertEquals(4, recorder.items.size());
+        recorder.assertItem(0, PageItemHandler.ITEM_RESULTS, 0, "score", "0.5");
+        recorder.assertItem(1, PageItemHandler.ITEM_RESULTS, 1, "score", "0.25");
+        recorder.assertItem(2, PageItemHandler.LINK_ITEMS, 0, "href", "/v1/bundles/a");
+        recorder.assertItem(3, PageItemHandler.LINK_ITEMS, 1, "href", "/v1/bundles/b");
+        assertSummary(page);
+    }
+
+    public void testItemsAfterLinks() throws Exception {
+        String json = "{ \"total\" : 2 , \"_links\" : { \"next\" : { \"href\" : \"/v1/search?page=2\" } ,\n"
+                + "  \"items\" : [ { \"href\" : \"/v1/bundles/a\" } , { \"href\" : \"/v1/bundles/b\" } ] ,\n"
+                + "  \"self\" : { \"href\" : \"/v1/search\" } } ,\n"
+                + "  \"item_results\" : [ { \"score\" : 0.5 } , { \"score\" : 0.25 } ] }";
+        Recorder recorder = new Recorder();
+        JSONObject page = StreamingPageParser.parse(new StringReader(json), recorder);
+
+        assertEquals(4, recorder.items.size());
+        recorder.assertItem(0, PageItemHandler.LINK_ITEMS, 0, "href", "/v1/bundles/a");
+        recorder.assertItem(1, PageItemHandler.LINK_ITEMS, 1, "href", "/v1/bundles/b");
+        recorder.assertItem(2, PageItemHandler.ITEM_RESULTS, 0, "score", "0.5");
+        recorder.assertItem(3, PageItemHandler.ITEM_RESULTS, 1, "score", "0.25");
+        assertSummary(page);
+    }
+
+    public void testNestedArraysStayInsideTheirItem() throws Exception {
+        String json = "{\"item_results\":[{\"score\":1,\"term_results\":[{\"matches\":[{\"type\":\"audio\","
+                + "\"hits\":[{\"start\":1.5,\"end\":2.0},{\"start\":3,\"end\":4}]}]}],"
+                + "\"item_results\":[{\"score\":2}],\"_links\":{\"items\":[{\"href\":\"inner\"}]}}],"
+                + "\"search_terms\":[{\"term\":\"father\",\"item_results\":[{\"score\":3}]}],"
+                + "\"_embedded\":{\"items\":[{\"id\":\"embedded\"}]},"
+                + "\"meta\":{\"_links\":{\"items\":[{\"href\":\"deep\"}]}},"
+                + "\"_links\":{\"items\":[{\"href\":\"/v1/bundles/a\",\"_links\":{\"items\":[{\"href\":\"nested\"}]}}]}}";
+        Recorder recorder = new Recorder();
+        JSONObject page = StreamingPageParser.parse(new StringReader(json), recorder);
+
+        // only the two top-level arrays are streamed, each element as a whole
+        assertEquals(2, recorder.items.size());
+        recorder.assertItem(0, PageItemHandler.ITEM_RESULTS, 0, "score", "1");
+        JSONObject result = recorder.items.get(0);
+        assertEquals(2, result.getJSONArray("term_results").getJSONObject(0).getJSONArray("matches")
+                .getJSONObject(0).getJSONArray("hits").length());
+        assertEquals(2, result.getJSONArray("item_results").getJSONObject(0).getInt("score"));
+        assertEquals("inner", result.getJSONObject("_links").getJSONArray("items").getJSONObject(0).getString("href"));
+        recorder.assertItem(1, PageItemHandler.LINK_ITEMS, 0, "href", "/v1/bundles/a");
+        assertEquals("nested", recorder.items.get(1).getJSONObject("_links").getJSONArray("items")
+                .getJSONObject(0).getString("href"));
+
+        // arrays at other paths are kept in the summary
+        assertEquals(3, page.getJSONArray("search_terms").getJSONObject(0).getJSONArray("item_results")
+                .getJSONObject(0).getInt("score"));
+        assertEquals("embedded", page.getJSONObject("_embedded").getJSONArray("items").getJSONObject(0).getString("id"));
+        assertEquals("deep", page.getJSONObject("meta").getJSONObject("_links").getJSONArray("items")
+                .getJSONObject(0).getString("href"));
+        assertFalse(page.has("item_results"));
+        assertFalse(page.getJSONObject("_links").has("items"));
+    }
+
+    public void testEmptyArrays() throws Exception {
+        String json = "{\"item_results\":[],\"_links\":{\"items\":[ ],\"self\":{\"href\":\"/v1/search\"}},\"total\":0}";
+        Recorder recorder = new Recorder();
+        JSONObject page = StreamingPageParser.parse(new StringReader(json), recorder);
+
+        assertTrue(recorder.items.isEmpty());
+        assertEquals(0, page.getInt("total"));
+        assertEquals("/v1/search", page.getJSONObject("_links").getJSONObject("self").getString("href"));
+        assertFalse(page.has("item_results"));
+        assertFalse(page.getJSONObject("_links").has("items"));
+    }
+
+    public void testEmptyObjects() throws Exception {
+        Recorder recorder = new Recorder();
+        JSONObject page = StreamingPageParser.parse(new StringReader("{\"_links\":{}}"), recorder);
+        assertTrue(recorder.items.isEmpty());
+        assertEquals(0, page.getJSONObject("_links").length());
+
+        page = StreamingPageParser.parse(new StringReader(" { } "), recorder);
+        assertEquals(0, page.length());
+    }
+
+    public void testEmptyBody() throws Exception {
+        Recorder recorder = new Recorder();
+        assertEquals(0, StreamingPageParser.parse(new StringReader(""), recorder).length());
+        assertEquals(0, StreamingPageParser.parse(new StringReader("  \n "), recorder).length());
+        assertTrue(recorder.items.isEmpty());
+    }
+
+    public void testItemFieldThatIsNotAnArray() throws Exception {
+        Recorder recorder = new Recorder();
+        JSONObject page = StreamingPageParser.parse(new StringReader("{\"item_results\":null,\"_links\":\"none\"}"), recorder);
+        assertTrue(recorder.items.isEmpty());
+        assertTrue(page.isNull("item_results"));
+        assertEquals("none", page.getString("_links"));
+    }
+
+    public void testItemThatIsNotAnObject() {
+        assertMalformed("{\"item_results\":[{\"score\":1},2]}");
+        assertMalformed("{\"_links\":{\"items\":[\"/v1/bundles/a\"]}}");
+    }
+
+    public void testNotAnObject() {
+        assertMalformed("[{\"score\":1}]");
+        assertMalformed("null");
+    }
+
+    public void testTruncatedInput() {
+        String json = "{\"item_results\":[{\"score\":0.5},{\"score\":0.25}],"
+                + "\"_links\":{\"self\":{\"href\":\"/v1/search\"},\"items\":[{\"href\":\"/v1/bundles/a\"}]},\"total\":12}";
+        // every proper prefix of the page is rejected, wherever the connection was cut
+        for(int length=1;length<json.length();length++) {
+            assertMalformed(json.substring(0, length));
+        }
+    }
+
+    public void testTruncatedInputStopsAfterCompleteItems() {
+        Recorder recorder = new Recorder();
+        try {
+            StreamingPageParser.parse(new StringReader("{\"item_results\":[{\"score\":1},{\"score\":2},{\"sco"), recorder);
+            fail("a truncated page must be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+        // the items read in full before the cut were delivered, the partial one was not
+        assertEquals(2, recorder.items.size());
+    }
+
+    public void testHandlerFailureAbortsTheRead() {
+        final IOException failure = new IOException("stop");
+        PageItemHandler handler = new PageItemHandler() {
+            public void onItem(String field, int index, JSONObject item) throws IOException {
+                if(index == 1) {
+                    throw failure;
+                }
+            }
+        };
+        try {
+            StreamingPageParser.parse(new StringReader("{\"item_results\":[{},{},{}]}"), handler);
+            fail("the handler's exception must be thrown");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    private static void assertSummary(JSONObject page) throws Exception {
+        assertEquals(2, page.getInt("total"));
+        assertFalse(page.has("item_results"));
+        JSONObject links = page.getJSONObject("_links");
+        assertFalse(links.has("items"));
+        assertEquals("/v1/search", links.getJSONObject("self").getString("href"));
+        assertEquals("/v1/search?page=2", links.getJSONObject("next").getString("href"));
+    }
+
+    private static void assertMalformed(String json) {
+        try {
+            StreamingPageParser.parse(new StringReader(json), new Recorder());
+            fail("malformed page accepted: "+json);
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /*
+     * Records the items it receives, with their field and index
+     */
+    private static class Recorder implements PageItemHandler {
+        public void onItem(String field, int index, JSONObject item) {
+            fields.add(field);
+            indexes.add(index);
+            items.add(item);
+        }
+
+        void assertItem(int position, String field, int index, String key, String value) throws Exception {
+            assertEquals(field, fields.get(position));
+            assertEquals(index, indexes.get(position).intValue());
+            assertEquals(value, items.get(position).get(key).toString());
+        }
+
+        final List<String> fields = new ArrayList<String>();
+        final List<Integer> indexes = new ArrayList<Integer>();
+        final List<JSONObject> items = new ArrayList<JSONObject>();
+    }
+}
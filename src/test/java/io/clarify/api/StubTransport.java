@@ -0,0 +1,61 @@
+package io.clarify.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ClarifyTransport answering requests in memory, for tests. Subclasses return the JSON body of each response;
+ * every request is recorded as "METHOD path?query".
+ */
+abstract class StubTransport implements ClarifyTransport {
+
+    /**
+     * Returns the body of the 200 response to a request
+     * @param method the HTTP method
+     * @param path the path and query of the request URL, such as /v1/bundles?page=2
+     * @param request the request
+     * @return the JSON body of the response
+     * @throws IOException to fail the request as a network failure would
+     */
+    abstract String respond(String method, String path, ClarifyHttpRequest request) throws IOException;
+
+    public ClarifyHttpResponse execute(ClarifyHttpRequest request) throws IOException {
+        URI uri = URI.create(request.getUrl());
+        String path = (uri.getRawQuery() == null) ? uri.getRawPath() : uri.getRawPath()+"?"+uri.getRawQuery();
+        synchronized(this) {
+            requests.add(request.getMethod()+" "+path);
+            headers.add(new HashMap<String,String>(request.getHeaders()));
+        }
+        byte[] body = respond(request.getMethod(), path, request).getBytes(UTF8);
+        return new ClarifyHttpResponse(200, Collections.<String,List<String>>emptyMap(), new ByteArrayInputStream(body), null);
+    }
+
+    /**
+     * Returns the requests executed so far, in order
+     */
+    synchronized List<String> getRequests() {
+        return new ArrayList<String>(requests);
+    }
+
+    /**
+     * Returns the headers of the requests executed so far, in order
+     */
+    synchronized List<Map<String,String>> getHeaders() {
+        return new ArrayList<Map<String,String>>(headers);
+    }
+
+    public void close() {
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final List<String> requests = new ArrayList<String>();
+    private final List<Map<String,String>> headers = new ArrayList<Map<String,String>>();
+}